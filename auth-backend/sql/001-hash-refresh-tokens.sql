@@ -0,0 +1,12 @@
+-- Moves refresh tokens from the raw VARCHAR(255) `token` column to a BINARY(32) SHA-256 digest.
+-- Run once before deploying the version that reads `token_hash` (ddl-auto=update can't backfill it).
+-- Existing sessions keep working: the stored digest is SHA-256 of the same string clients still send.
+
+ALTER TABLE refresh_tokens ADD COLUMN token_hash BINARY(32) NULL;
+
+UPDATE refresh_tokens SET token_hash = UNHEX(SHA2(token, 256));
+
+ALTER TABLE refresh_tokens
+    MODIFY token_hash BINARY(32) NOT NULL,
+    ADD CONSTRAINT uk_refresh_tokens_token_hash UNIQUE (token_hash),
+    DROP COLUMN token;
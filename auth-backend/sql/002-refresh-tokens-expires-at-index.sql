@@ -0,0 +1,4 @@
+-- Index used by the refresh token reaper to find the longest-expired rows without a table scan.
+-- ddl-auto=update would also create it, but on a large table that blocks startup; build it online first.
+
+CREATE INDEX idx_refresh_tokens_expires_at ON refresh_tokens (expires_at) ALGORITHM=INPLACE LOCK=NONE;
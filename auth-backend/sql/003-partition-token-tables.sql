@@ -0,0 +1,47 @@
+-- Opt-in: range-partitions refresh_tokens and password_reset_tokens by expiry day so expired rows are
+-- removed with DROP PARTITION. Run once, then start the app with storage.partitioning.enabled=true;
+-- TokenPartitionMaintainer splits pmax into daily partitions on its first run (a one-off row copy).
+--
+-- MySQL requirements for partitioned tables, handled below:
+--   * every unique key must include expires_at  -> PK (id, expires_at), token uniqueness keyed with expires_at
+--   * no foreign keys                           -> user_id FKs dropped; delete a user's tokens before the user
+-- Set spring.jpa.hibernate.ddl-auto=validate (or none) afterwards; `update` would try to re-add the dropped
+-- constraints, so the app refuses to start with it while storage.partitioning.enabled=true.
+
+-- === refresh_tokens ===
+SELECT CONSTRAINT_NAME INTO @fk FROM information_schema.REFERENTIAL_CONSTRAINTS
+WHERE CONSTRAINT_SCHEMA = DATABASE() AND TABLE_NAME = 'refresh_tokens' LIMIT 1;
+SET @stmt = IF(@fk IS NULL, 'DO 0', CONCAT('ALTER TABLE refresh_tokens DROP FOREIGN KEY ', @fk));
+PREPARE s FROM @stmt; EXECUTE s; DEALLOCATE PREPARE s;
+SET @fk = NULL;
+
+ALTER TABLE refresh_tokens
+    MODIFY expires_at DATETIME(6) NOT NULL,
+    DROP PRIMARY KEY, ADD PRIMARY KEY (id, expires_at),
+    DROP INDEX uk_refresh_tokens_token_hash, ADD UNIQUE KEY uk_refresh_tokens_token_hash (token_hash, expires_at);
+
+ALTER TABLE refresh_tokens PARTITION BY RANGE (TO_DAYS(expires_at)) (
+    PARTITION pmax VALUES LESS THAN MAXVALUE
+);
+
+-- === password_reset_tokens ===
+SELECT CONSTRAINT_NAME INTO @fk FROM information_schema.REFERENTIAL_CONSTRAINTS
+WHERE CONSTRAINT_SCHEMA = DATABASE() AND TABLE_NAME = 'password_reset_tokens' LIMIT 1;
+SET @stmt = IF(@fk IS NULL, 'DO 0', CONCAT('ALTER TABLE password_reset_tokens DROP FOREIGN KEY ', @fk));
+PREPARE s FROM @stmt; EXECUTE s; DEALLOCATE PREPARE s;
+
+-- The unique index on `token` was named by Hibernate
+SELECT INDEX_NAME INTO @uk FROM information_schema.STATISTICS
+WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'password_reset_tokens'
+  AND COLUMN_NAME = 'token' AND NON_UNIQUE = 0 AND INDEX_NAME <> 'PRIMARY' LIMIT 1;
+SET @stmt = IF(@uk IS NULL, 'DO 0', CONCAT('ALTER TABLE password_reset_tokens DROP INDEX ', @uk));
+PREPARE s FROM @stmt; EXECUTE s; DEALLOCATE PREPARE s;
+
+ALTER TABLE password_reset_tokens
+    MODIFY expires_at DATETIME(6) NOT NULL,
+    DROP PRIMARY KEY, ADD PRIMARY KEY (id, expires_at),
+    ADD UNIQUE KEY uk_password_reset_tokens_token (token, expires_at);
+
+ALTER TABLE password_reset_tokens PARTITION BY RANGE (TO_DAYS(expires_at)) (
+    PARTITION pmax VALUES LESS THAN MAXVALUE
+);
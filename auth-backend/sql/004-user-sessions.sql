@@ -0,0 +1,23 @@
+-- Per-user session index and database-side cascades for token rows.
+-- Users no longer map their tokens as collections. The app never deletes users; whatever does must delete the
+-- user's refresh and reset tokens first, since partitioned tables (sql/003) have no cascade. ON DELETE CASCADE
+-- covers unpartitioned tables.
+-- ddl-auto=update won't alter the existing foreign keys, so they are recreated here.
+-- Skip the foreign-key part on partitioned tables (sql/003), which have none.
+
+CREATE INDEX idx_refresh_tokens_user_expires ON refresh_tokens (user_id, expires_at) ALGORITHM=INPLACE LOCK=NONE;
+
+-- === refresh_tokens.user_id ===
+SELECT CONSTRAINT_NAME INTO @fk FROM information_schema.REFERENTIAL_CONSTRAINTS
+WHERE CONSTRAINT_SCHEMA = DATABASE() AND TABLE_NAME = 'refresh_tokens' LIMIT 1;
+SET @stmt = IF(@fk IS NULL, 'DO 0', CONCAT('ALTER TABLE refresh_tokens DROP FOREIGN KEY ', @fk,
+    ', ADD CONSTRAINT ', @fk, ' FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE'));
+PREPARE s FROM @stmt; EXECUTE s; DEALLOCATE PREPARE s;
+SET @fk = NULL;
+
+-- === password_reset_tokens.user_id ===
+SELECT CONSTRAINT_NAME INTO @fk FROM information_schema.REFERENTIAL_CONSTRAINTS
+WHERE CONSTRAINT_SCHEMA = DATABASE() AND TABLE_NAME = 'password_reset_tokens' LIMIT 1;
+SET @stmt = IF(@fk IS NULL, 'DO 0', CONCAT('ALTER TABLE password_reset_tokens DROP FOREIGN KEY ', @fk,
+    ', ADD CONSTRAINT ', @fk, ' FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE'));
+PREPARE s FROM @stmt; EXECUTE s; DEALLOCATE PREPARE s;
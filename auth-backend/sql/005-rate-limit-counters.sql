@@ -0,0 +1,11 @@
+-- Shared request counters for cluster-wide rate limiting (auth.ratelimit.cluster.enabled=true).
+-- Not mapped as an entity, so ddl-auto does not create it. One row per client key and fixed window
+-- (window_index = epoch millis / window length); rows older than the previous window are deleted by the nodes.
+
+CREATE TABLE IF NOT EXISTS rate_limit_counters (
+    limiter_key   VARCHAR(64) NOT NULL,
+    window_index  BIGINT      NOT NULL,
+    request_count BIGINT      NOT NULL,
+    PRIMARY KEY (limiter_key, window_index),
+    INDEX idx_rate_limit_counters_window (window_index)
+);
@@ -0,0 +1,21 @@
+-- Outbox of emails queued by request handlers and sent by MailOutboxDispatcher.
+-- ddl-auto=update creates this table by itself; run this script when the schema is managed with
+-- ddl-auto=validate (e.g. after sql/003).
+
+CREATE TABLE IF NOT EXISTS mail_outbox (
+    id              BIGINT       NOT NULL AUTO_INCREMENT,
+    idempotency_key VARCHAR(36)  NOT NULL,
+    recipient       VARCHAR(320) NOT NULL,
+    subject         VARCHAR(255) NOT NULL,
+    template        VARCHAR(100) NOT NULL,
+    model           VARCHAR(2000) NOT NULL,
+    status          VARCHAR(10)  NOT NULL,
+    attempts        INT          NOT NULL,
+    next_attempt_at DATETIME(6)  NOT NULL,
+    created_at      DATETIME(6)  NOT NULL,
+    sent_at         DATETIME(6)  NULL,
+    last_error      VARCHAR(500) NULL,
+    PRIMARY KEY (id),
+    UNIQUE KEY uk_mail_outbox_idempotency_key (idempotency_key),
+    INDEX idx_mail_outbox_status_next_attempt (status, next_attempt_at)
+);
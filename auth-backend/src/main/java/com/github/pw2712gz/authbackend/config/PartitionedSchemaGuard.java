@@ -0,0 +1,34 @@
+package com.github.pw2712gz.authbackend.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Refuses to start with partitioned token tables (sql/003) and a schema-changing {@code ddl-auto}: Hibernate would
+ * try to re-add the foreign keys and unique keys the partitioning removed. Runs before the schema tool does.
+ */
+@Component
+public class PartitionedSchemaGuard implements HibernatePropertiesCustomizer {
+
+    private static final Set<String> SAFE_MODES = Set.of("none", "validate");
+
+    private final boolean partitioned;
+
+    public PartitionedSchemaGuard(@Value("${storage.partitioning.enabled:false}") boolean partitioned) {
+        this.partitioned = partitioned;
+    }
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        Object ddlAuto = hibernateProperties.get(AvailableSettings.HBM2DDL_AUTO);
+        if (partitioned && ddlAuto != null && !SAFE_MODES.contains(ddlAuto.toString().trim().toLowerCase())) {
+            throw new IllegalStateException("storage.partitioning.enabled=true requires spring.jpa.hibernate.ddl-auto "
+                    + "to be validate or none, not " + ddlAuto);
+        }
+    }
+}
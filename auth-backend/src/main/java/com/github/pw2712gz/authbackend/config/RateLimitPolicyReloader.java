@@ -0,0 +1,63 @@
+package com.github.pw2712gz.authbackend.config;
+
+import com.github.pw2712gz.authbackend.ratelimit.RateLimitPolicy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+/**
+ * Applies rate limit policies from {@code auth.ratelimit.policies.file} and re-applies them whenever the file
+ * changes, so limits can be tuned without a restart. Without a file the built-in defaults stay in force.
+ * A file that fails to parse is logged and ignored until it changes again.
+ */
+@Component
+@Slf4j
+public class RateLimitPolicyReloader {
+
+    private final RateLimitingFilter filter;
+
+    @Value("${auth.ratelimit.policies.file:}")
+    private String policiesFile;
+
+    private FileTime lastModified;
+
+    public RateLimitPolicyReloader(FilterRegistrationBean<RateLimitingFilter> rateLimitingFilter) {
+        this.filter = rateLimitingFilter.getFilter();
+    }
+
+    /**
+     * Runs at startup and then polls the file's modification time.
+     */
+    @Scheduled(fixedDelayString = "${auth.ratelimit.policies.reload.ms:10000}")
+    public synchronized void reload() {
+        if (policiesFile == null || policiesFile.isBlank()) {
+            return;
+        }
+
+        Path path = Path.of(policiesFile);
+        try {
+            FileTime modified = Files.getLastModifiedTime(path);
+            if (modified.equals(lastModified)) {
+                return;
+            }
+            lastModified = modified;
+
+            List<RateLimitPolicy> policies;
+            try (Reader reader = Files.newBufferedReader(path)) {
+                policies = RateLimitPolicy.parse(reader);
+            }
+            filter.updatePolicies(policies);
+            log.info("[RateLimitPolicies] Applied {} policies from {}: {}", policies.size(), path, policies);
+        } catch (Exception e) {
+            log.error("[RateLimitPolicies] Could not apply {}, keeping current policies: {}", path, e.getMessage());
+        }
+    }
+}
@@ -1,34 +1,101 @@
 package com.github.pw2712gz.authbackend.config;
 
+import com.github.pw2712gz.authbackend.ratelimit.AddressAggregation;
+import com.github.pw2712gz.authbackend.ratelimit.ClientAddress;
+import com.github.pw2712gz.authbackend.ratelimit.RateLimitPolicy;
+import com.github.pw2712gz.authbackend.ratelimit.RateLimiter;
+import com.github.pw2712gz.authbackend.security.ClientIpResolver;
 import jakarta.servlet.*;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 
 import java.io.IOException;
-import java.time.Instant;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 /**
  * Basic in-memory rate limiting filter for sensitive auth endpoints.
- * Limits each IP to a max of 10 requests per minute.
+ * Each path has its own {@link RateLimitPolicy}, enforced per client network (see {@link AddressAggregation})
+ * either by a node-local token bucket or, with several replicas, by a
+ * {@link com.github.pw2712gz.authbackend.ratelimit.DistributedRateLimiter} shared across the cluster.
+ * Policies can be swapped at runtime through {@link #updatePolicies(List)}.
  */
 @Slf4j
 public class RateLimitingFilter implements Filter {
 
-    private static final int MAX_REQUESTS = 10;
-    private static final long TIME_WINDOW_MS = 60_000;
+    static final String LIMIT_HEADER = "X-RateLimit-Limit";
+    static final String REMAINING_HEADER = "X-RateLimit-Remaining";
 
-    private static final Set<String> RATE_LIMITED_PATHS = Set.of(
-            "/api/auth/login",
-            "/api/auth/register",
-            "/api/auth/forgot-password",
-            "/api/auth/reset-password"
-    );
+    private static final byte[] REJECTED_BODY = """
+            {
+                "status": 429,
+                "error": "Too Many Requests",
+                "message": "Too many requests. Please try again later."
+            }
+            """.getBytes(StandardCharsets.UTF_8);
+
+    private final Function<RateLimitPolicy, RateLimiter> limiterFactory;
+    private final ClientIpResolver clientIpResolver;
+    private final AddressAggregation aggregation;
+    private volatile Map<String, PathLimiter> limiters = Map.of();
+
+    public RateLimitingFilter(Function<RateLimitPolicy, RateLimiter> limiterFactory, List<RateLimitPolicy> policies,
+                              ClientIpResolver clientIpResolver, AddressAggregation aggregation) {
+        this.limiterFactory = limiterFactory;
+        this.clientIpResolver = clientIpResolver;
+        this.aggregation = aggregation;
+        updatePolicies(policies);
+    }
 
-    private final Map<String, RequestInfo> requestCounts = new ConcurrentHashMap<>();
+    /**
+     * Replaces the active policies. Limiters of unchanged policies are kept along with their counts; the others
+     * are rebuilt, so clients start afresh on those paths. All replacements are built before anything is swapped or
+     * closed: if one cannot be built, the current limiters stay in service untouched.
+     */
+    public synchronized void updatePolicies(List<RateLimitPolicy> policies) {
+        Set<String> names = new HashSet<>();
+        for (RateLimitPolicy policy : policies) {
+            if (!names.add(policy.name())) {
+                throw new IllegalArgumentException("Policy paths must end in distinct segments: " + policy.path());
+            }
+        }
+
+        Map<String, PathLimiter> current = limiters;
+        Map<String, PathLimiter> next = new HashMap<>();
+        List<RateLimiter> built = new ArrayList<>();
+        try {
+            for (RateLimitPolicy policy : policies) {
+                PathLimiter existing = current.get(policy.path());
+                if (existing != null && existing.policy().equals(policy)) {
+                    next.put(policy.path(), existing);
+                } else {
+                    RateLimiter limiter = limiterFactory.apply(policy);
+                    built.add(limiter);
+                    next.put(policy.path(), PathLimiter.of(policy, limiter));
+                }
+            }
+        } catch (RuntimeException e) {
+            built.forEach(RateLimiter::close);
+            // The discarded limiters shared meter ids with the ones still in service and removed them on close
+            current.values().forEach(existing -> existing.limiter().registerMeters());
+            throw e;
+        }
+
+        limiters = Map.copyOf(next);
+        current.values().stream()
+                .filter(existing -> next.get(existing.policy().path()) != existing)
+                .forEach(existing -> existing.limiter().close());
+        // Closing the replaced limiters removed the meter ids their replacements share
+        built.forEach(RateLimiter::registerMeters);
+    }
 
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
@@ -37,62 +104,49 @@ public class RateLimitingFilter implements Filter {
         HttpServletRequest httpReq = (HttpServletRequest) request;
         HttpServletResponse httpResp = (HttpServletResponse) response;
 
-        String ip = request.getRemoteAddr();
-        String path = httpReq.getRequestURI();
-        long now = Instant.now().toEpochMilli();
-
-        if (!RATE_LIMITED_PATHS.contains(path)) {
+        PathLimiter pathLimiter = limiters.get(httpReq.getRequestURI());
+        if (pathLimiter == null) {
             chain.doFilter(request, response);
             return;
         }
 
-        RequestInfo info = requestCounts.computeIfAbsent(ip, k -> new RequestInfo(0, now));
-
-        synchronized (info) {
-            if (now - info.timestamp > TIME_WINDOW_MS) {
-                info.count = 1;
-                info.timestamp = now;
-            } else {
-                info.count++;
-            }
-
-            if (info.count > MAX_REQUESTS) {
-                httpResp.setStatus(429);
-                httpResp.setContentType("application/json");
-                httpResp.getWriter().write("""
-                        {
-                            "status": 429,
-                            "error": "Too Many Requests",
-                            "message": "Too many requests. Please try again later."
-                        }
-                        """);
-                return;
-            }
+        ClientAddress client = aggregation.apply(ClientAddress.parse(clientIpResolver.resolve(httpReq)));
+        int remaining = pathLimiter.limiter().acquire(client);
+        if (remaining == RateLimiter.REJECTED) {
+            pathLimiter.reject(httpResp);
+            return;
         }
 
-        cleanupOldEntries(now);
+        httpResp.setHeader(LIMIT_HEADER, pathLimiter.limitHeader());
+        httpResp.setHeader(REMAINING_HEADER, Integer.toString(remaining));
         chain.doFilter(request, response);
     }
 
-    /**
-     * Removes entries older than twice the rate limit window.
-     */
-    private void cleanupOldEntries(long now) {
-        requestCounts.entrySet().removeIf(entry ->
-                now - entry.getValue().timestamp > 2 * TIME_WINDOW_MS
-        );
+    @Override
+    public synchronized void destroy() {
+        limiters.values().forEach(pathLimiter -> pathLimiter.limiter().close());
+        limiters = Map.of();
     }
 
     /**
-     * Tracks request count and window start time per IP.
+     * A path's limiter with its header values formatted once, so rejections allocate nothing.
+     * No X-RateLimit-Reset is sent: limiters expose no per-client reset time, and a policy-wide value would mislead.
      */
-    private static class RequestInfo {
-        int count;
-        long timestamp;
+    private record PathLimiter(RateLimitPolicy policy, RateLimiter limiter, String limitHeader, String retryAfterHeader) {
+
+        static PathLimiter of(RateLimitPolicy policy, RateLimiter limiter) {
+            long retryAfterSeconds = Math.max(1, (limiter.retryAfter().toMillis() + 999) / 1000);
+            return new PathLimiter(policy, limiter, Integer.toString(policy.limit()), Long.toString(retryAfterSeconds));
+        }
 
-        RequestInfo(int count, long timestamp) {
-            this.count = count;
-            this.timestamp = timestamp;
+        void reject(HttpServletResponse response) throws IOException {
+            response.setStatus(429);
+            response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterHeader);
+            response.setHeader(LIMIT_HEADER, limitHeader);
+            response.setHeader(REMAINING_HEADER, "0");
+            response.setContentType("application/json");
+            response.setContentLength(REJECTED_BODY.length);
+            response.getOutputStream().write(REJECTED_BODY);
         }
     }
 }
@@ -1,15 +1,29 @@
 package com.github.pw2712gz.authbackend.config;
 
+import com.github.pw2712gz.authbackend.ratelimit.AddressAggregation;
+import com.github.pw2712gz.authbackend.ratelimit.DistributedRateLimiter;
+import com.github.pw2712gz.authbackend.ratelimit.JdbcRateLimitCounterStore;
+import com.github.pw2712gz.authbackend.ratelimit.RateLimitPolicy;
+import com.github.pw2712gz.authbackend.ratelimit.RateLimiter;
+import com.github.pw2712gz.authbackend.ratelimit.TokenBucketRateLimiter;
+import com.github.pw2712gz.authbackend.security.BoundedPasswordEncoder;
+import com.github.pw2712gz.authbackend.security.CachingJwtDecoder;
+import com.github.pw2712gz.authbackend.security.ClientIpResolver;
+import com.github.pw2712gz.authbackend.security.JwtKeyRing;
+import com.github.pw2712gz.authbackend.security.JwtProvider;
+import com.github.pw2712gz.authbackend.security.JwtSigningAlgorithm;
+import com.github.pw2712gz.authbackend.security.PasswordEncoderCalibrator;
+import com.github.pw2712gz.authbackend.security.PasswordHashingExecutor;
 import com.github.pw2712gz.authbackend.util.PemUtils;
-import com.nimbusds.jose.jwk.JWKSet;
-import com.nimbusds.jose.jwk.RSAKey;
 import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
@@ -17,9 +31,13 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator;
+import org.springframework.security.oauth2.jwt.JwtClaimValidator;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtValidators;
 import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
 import org.springframework.security.oauth2.server.resource.web.BearerTokenAuthenticationEntryPoint;
@@ -29,13 +47,14 @@ import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
-import java.security.interfaces.RSAPrivateKey;
-import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
 /**
  * Main security configuration:
- * - Stateless JWT-based authentication with RS256
+ * - Stateless JWT-based authentication (RS256 or ES256)
  * - CORS support
  * - Public endpoint definitions
  */
@@ -48,9 +67,57 @@ public class SecurityConfig {
     @Value("${jwt.private-key-pem}")
     private String privateKeyPem;
 
+    @Value("${jwt.algorithm:RS256}")
+    private JwtSigningAlgorithm jwtAlgorithm;
+
+    @Value("${jwt.additional-public-keys-pem:}")
+    private String additionalPublicKeysPem;
+
     @Value("#{'${cors.allowed-origins}'.split(',')}")
     private List<String> allowedOrigins;
 
+    @Value("${security.password.bcrypt.strength:12}")
+    private int bcryptStrength;
+
+    @Value("${security.password.bcrypt.calibrate:false}")
+    private boolean calibrateBcrypt;
+
+    @Value("${security.password.bcrypt.target-ms:250}")
+    private long bcryptTargetMillis;
+
+    @Value("${security.password.bcrypt.min-strength:10}")
+    private int bcryptMinStrength;
+
+    @Value("${jwt.decoder.cache.enabled:true}")
+    private boolean jwtCacheEnabled;
+
+    @Value("${jwt.decoder.cache.maximum-size:10000}")
+    private long jwtCacheMaximumSize;
+
+    @Value("${jwt.decoder.cache.max-ttl.seconds:900}")
+    private long jwtCacheMaxTtlSeconds;
+
+    @Value("${auth.ratelimit.max-clients:65536}")
+    private int rateLimitMaxClients;
+
+    @Value("${auth.ratelimit.ipv4-prefix-length:32}")
+    private int rateLimitIpv4PrefixLength;
+
+    @Value("${auth.ratelimit.ipv6-prefix-length:64}")
+    private int rateLimitIpv6PrefixLength;
+
+    @Value("${auth.client-ip.header:X-Forwarded-For}")
+    private String clientIpHeader;
+
+    @Value("#{'${auth.client-ip.trusted-proxies:}'.split(',')}")
+    private List<String> trustedProxies;
+
+    @Value("${auth.ratelimit.cluster.enabled:false}")
+    private boolean clusterRateLimit;
+
+    @Value("${auth.ratelimit.cluster.sync.ms:1000}")
+    private long clusterRateLimitSyncMillis;
+
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         http
@@ -64,6 +131,7 @@ public class SecurityConfig {
                                 "/api/auth/forgot-password",
                                 "/api/auth/reset-password",
                                 "/api/auth/health",
+                                "/.well-known/jwks.json",
                                 "/v3/api-docs/**",
                                 "/swagger-ui/**"
                         ).permitAll()
@@ -81,14 +149,37 @@ public class SecurityConfig {
     }
 
     @Bean
-    public FilterRegistrationBean<RateLimitingFilter> rateLimitingFilter() {
-        var bean = new FilterRegistrationBean<>(new RateLimitingFilter());
+    public FilterRegistrationBean<RateLimitingFilter> rateLimitingFilter(MeterRegistry meterRegistry, JdbcTemplate jdbcTemplate,
+                                                                         ClientIpResolver clientIpResolver) {
+        Function<RateLimitPolicy, RateLimiter> limiterFactory;
+        if (clusterRateLimit) {
+            // Limits hold across replicas; counters are shared through the database
+            var store = new JdbcRateLimitCounterStore(jdbcTemplate);
+            limiterFactory = policy -> new DistributedRateLimiter(store, policy.name(), policy.limit(), policy.window(),
+                    rateLimitMaxClients, Duration.ofMillis(clusterRateLimitSyncMillis), meterRegistry);
+        } else {
+            limiterFactory = policy -> new TokenBucketRateLimiter(policy.name(), policy.limit(), policy.window(),
+                    rateLimitMaxClients, meterRegistry);
+        }
+        // Policies from auth.ratelimit.policies.file are applied by RateLimitPolicyReloader
+        var filter = new RateLimitingFilter(limiterFactory, RateLimitPolicy.defaults(), clientIpResolver,
+                new AddressAggregation(rateLimitIpv4PrefixLength, rateLimitIpv6PrefixLength));
+
+        var bean = new FilterRegistrationBean<>(filter);
         bean.addUrlPatterns("/api/auth/*");
         bean.setName("RateLimitingFilter");
         bean.setOrder(1);
         return bean;
     }
 
+    /**
+     * Client IPs behind the load balancer; with no trusted proxies configured the peer address is used as is.
+     */
+    @Bean
+    public ClientIpResolver clientIpResolver() {
+        return new ClientIpResolver(clientIpHeader, trustedProxies);
+    }
+
     @Bean
     public CorsConfigurationSource corsConfigurationSource() {
         var config = new CorsConfiguration();
@@ -102,14 +193,17 @@ public class SecurityConfig {
         return source;
     }
 
+    /**
+     * Current signing key plus verification-only keys for rotation; see {@link JwtKeyRing}.
+     */
     @Bean
-    public RSAPublicKey publicKey() throws Exception {
-        return (RSAPublicKey) PemUtils.parsePublicKey(publicKeyPem);
-    }
-
-    @Bean
-    public RSAPrivateKey privateKey() throws Exception {
-        return (RSAPrivateKey) PemUtils.parsePrivateKey(privateKeyPem);
+    public JwtKeyRing jwtKeyRing() throws Exception {
+        return new JwtKeyRing(
+                jwtAlgorithm,
+                PemUtils.parsePublicKey(publicKeyPem, jwtAlgorithm.keyAlgorithm()),
+                PemUtils.parsePrivateKey(privateKeyPem, jwtAlgorithm.keyAlgorithm()),
+                PemUtils.parsePublicKeys(additionalPublicKeysPem)
+        );
     }
 
     @Bean
@@ -117,20 +211,46 @@ public class SecurityConfig {
         return config.getAuthenticationManager();
     }
 
+    /**
+     * Hashes are stored as {bcrypt}... so the algorithm or cost can change without a mass reset;
+     * legacy un-prefixed hashes still verify and are re-encoded on the next successful login.
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder(BCryptPasswordEncoder.BCryptVersion.$2B, 12);
+    public PasswordEncoder passwordEncoder(PasswordHashingExecutor hashingExecutor) {
+        int strength = calibrateBcrypt
+                ? PasswordEncoderCalibrator.calibrateBCryptStrength(bcryptTargetMillis, bcryptMinStrength)
+                : bcryptStrength;
+
+        var bcrypt = new BCryptPasswordEncoder(BCryptPasswordEncoder.BCryptVersion.$2B, strength);
+        var delegating = new DelegatingPasswordEncoder("bcrypt", Map.of("bcrypt", bcrypt));
+        delegating.setDefaultPasswordEncoderForMatches(bcrypt);
+        return new BoundedPasswordEncoder(delegating, hashingExecutor);
     }
 
+    /**
+     * Access-token decoder for the resource server. Verified tokens are cached until their exp
+     * so each access token is verified once, not per request.
+     */
     @Bean
-    public JwtDecoder jwtDecoder(RSAPublicKey publicKey) {
-        return NimbusJwtDecoder.withPublicKey(publicKey).build();
+    public JwtDecoder jwtDecoder(JwtKeyRing keyRing, MeterRegistry meterRegistry) {
+        NimbusJwtDecoder decoder = keyRing.newDecoder();
+        decoder.setJwtValidator(new DelegatingOAuth2TokenValidator<>(
+                JwtValidators.createDefault(),
+                // Refresh tokens are HMAC-signed with a key outside the ring; this also refuses any that slip through
+                new JwtClaimValidator<String>(JwtProvider.CLAIM_TOKEN_USE, use -> !JwtProvider.TOKEN_USE_REFRESH.equals(use))
+        ));
+
+        if (!jwtCacheEnabled) {
+            return decoder;
+        }
+        return new CachingJwtDecoder(decoder, meterRegistry, jwtCacheMaximumSize, Duration.ofSeconds(jwtCacheMaxTtlSeconds));
     }
 
+    /**
+     * Tokens must be issued with the matching JWS header; see {@link JwtProvider}.
+     */
     @Bean
-    public JwtEncoder jwtEncoder(RSAPublicKey publicKey, RSAPrivateKey privateKey) {
-        var jwk = new RSAKey.Builder(publicKey).privateKey(privateKey).build();
-        var source = new ImmutableJWKSet<>(new JWKSet(jwk));
-        return new NimbusJwtEncoder(source);
+    public JwtEncoder jwtEncoder(JwtKeyRing keyRing) {
+        return new NimbusJwtEncoder(new ImmutableJWKSet<>(keyRing.signingKeys()));
     }
 }
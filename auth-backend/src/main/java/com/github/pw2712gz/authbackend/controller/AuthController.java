@@ -3,16 +3,20 @@ package com.github.pw2712gz.authbackend.controller;
 import com.github.pw2712gz.authbackend.dto.request.*;
 import com.github.pw2712gz.authbackend.dto.response.AuthenticationResponse;
 import com.github.pw2712gz.authbackend.dto.response.MessageResponse;
+import com.github.pw2712gz.authbackend.dto.response.SessionResponse;
 import com.github.pw2712gz.authbackend.dto.response.UserResponse;
-import com.github.pw2712gz.authbackend.entity.User;
+import com.github.pw2712gz.authbackend.security.ClientIpResolver;
 import com.github.pw2712gz.authbackend.service.AuthService;
 import com.github.pw2712gz.authbackend.service.PasswordResetService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 /**
  * REST controller for authentication and account-related endpoints.
  */
@@ -24,6 +28,7 @@ public class AuthController {
 
     private final AuthService authService;
     private final PasswordResetService passwordResetService;
+    private final ClientIpResolver clientIpResolver;
 
     /**
      * Registers a new user account.
@@ -49,9 +54,10 @@ public class AuthController {
      * Refreshes an expired JWT using a valid refresh token.
      */
     @PostMapping("/refresh")
-    public ResponseEntity<AuthenticationResponse> refresh(@RequestBody @Valid RefreshTokenRequest request) {
+    public ResponseEntity<AuthenticationResponse> refresh(@RequestBody @Valid RefreshTokenRequest request,
+                                                          HttpServletRequest httpRequest) {
         log.debug("[Auth] Refreshing token");
-        AuthenticationResponse response = authService.refresh(request);
+        AuthenticationResponse response = authService.refresh(request, clientIpResolver.resolve(httpRequest));
         return ResponseEntity.ok(response);
     }
 
@@ -69,13 +75,15 @@ public class AuthController {
      */
     @GetMapping("/me")
     public ResponseEntity<UserResponse> getCurrentUser() {
-        User user = authService.getCurrentUser();
-        return ResponseEntity.ok(new UserResponse(
-                user.getId(),
-                user.getFirstName(),
-                user.getLastName(),
-                user.getEmail()
-        ));
+        return ResponseEntity.ok(authService.getCurrentUserProfile());
+    }
+
+    /**
+     * Lists the current user's active sessions.
+     */
+    @GetMapping("/sessions")
+    public ResponseEntity<List<SessionResponse>> getSessions() {
+        return ResponseEntity.ok(authService.getCurrentUserSessions());
     }
 
     /**
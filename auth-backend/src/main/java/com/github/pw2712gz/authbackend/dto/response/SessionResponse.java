@@ -0,0 +1,10 @@
+package com.github.pw2712gz.authbackend.dto.response;
+
+import java.time.Instant;
+
+public record SessionResponse(
+        Long id,
+        Instant createdAt,
+        Instant expiresAt
+) {
+}
@@ -0,0 +1,70 @@
+package com.github.pw2712gz.authbackend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * An email waiting to be sent, written in the same transaction as the change it reports.
+ * The idempotency key goes to the mail provider with every attempt, so a retry after an
+ * unacknowledged send is not delivered twice.
+ */
+@Entity
+@Table(
+        name = "mail_outbox",
+        indexes = @Index(name = "idx_mail_outbox_status_next_attempt", columnList = "status, next_attempt_at")
+)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MailOutboxMessage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "idempotency_key", nullable = false, unique = true, updatable = false, length = 36)
+    private String idempotencyKey;
+
+    @Column(nullable = false, updatable = false, length = 320)
+    private String recipient;
+
+    @Column(nullable = false, updatable = false)
+    private String subject;
+
+    @Column(nullable = false, updatable = false, length = 100)
+    private String template;
+
+    /**
+     * Template variables as a JSON object; rendered when the message is sent.
+     */
+    @Column(nullable = false, updatable = false, length = 2000)
+    private String model;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private Status status;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private Instant nextAttemptAt;
+
+    @Column(nullable = false, updatable = false)
+    private Instant createdAt;
+
+    private Instant sentAt;
+
+    @Column(length = 500)
+    private String lastError;
+
+    public enum Status {
+        PENDING,
+        SENT,
+        FAILED
+    }
+}
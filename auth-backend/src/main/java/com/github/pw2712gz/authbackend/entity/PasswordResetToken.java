@@ -30,6 +30,10 @@ public class PasswordResetToken {
     @Column(nullable = false)
     private boolean used;
 
+    /**
+     * Not a cascading foreign key: partitioned tables (sql/003) cannot have one. Nothing in the app deletes users;
+     * anything that does must delete the user's refresh and reset tokens first.
+     */
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
@@ -6,7 +6,14 @@ import lombok.*;
 import java.time.Instant;
 
 @Entity
-@Table(name = "refresh_tokens")
+@Table(
+        name = "refresh_tokens",
+        uniqueConstraints = @UniqueConstraint(name = "uk_refresh_tokens_token_hash", columnNames = "token_hash"),
+        indexes = {
+                @Index(name = "idx_refresh_tokens_expires_at", columnList = "expires_at"),
+                @Index(name = "idx_refresh_tokens_user_expires", columnList = "user_id, expires_at")
+        }
+)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -18,15 +25,44 @@ public class RefreshToken {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(nullable = false, unique = true)
-    private String token;
+    /**
+     * SHA-256 of the token handed to the client; the raw token is never stored.
+     */
+    @Column(name = "token_hash", nullable = false, length = 32, columnDefinition = "BINARY(32)")
+    private byte[] tokenHash;
 
     @Column(nullable = false, updatable = false)
     private Instant createdAt;
 
-    @Column(nullable = false)
+    @Column(name = "expires_at", nullable = false)
     private Instant expiresAt;
 
+    /**
+     * Shared by every token rotated from the same login; replaying a consumed token revokes the family.
+     */
+    @Column(name = "family_id", length = 36)
+    private String familyId;
+
+    /**
+     * Set when the token is rotated or revoked; a consumed token is never accepted again.
+     */
+    @Column(name = "consumed_at")
+    private Instant consumedAt;
+
+    /**
+     * Last successful refresh and the client address it came from. Rotated tokens carry it from their INSERT;
+     * tokens refreshed without rotation have it written behind by RefreshTokenUsageRecorder.
+     */
+    @Column(name = "last_used_at")
+    private Instant lastUsedAt;
+
+    @Column(name = "last_used_ip", length = 45)
+    private String lastUsedIp;
+
+    /**
+     * Not a cascading foreign key: partitioned tables (sql/003) cannot have one. Nothing in the app deletes users;
+     * anything that does must delete the user's refresh and reset tokens first.
+     */
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
@@ -0,0 +1,36 @@
+package com.github.pw2712gz.authbackend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * A revoked family of signed refresh tokens. Rows are append-only and can be deleted once
+ * every token of the family has expired.
+ */
+@Entity
+@Table(
+        name = "refresh_token_revocations",
+        indexes = @Index(name = "idx_refresh_token_revocations_expires_at", columnList = "expires_at")
+)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RefreshTokenRevocation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "family_id", nullable = false)
+    private long familyId;
+
+    @Column(nullable = false, updatable = false)
+    private Instant revokedAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+}
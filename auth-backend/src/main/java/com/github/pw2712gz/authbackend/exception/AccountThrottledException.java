@@ -0,0 +1,18 @@
+package com.github.pw2712gz.authbackend.exception;
+
+import lombok.Getter;
+
+/**
+ * Thrown when an account has seen too many failed logins and further attempts are refused
+ * before any password verification.
+ */
+@Getter
+public class AccountThrottledException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public AccountThrottledException(long retryAfterSeconds) {
+        super("Too many attempts for this account. Please try again later.");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
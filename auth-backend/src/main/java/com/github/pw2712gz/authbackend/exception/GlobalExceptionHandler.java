@@ -2,6 +2,7 @@ package com.github.pw2712gz.authbackend.exception;
 
 import com.github.pw2712gz.authbackend.dto.response.ErrorResponse;
 import jakarta.validation.ConstraintViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -56,6 +57,26 @@ public class GlobalExceptionHandler {
         return buildError(HttpStatus.CONFLICT, ex.getMessage());
     }
 
+    /**
+     * Handles load shedding by the password hashing executor with 503 + Retry-After.
+     */
+    @ExceptionHandler(HashingCapacityExceededException.class)
+    public ResponseEntity<ErrorResponse> handleHashingCapacityExceeded(HashingCapacityExceededException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(new ErrorResponse(ex.getMessage(), HttpStatus.SERVICE_UNAVAILABLE.value(), Instant.now().toEpochMilli()));
+    }
+
+    /**
+     * Handles per-account login throttling with 429 + Retry-After.
+     */
+    @ExceptionHandler(AccountThrottledException.class)
+    public ResponseEntity<ErrorResponse> handleAccountThrottled(AccountThrottledException ex) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(new ErrorResponse(ex.getMessage(), HttpStatus.TOO_MANY_REQUESTS.value(), Instant.now().toEpochMilli()));
+    }
+
     /**
      * Catches all uncaught runtime exceptions and maps them to 400 Bad Request.
      */
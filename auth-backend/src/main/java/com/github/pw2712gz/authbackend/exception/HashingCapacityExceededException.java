@@ -0,0 +1,17 @@
+package com.github.pw2712gz.authbackend.exception;
+
+import lombok.Getter;
+
+/**
+ * Thrown when the password hashing queue is full and the request is shed.
+ */
+@Getter
+public class HashingCapacityExceededException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public HashingCapacityExceededException(long retryAfterSeconds) {
+        super("Server is busy. Please try again shortly.");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,32 @@
+package com.github.pw2712gz.authbackend.exception;
+
+import lombok.Getter;
+
+/**
+ * Thrown when the mail provider rejects a message or cannot be reached.
+ */
+@Getter
+public class MailDeliveryException extends RuntimeException {
+
+    /**
+     * HTTP status returned by the provider, or 0 when there was no response.
+     */
+    private final int statusCode;
+
+    public MailDeliveryException(String message, int statusCode) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    public MailDeliveryException(String message, Throwable cause) {
+        super(message, cause);
+        this.statusCode = 0;
+    }
+
+    /**
+     * Client errors other than timeouts, conflicts and throttling fail the same way on every attempt.
+     */
+    public boolean isRetryable() {
+        return statusCode < 400 || statusCode >= 500 || statusCode == 408 || statusCode == 409 || statusCode == 429;
+    }
+}
@@ -0,0 +1,27 @@
+package com.github.pw2712gz.authbackend.ratelimit;
+
+/**
+ * Granularity at which addresses share one limit. With the default IPv6 /64, a host that owns a whole /64 and
+ * rotates through it is still one client; IPv4 /24 or IPv6 /48 trade precision for coverage of larger allocations.
+ */
+public record AddressAggregation(int ipv4PrefixLength, int ipv6PrefixLength) {
+
+    public static final AddressAggregation DEFAULT = new AddressAggregation(32, 64);
+
+    public AddressAggregation {
+        if (ipv4PrefixLength < 1 || ipv4PrefixLength > 32) {
+            throw new IllegalArgumentException("IPv4 prefix length must be between 1 and 32: " + ipv4PrefixLength);
+        }
+        if (ipv6PrefixLength < 1 || ipv6PrefixLength > 128) {
+            throw new IllegalArgumentException("IPv6 prefix length must be between 1 and 128: " + ipv6PrefixLength);
+        }
+    }
+
+    /**
+     * The network {@code address} belongs to at this granularity.
+     */
+    public ClientAddress apply(ClientAddress address) {
+        // IPv4 sits in the last 32 bits of its IPv4-mapped form
+        return address.isIpv4() ? address.prefix(96 + ipv4PrefixLength) : address.prefix(ipv6PrefixLength);
+    }
+}
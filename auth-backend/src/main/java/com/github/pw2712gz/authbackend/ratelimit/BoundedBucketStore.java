@@ -0,0 +1,174 @@
+package com.github.pw2712gz.authbackend.ratelimit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-capacity table of token buckets keyed by {@link ClientAddress}, preallocated as three {@code long} arrays
+ * plus one {@code long} of CLOCK state per set (25 bytes per slot) so memory does not grow with the number of clients.
+ * <p>
+ * The table is 8-way set associative: a client hashes to one set and can only live in its 8 slots. Lookups and
+ * token grants are lock-free. Every lookup of an existing client, granted or rejected, sets the slot's reference
+ * bit. Inserting a new client locks its set's stripe and takes, in order of preference, an empty slot, a bucket
+ * that has refilled completely (indistinguishable from a new one), or the first slot without a reference bit in
+ * CLOCK order, clearing bits as the hand passes. A client that keeps knocking while throttled therefore outlives
+ * a flood of one-off addresses instead of being evicted into a fresh bucket.
+ */
+public final class BoundedBucketStore {
+
+    static final int WAYS = 8;
+    private static final int LOCK_STRIPES = 64;
+
+    private final TokenBucket bucket;
+    private final AtomicLongArray high;
+    private final AtomicLongArray low;
+    // Packed TokenBucket state; 0 marks an empty slot since a live bucket always has a non-zero state
+    private final AtomicLongArray states;
+    // Per set: reference bits of its 8 slots in the low byte, the CLOCK hand in the next 3 bits
+    private final AtomicLongArray clock;
+    private final int setMask;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final AtomicInteger occupied = new AtomicInteger();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * A store for at least {@code capacity} clients; the slot count is rounded up to a power of two.
+     */
+    public BoundedBucketStore(TokenBucket bucket, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        int sets = Integer.highestOneBit(Math.max(1, (capacity + WAYS - 1) / WAYS));
+        if (sets * WAYS < capacity) {
+            sets <<= 1;
+        }
+
+        this.bucket = bucket;
+        this.setMask = sets - 1;
+        this.high = new AtomicLongArray(sets * WAYS);
+        this.low = new AtomicLongArray(sets * WAYS);
+        this.states = new AtomicLongArray(sets * WAYS);
+        this.clock = new AtomicLongArray(sets);
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Takes one token from the client's bucket, creating the bucket if needed.
+     * A grant racing the eviction of the same slot may be charged to the new occupant, which costs that
+     * client at most one token.
+     */
+    public boolean tryAcquire(ClientAddress client, long nowMillis) {
+        return acquire(client, nowMillis) >= 0;
+    }
+
+    /**
+     * Like {@link #tryAcquire}, returning the whole tokens left after the grant, or -1 if rejected.
+     */
+    public int acquire(ClientAddress client, long nowMillis) {
+        int set = set(client);
+        int slot = find(set, client);
+        if (slot < 0) {
+            slot = insert(set, client, nowMillis);
+        } else {
+            reference(set, slot);
+        }
+        long state = bucket.tryAcquire(states, slot, nowMillis);
+        return state == TokenBucket.REJECTED ? -1 : bucket.available(state, nowMillis);
+    }
+
+    public int capacity() {
+        return states.length();
+    }
+
+    public int occupied() {
+        return occupied.get();
+    }
+
+    /**
+     * Buckets that were still draining when they were replaced by another client.
+     */
+    public long evictions() {
+        return evictions.get();
+    }
+
+    private int find(int set, ClientAddress client) {
+        int base = set * WAYS;
+        for (int slot = base; slot < base + WAYS; slot++) {
+            if (low.get(slot) == client.low() && high.get(slot) == client.high() && states.get(slot) != 0) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private int insert(int set, ClientAddress client, long nowMillis) {
+        synchronized (locks[set & (LOCK_STRIPES - 1)]) {
+            int existing = find(set, client);
+            if (existing >= 0) {
+                return existing;
+            }
+
+            int victim = victim(set, nowMillis);
+            long previous = states.get(victim);
+            if (previous == 0) {
+                occupied.incrementAndGet();
+            } else if (!bucket.isFull(previous, nowMillis)) {
+                evictions.incrementAndGet();
+            }
+
+            // State first: a reader still matching the old key can only spend from the fresh bucket
+            states.set(victim, bucket.initialState(nowMillis));
+            high.set(victim, client.high());
+            low.set(victim, client.low());
+            return victim;
+        }
+    }
+
+    private int victim(int set, long nowMillis) {
+        int base = set * WAYS;
+        for (int slot = base; slot < base + WAYS; slot++) {
+            long state = states.get(slot);
+            if (state == 0 || bucket.isFull(state, nowMillis)) {
+                clearReference(set, slot - base);
+                return slot;
+            }
+        }
+
+        // Runs under the set's lock, so only reference bits change concurrently; two passes always find a slot
+        while (true) {
+            long current = clock.get(set);
+            int hand = (int) (current >>> WAYS) & (WAYS - 1);
+            long bit = 1L << hand;
+            long next = (current & ~bit & 0xFF) | (long) ((hand + 1) & (WAYS - 1)) << WAYS;
+            if (clock.compareAndSet(set, current, next) && (current & bit) == 0) {
+                return base + hand;
+            }
+        }
+    }
+
+    private void reference(int set, int slot) {
+        long bit = 1L << (slot & (WAYS - 1));
+        long current = clock.get(set);
+        // Read first: a hot client finds its bit already set and never writes the shared word
+        while ((current & bit) == 0 && !clock.compareAndSet(set, current, current | bit)) {
+            current = clock.get(set);
+        }
+    }
+
+    private void clearReference(int set, int way) {
+        long bit = 1L << way;
+        long current = clock.get(set);
+        while ((current & bit) != 0 && !clock.compareAndSet(set, current, current & ~bit)) {
+            current = clock.get(set);
+        }
+    }
+
+    private int set(ClientAddress client) {
+        long h = client.high() * 0x9E3779B97F4A7C15L ^ client.low();
+        h *= 0xC2B2AE3D27D4EB4FL;
+        return (int) (h ^ (h >>> 32)) & setMask;
+    }
+}
@@ -0,0 +1,174 @@
+package com.github.pw2712gz.authbackend.ratelimit;
+
+/**
+ * Client IP packed into two longs, so limiter keys need no per-client strings.
+ * IPv4 is parsed to an int and stored in its IPv4-mapped IPv6 form ({@code ::ffff:a.b.c.d}),
+ * which makes {@code 10.0.0.1} and {@code ::ffff:10.0.0.1} the same client.
+ */
+public record ClientAddress(long high, long low) {
+
+    private static final long IPV4_MAPPED_PREFIX = 0xFFFFL << 32;
+    // ff00::/8 is multicast and never a request source, so this high word cannot collide with a real client
+    private static final long UNPARSED_TAG = -1L;
+
+    /**
+     * Parses an address as returned by {@code ServletRequest#getRemoteAddr()}. Never performs a DNS lookup;
+     * anything that is not an IP literal is keyed by a hash of the string.
+     */
+    public static ClientAddress parse(String address) {
+        long ipv4 = parseIpv4(address);
+        if (ipv4 >= 0) {
+            return ofIpv4((int) ipv4);
+        }
+        if (address.indexOf(':') >= 0) {
+            ClientAddress ipv6 = parseIpv6(address);
+            if (ipv6 != null) {
+                return ipv6;
+            }
+        }
+        return new ClientAddress(UNPARSED_TAG, address.hashCode());
+    }
+
+    public static ClientAddress ofIpv4(int address) {
+        return new ClientAddress(0, IPV4_MAPPED_PREFIX | (address & 0xFFFFFFFFL));
+    }
+
+    /**
+     * False for addresses that were not IP literals and are only keyed by a hash.
+     */
+    public boolean isIpLiteral() {
+        return high != UNPARSED_TAG;
+    }
+
+    public boolean isIpv4() {
+        return high == 0 && (low & 0xFFFFFFFF00000000L) == IPV4_MAPPED_PREFIX;
+    }
+
+    /**
+     * Keeps the first {@code prefixLength} of the 128 address bits and clears the rest, so every address in the
+     * same network maps to one value. Unparsed addresses are returned unchanged.
+     */
+    public ClientAddress prefix(int prefixLength) {
+        if (prefixLength < 0 || prefixLength > 128) {
+            throw new IllegalArgumentException("Prefix length must be between 0 and 128: " + prefixLength);
+        }
+        if (high == UNPARSED_TAG || prefixLength == 128) {
+            return this;
+        }
+        if (prefixLength <= 64) {
+            return new ClientAddress(prefixLength == 0 ? 0 : high & (-1L << (64 - prefixLength)), 0);
+        }
+        return new ClientAddress(high, low & (-1L << (128 - prefixLength)));
+    }
+
+    /**
+     * Dotted-quad parser that allocates nothing. Returns the unsigned address, or -1 when not IPv4.
+     */
+    private static long parseIpv4(String s) {
+        int length = s.length();
+        if (length < 7 || length > 15) {
+            return -1;
+        }
+        long result = 0;
+        int octet = 0;
+        int digits = 0;
+        int dots = 0;
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                octet = octet * 10 + (c - '0');
+                if (++digits > 3 || octet > 255) {
+                    return -1;
+                }
+            } else if (c == '.' && digits > 0 && dots < 3) {
+                result = (result << 8) | octet;
+                octet = 0;
+                digits = 0;
+                dots++;
+            } else {
+                return -1;
+            }
+        }
+        if (dots != 3 || digits == 0) {
+            return -1;
+        }
+        return (result << 8) | octet;
+    }
+
+    /**
+     * RFC 4291 text form: up to eight hex groups, at most one {@code ::}, optionally ending in a dotted quad.
+     * A zone id ({@code %eth0}) is ignored. Returns null for anything else, so nothing ever reaches a resolver.
+     */
+    private static ClientAddress parseIpv6(String s) {
+        int end = s.indexOf('%');
+        if (end < 0) {
+            end = s.length();
+        }
+        if (end < 2 || end > 45) {
+            return null;
+        }
+
+        int[] groups = new int[8];
+        int count = 0;
+        int gap = -1;
+        int i = 0;
+        if (s.startsWith("::")) {
+            gap = 0;
+            i = 2;
+        }
+        while (i < end) {
+            int value = 0;
+            int digits = 0;
+            int j = i;
+            for (; j < end && Character.digit(s.charAt(j), 16) >= 0; j++) {
+                value = (value << 4) | Character.digit(s.charAt(j), 16);
+                if (++digits > 4) {
+                    return null;
+                }
+            }
+            if (j < end && s.charAt(j) == '.') {
+                long ipv4 = count <= 6 ? parseIpv4(s.substring(i, end)) : -1;
+                if (ipv4 < 0) {
+                    return null;
+                }
+                groups[count++] = (int) (ipv4 >>> 16);
+                groups[count++] = (int) (ipv4 & 0xFFFF);
+                break;
+            }
+            if (digits == 0 || count == 8) {
+                return null;
+            }
+            groups[count++] = value;
+            if (j == end) {
+                break;
+            }
+            if (s.charAt(j) != ':' || j + 1 == end) {
+                return null;
+            }
+            i = j + 1;
+            if (s.charAt(i) == ':') {
+                if (gap >= 0) {
+                    return null;
+                }
+                gap = count;
+                i++;
+            }
+        }
+        if (gap < 0 ? count != 8 : count > 7) {
+            return null;
+        }
+
+        long high = 0;
+        long low = 0;
+        int zeros = 8 - count;
+        for (int g = 0, k = 0; g < 8; g++) {
+            long group = gap >= 0 && g >= gap && g < gap + zeros ? 0 : groups[k++];
+            if (g < 4) {
+                high = (high << 16) | group;
+            } else {
+                low = (low << 16) | group;
+            }
+        }
+        return new ClientAddress(high, low);
+    }
+}
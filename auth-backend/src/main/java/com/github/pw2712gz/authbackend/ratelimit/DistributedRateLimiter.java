@@ -0,0 +1,251 @@
+package com.github.pw2712gz.authbackend.ratelimit;
+
+import com.github.pw2712gz.authbackend.ratelimit.RateLimitCounterStore.WindowCounts;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Cluster-wide sliding-window limiter. Every node counts its own grants locally and a background sync pushes
+ * them to a shared {@link RateLimitCounterStore} while pulling back the cluster-wide counts, so the store sees
+ * one round trip per sync interval instead of one per request.
+ * <p>
+ * A request is allowed while {@code previous * (1 - elapsed) + current + unsynced < limit}, where previous and
+ * current are the cluster counts of the last two fixed windows as of the last sync. Grants other nodes made
+ * since then are not yet visible, so the cluster can overshoot by at most what its nodes allow within one
+ * sync interval.
+ * <p>
+ * Once {@code maxClients} clients are tracked, further clients share one overflow counter with the same limit,
+ * so flooding the table with fresh addresses throttles the newcomers together instead of disabling limiting.
+ */
+@Slf4j
+public class DistributedRateLimiter implements RateLimiter {
+
+    private static final String OVERFLOW_KEY = "/overflow";
+    private static final long CLOSE_TIMEOUT_SECONDS = 10;
+
+    private final RateLimitCounterStore store;
+    private final String name;
+    private final int limit;
+    private final long windowMillis;
+    private final int maxClients;
+    private final LongSupplier clock;
+    private final Map<String, ClientState> clients = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService syncExecutor;
+    private final MeterRegistry meterRegistry;
+    private volatile Timer syncTimer;
+    private volatile Counter syncFailures;
+    private volatile Counter overflowed;
+    private volatile List<Meter> meters = List.of();
+    private long purgedBefore;
+
+    /**
+     * Allows {@code limit} requests per client per {@code window} across all nodes sharing {@code store},
+     * syncing every {@code syncInterval} and tracking up to {@code maxClients} active clients on this node.
+     * The {@code name} namespaces this limiter's keys in the store and tags its meters.
+     */
+    public DistributedRateLimiter(RateLimitCounterStore store, String name, int limit, Duration window, int maxClients,
+                                  Duration syncInterval, MeterRegistry meterRegistry) {
+        this(store, name, limit, window, maxClients, meterRegistry, System::currentTimeMillis);
+        syncExecutor.scheduleWithFixedDelay(this::sync, syncInterval.toMillis(), syncInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    DistributedRateLimiter(RateLimitCounterStore store, String name, int limit, Duration window, int maxClients,
+                           MeterRegistry meterRegistry, LongSupplier clock) {
+        this.store = store;
+        this.name = name;
+        this.limit = limit;
+        this.windowMillis = window.toMillis();
+        this.maxClients = maxClients;
+        this.clock = clock;
+        this.syncExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "rate-limit-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.meterRegistry = meterRegistry;
+        registerMeters();
+    }
+
+    @Override
+    public void registerMeters() {
+        this.syncTimer = Timer.builder("auth.ratelimit.cluster.sync.duration")
+                .description("Round trip pushing local counts to the shared store and pulling cluster counts")
+                .tag("limiter", name)
+                .register(meterRegistry);
+        this.syncFailures = Counter.builder("auth.ratelimit.cluster.sync.failures")
+                .description("Syncs that failed; their counts are retried on the next sync")
+                .tag("limiter", name)
+                .register(meterRegistry);
+        this.overflowed = Counter.builder("auth.ratelimit.cluster.overflow")
+                .description("Requests counted against the shared overflow counter because the local client table was full")
+                .tag("limiter", name)
+                .register(meterRegistry);
+        this.meters = List.of(syncTimer, syncFailures, overflowed,
+                Gauge.builder("auth.ratelimit.cluster.clients", clients, Map::size)
+                        .description("Clients with counts in the current or previous window on this node")
+                        .tag("limiter", name)
+                        .register(meterRegistry));
+    }
+
+    @Override
+    public int acquire(ClientAddress client) {
+        String key = name + "/" + Long.toHexString(client.high()) + "/" + Long.toHexString(client.low());
+
+        ClientState state = clients.get(key);
+        if (state == null) {
+            if (clients.size() >= maxClients) {
+                // Failing closed: untracked clients share one counter, synced across the cluster like any other
+                overflowed.increment();
+                key = name + OVERFLOW_KEY;
+            }
+            state = clients.computeIfAbsent(key, k -> new ClientState());
+        }
+
+        long now = clock.getAsLong();
+        double synced = state.syncedEstimate(now, windowMillis) + state.inFlight.get();
+        while (true) {
+            long pending = state.pending.get();
+            double used = synced + pending + 1;
+            if (used > limit) {
+                return REJECTED;
+            }
+            if (state.pending.compareAndSet(pending, pending + 1)) {
+                return (int) (limit - Math.ceil(used));
+            }
+        }
+    }
+
+    /**
+     * A client that used its whole limit at the start of a window becomes eligible again once the window has
+     * ended and one request's share of the next one has passed.
+     */
+    @Override
+    public Duration retryAfter() {
+        return Duration.ofMillis(windowMillis + windowMillis / limit);
+    }
+
+    /**
+     * Pushes unsynced grants and refreshes cluster counts. On failure the grants are kept for the next attempt
+     * and decisions continue from the last known counts.
+     */
+    synchronized void sync() {
+        long now = clock.getAsLong();
+        long window = now / windowMillis;
+
+        Map<String, Long> deltas = new HashMap<>();
+        clients.forEach((key, state) -> {
+            long pending = state.pending.get();
+            if (pending > 0) {
+                // Counted twice until the sync lands rather than not at all
+                state.inFlight.addAndGet(pending);
+                state.pending.addAndGet(-pending);
+                deltas.put(key, pending);
+            }
+        });
+
+        Map<String, WindowCounts> counts;
+        try {
+            counts = syncTimer.recordCallable(() -> store.addAndGet(window, deltas, clients.keySet()));
+        } catch (Exception e) {
+            syncFailures.increment();
+            deltas.forEach((key, delta) -> {
+                ClientState state = clients.get(key);
+                if (state != null) {
+                    state.pending.addAndGet(delta);
+                    state.inFlight.addAndGet(-delta);
+                }
+            });
+            log.warn("[RateLimiter] Sync of {} client count(s) failed: {}", deltas.size(), e.getMessage());
+            return;
+        }
+
+        clients.forEach((key, state) -> {
+            WindowCounts cluster = counts == null ? null : counts.get(key);
+            state.synced = cluster == null ? Synced.EMPTY : new Synced(window, cluster.previous(), cluster.current());
+            Long delta = deltas.get(key);
+            if (delta != null) {
+                state.inFlight.addAndGet(-delta);
+            }
+            // A grant racing this removal is never synced, which at worst lets that client one request through
+            if (cluster == null && state.pending.get() == 0 && state.inFlight.get() == 0) {
+                clients.remove(key, state);
+            }
+        });
+
+        if (window - 1 > purgedBefore) {
+            try {
+                store.purgeBefore(name + "/", window - 1);
+                purgedBefore = window - 1;
+            } catch (RuntimeException e) {
+                log.warn("[RateLimiter] Purging counters before window {} failed: {}", window - 1, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Stops syncing after pushing the grants made since the last sync. A sync still running is waited for first,
+     * so its in-flight grants are not pushed a second time.
+     */
+    @Override
+    public void close() {
+        syncExecutor.shutdown();
+        try {
+            if (syncExecutor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                sync();
+            } else {
+                log.warn("[RateLimiter] Sync of {} still running after {}s, dropping unsynced counts", name, CLOSE_TIMEOUT_SECONDS);
+                syncExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            syncExecutor.shutdownNow();
+        }
+        meters.forEach(meterRegistry::remove);
+    }
+
+    private static final class ClientState {
+
+        final AtomicLong pending = new AtomicLong();
+        final AtomicLong inFlight = new AtomicLong();
+        volatile Synced synced = Synced.EMPTY;
+
+        double syncedEstimate(long now, long windowMillis) {
+            Synced snapshot = synced;
+            long window = now / windowMillis;
+            long previous;
+            long current;
+            if (snapshot.window() == window) {
+                previous = snapshot.previous();
+                current = snapshot.current();
+            } else if (snapshot.window() == window - 1) {
+                previous = snapshot.current();
+                current = 0;
+            } else {
+                return 0;
+            }
+            double elapsed = (double) (now % windowMillis) / windowMillis;
+            return previous * (1 - elapsed) + current;
+        }
+    }
+
+    private record Synced(long window, long previous, long current) {
+
+        static final Synced EMPTY = new Synced(Long.MIN_VALUE, 0, 0);
+    }
+}
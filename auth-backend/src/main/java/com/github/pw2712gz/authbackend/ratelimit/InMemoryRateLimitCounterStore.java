@@ -0,0 +1,40 @@
+package com.github.pw2712gz.authbackend.ratelimit;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-local {@link RateLimitCounterStore}. Shared between limiters in the same JVM, so it stands in for the
+ * database in tests and makes a single node behave exactly like a cluster of one.
+ */
+public class InMemoryRateLimitCounterStore implements RateLimitCounterStore {
+
+    private final Map<CounterKey, AtomicLong> counters = new ConcurrentHashMap<>();
+
+    @Override
+    public Map<String, WindowCounts> addAndGet(long window, Map<String, Long> deltas, Collection<String> keys) {
+        deltas.forEach((key, delta) ->
+                counters.computeIfAbsent(new CounterKey(key, window), k -> new AtomicLong()).addAndGet(delta));
+
+        Map<String, WindowCounts> result = new HashMap<>();
+        for (String key : keys) {
+            AtomicLong previous = counters.get(new CounterKey(key, window - 1));
+            AtomicLong current = counters.get(new CounterKey(key, window));
+            if (previous != null || current != null) {
+                result.put(key, new WindowCounts(previous == null ? 0 : previous.get(), current == null ? 0 : current.get()));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void purgeBefore(String keyPrefix, long window) {
+        counters.keySet().removeIf(key -> key.key().startsWith(keyPrefix) && key.window() < window);
+    }
+
+    private record CounterKey(String key, long window) {
+    }
+}
@@ -0,0 +1,78 @@
+package com.github.pw2712gz.authbackend.ratelimit;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link RateLimitCounterStore} on the shared MySQL database (table from sql/005-rate-limit-counters.sql).
+ * Each sync is one batched upsert plus one SELECT per 500 keys, so database load scales with the number of
+ * nodes and active clients per sync interval, not with request volume.
+ */
+public class JdbcRateLimitCounterStore implements RateLimitCounterStore {
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final String UPSERT_SQL = "INSERT INTO rate_limit_counters (limiter_key, window_index, request_count) " +
+            "VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE request_count = request_count + VALUES(request_count)";
+
+    private static final String SELECT_SQL = "SELECT limiter_key, window_index, request_count FROM rate_limit_counters " +
+            "WHERE window_index IN (?, ?) AND limiter_key IN (%s)";
+
+    private static final String PURGE_SQL = "DELETE FROM rate_limit_counters WHERE limiter_key LIKE ? ESCAPE '!' AND window_index < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public JdbcRateLimitCounterStore(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public Map<String, WindowCounts> addAndGet(long window, Map<String, Long> deltas, Collection<String> keys) {
+        if (!deltas.isEmpty()) {
+            List<Object[]> rows = new ArrayList<>(deltas.size());
+            // Sorted so that concurrent nodes lock rows in the same order and cannot deadlock
+            deltas.keySet().stream().sorted().forEach(key -> rows.add(new Object[]{key, window, deltas.get(key)}));
+            for (int from = 0; from < rows.size(); from += BATCH_SIZE) {
+                jdbcTemplate.batchUpdate(UPSERT_SQL, rows.subList(from, Math.min(from + BATCH_SIZE, rows.size())));
+            }
+        }
+
+        Map<String, WindowCounts> result = new HashMap<>();
+        List<String> keyList = new ArrayList<>(keys);
+        for (int from = 0; from < keyList.size(); from += BATCH_SIZE) {
+            List<String> chunk = keyList.subList(from, Math.min(from + BATCH_SIZE, keyList.size()));
+            List<Object> args = new ArrayList<>(chunk.size() + 2);
+            args.add(window - 1);
+            args.add(window);
+            args.addAll(chunk);
+
+            String sql = SELECT_SQL.formatted(String.join(", ", Collections.nCopies(chunk.size(), "?")));
+            jdbcTemplate.query(sql, rs -> {
+                String key = rs.getString(1);
+                boolean current = rs.getLong(2) == window;
+                long count = rs.getLong(3);
+                WindowCounts counts = result.getOrDefault(key, WindowCounts.ZERO);
+                result.put(key, current
+                        ? new WindowCounts(counts.previous(), count)
+                        : new WindowCounts(count, counts.current()));
+            }, args.toArray());
+        }
+        return result;
+    }
+
+    @Override
+    public void purgeBefore(String keyPrefix, long window) {
+        // Limiter names may contain '_', itself a LIKE wildcard; '!' avoids backslash handling that differs by SQL mode
+        jdbcTemplate.update(PURGE_SQL, escapeLike(keyPrefix) + "%", window);
+    }
+
+    static String escapeLike(String value) {
+        return value.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+}
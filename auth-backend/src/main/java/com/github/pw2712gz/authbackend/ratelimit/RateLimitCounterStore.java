@@ -0,0 +1,28 @@
+package com.github.pw2712gz.authbackend.ratelimit;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Shared request counters for {@link DistributedRateLimiter}, one counter per key and fixed window.
+ * Implementations must make {@link #addAndGet} atomic per counter so that concurrent nodes never lose increments.
+ */
+public interface RateLimitCounterStore {
+
+    /**
+     * Adds {@code deltas} to the counters of {@code window} and returns the cluster-wide counts of every key in
+     * {@code keys} for that window and the one before it. Keys without counters are omitted.
+     */
+    Map<String, WindowCounts> addAndGet(long window, Map<String, Long> deltas, Collection<String> keys);
+
+    /**
+     * Drops counters of keys starting with {@code keyPrefix} in windows older than {@code window}.
+     * Limiters with different window lengths number their windows differently, so purges are per limiter.
+     */
+    void purgeBefore(String keyPrefix, long window);
+
+    record WindowCounts(long previous, long current) {
+
+        public static final WindowCounts ZERO = new WindowCounts(0, 0);
+    }
+}
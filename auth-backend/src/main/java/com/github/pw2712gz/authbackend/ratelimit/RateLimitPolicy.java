@@ -0,0 +1,71 @@
+package com.github.pw2712gz.authbackend.ratelimit;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Request limit for one endpoint path, e.g. {@code /api/auth/login=5/1m} in a policy file.
+ */
+public record RateLimitPolicy(String path, int limit, Duration window) {
+
+    public RateLimitPolicy {
+        if (path == null || !path.startsWith("/")) {
+            throw new IllegalArgumentException("Policy path must start with '/': " + path);
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Policy limit must be positive: " + path);
+        }
+        if (window.toMillis() <= 0) {
+            throw new IllegalArgumentException("Policy window must be at least 1 ms: " + path);
+        }
+    }
+
+    /**
+     * Built-in policies, used when no policy file is configured. Login is the tightest because every attempt
+     * costs a BCrypt verification; refresh is looser because clients call it routinely.
+     */
+    public static List<RateLimitPolicy> defaults() {
+        return List.of(
+                new RateLimitPolicy("/api/auth/login", 5, Duration.ofMinutes(1)),
+                new RateLimitPolicy("/api/auth/register", 10, Duration.ofMinutes(1)),
+                new RateLimitPolicy("/api/auth/forgot-password", 5, Duration.ofMinutes(1)),
+                new RateLimitPolicy("/api/auth/reset-password", 10, Duration.ofMinutes(1)),
+                new RateLimitPolicy("/api/auth/refresh", 30, Duration.ofMinutes(1))
+        );
+    }
+
+    /**
+     * Reads {@code path=limit/window} lines, where the window is {@code 30s}, {@code 1m}, {@code PT1H} and so on.
+     * The file replaces the defaults entirely, so paths it omits are not limited.
+     */
+    public static List<RateLimitPolicy> parse(Reader reader) throws IOException {
+        Properties properties = new Properties();
+        properties.load(reader);
+
+        List<RateLimitPolicy> policies = new ArrayList<>();
+        for (String path : properties.stringPropertyNames()) {
+            String spec = properties.getProperty(path).trim();
+            int slash = spec.indexOf('/');
+            if (slash < 0) {
+                throw new IllegalArgumentException("Expected limit/window for " + path + ", got: " + spec);
+            }
+            int limit = Integer.parseInt(spec.substring(0, slash).trim());
+            Duration window = DurationStyle.detectAndParse(spec.substring(slash + 1).trim());
+            policies.add(new RateLimitPolicy(path.trim(), limit, window));
+        }
+        return policies;
+    }
+
+    /**
+     * Short name for meters and shared counter keys: the last path segment.
+     */
+    public String name() {
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+}
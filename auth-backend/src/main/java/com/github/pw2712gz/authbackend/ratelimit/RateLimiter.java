@@ -0,0 +1,45 @@
+package com.github.pw2712gz.authbackend.ratelimit;
+
+import java.time.Duration;
+
+/**
+ * Decides whether a request from a client may proceed. Clients are identified by a {@link ClientAddress},
+ * which callers may have cut to a network prefix so that a whole range shares one limit.
+ */
+public interface RateLimiter extends AutoCloseable {
+
+    /**
+     * Returned by {@link #acquire(ClientAddress)} when the request should be rejected.
+     */
+    int REJECTED = -1;
+
+    /**
+     * Takes one request's worth of allowance and returns how many more requests the client may make right now,
+     * or {@link #REJECTED}.
+     */
+    int acquire(ClientAddress client);
+
+    default boolean tryAcquire(String remoteAddress) {
+        return acquire(ClientAddress.parse(remoteAddress)) != REJECTED;
+    }
+
+    /**
+     * Longest a rejected client has to wait before its next request can be allowed, for {@code Retry-After}.
+     */
+    Duration retryAfter();
+
+    /**
+     * Registers the limiter's meters, or binds them to this limiter again. Limiters register on construction;
+     * a replacement built while the limiter it replaces was still registered shares its meter ids, so its owner
+     * calls this again once the replaced limiter is closed.
+     */
+    default void registerMeters() {
+    }
+
+    /**
+     * Releases background resources and meters; the limiter is not used afterwards.
+     */
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,137 @@
+package com.github.pw2712gz.authbackend.ratelimit;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Token-bucket arithmetic over a single packed {@code long}: the upper 23 bits hold the token level in
+ * fixed-point units and the lower 40 bits the last refill time in milliseconds since the bucket was configured.
+ * The state is immutable, so callers update it with a CAS and never need a lock.
+ */
+public final class TokenBucket {
+
+    /**
+     * Returned by {@link #acquire(long, long)} when the bucket has no whole token left.
+     */
+    public static final long REJECTED = -1;
+
+    private static final int TIME_BITS = 40;
+    private static final long TIME_MASK = (1L << TIME_BITS) - 1;
+    private static final long MAX_UNITS = (1L << (Long.SIZE - 1 - TIME_BITS)) - 1;
+
+    private final int capacity;
+    private final long periodMillis;
+    private final long unitsPerToken;
+    private final long capacityUnits;
+    private final long baseMillis;
+
+    /**
+     * A bucket holding {@code capacity} tokens that refills completely over {@code period}.
+     */
+    public TokenBucket(int capacity, Duration period, long nowMillis) {
+        if (capacity <= 0 || capacity > MAX_UNITS) {
+            throw new IllegalArgumentException("Capacity must be between 1 and " + MAX_UNITS);
+        }
+        if (period.toMillis() <= 0) {
+            throw new IllegalArgumentException("Refill period must be at least 1 ms");
+        }
+
+        this.capacity = capacity;
+        this.periodMillis = period.toMillis();
+        // Finest fixed-point scale that still fits a full bucket, so refill rounding loss stays negligible
+        this.unitsPerToken = MAX_UNITS / capacity;
+        this.capacityUnits = unitsPerToken * capacity;
+        // Relative time starts at 1 so that no live state, even an empty bucket, packs to 0
+        this.baseMillis = nowMillis - 1;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * State of a full bucket at the given time.
+     */
+    public long initialState(long nowMillis) {
+        return pack(capacityUnits, relative(nowMillis));
+    }
+
+    /**
+     * Refills for the elapsed time and takes one token.
+     * Returns the new state, or {@link #REJECTED} if less than one token is available.
+     */
+    public long acquire(long state, long nowMillis) {
+        long now = relative(nowMillis);
+        long units = refilled(state, now);
+        if (units < unitsPerToken) {
+            return REJECTED;
+        }
+        return pack(units - unitsPerToken, now);
+    }
+
+    /**
+     * Takes one token from the cell, retrying the CAS until it wins or the bucket is empty.
+     */
+    public boolean tryAcquire(AtomicLong cell, long nowMillis) {
+        while (true) {
+            long current = cell.get();
+            long next = acquire(current, nowMillis);
+            if (next == REJECTED) {
+                return false;
+            }
+            if (cell.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Same as {@link #tryAcquire(AtomicLong, long)} for a bucket stored in an array slot,
+     * returning the new state or {@link #REJECTED}.
+     */
+    public long tryAcquire(AtomicLongArray cells, int index, long nowMillis) {
+        while (true) {
+            long current = cells.get(index);
+            long next = acquire(current, nowMillis);
+            if (next == REJECTED || cells.compareAndSet(index, current, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * True when the bucket would be full at the given time; such a bucket is indistinguishable
+     * from a new one and can be evicted.
+     */
+    public boolean isFull(long state, long nowMillis) {
+        return refilled(state, relative(nowMillis)) >= capacityUnits;
+    }
+
+    /**
+     * Whole tokens available at the given time.
+     */
+    public int available(long state, long nowMillis) {
+        return (int) (refilled(state, relative(nowMillis)) / unitsPerToken);
+    }
+
+    private long refilled(long state, long now) {
+        long units = state >>> TIME_BITS;
+        long elapsed = now - (state & TIME_MASK);
+        if (elapsed <= 0) {
+            return units;
+        }
+        if (elapsed >= periodMillis) {
+            return capacityUnits;
+        }
+        return Math.min(capacityUnits, units + elapsed * capacityUnits / periodMillis);
+    }
+
+    private long relative(long nowMillis) {
+        return (nowMillis - baseMillis) & TIME_MASK;
+    }
+
+    private static long pack(long units, long time) {
+        return (units << TIME_BITS) | time;
+    }
+}
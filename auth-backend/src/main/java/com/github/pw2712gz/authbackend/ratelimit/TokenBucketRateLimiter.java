@@ -0,0 +1,78 @@
+package com.github.pw2712gz.authbackend.ratelimit;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * Node-local per-client token-bucket limiter. Buckets live in a {@link BoundedBucketStore}, so the request path
+ * is a lock-free lookup plus a CAS, and memory stays fixed at the configured client capacity however many
+ * distinct addresses show up.
+ */
+public class TokenBucketRateLimiter implements RateLimiter {
+
+    private final BoundedBucketStore store;
+    private final Duration retryAfter;
+    private final LongSupplier clock;
+    private final String name;
+    private final MeterRegistry meterRegistry;
+    private volatile List<Meter> meters = List.of();
+
+    /**
+     * Allows {@code capacity} requests per client per {@code period}, tracking up to {@code maxClients} clients.
+     * Meters are tagged with {@code limiter=name}.
+     */
+    public TokenBucketRateLimiter(String name, int capacity, Duration period, int maxClients, MeterRegistry meterRegistry) {
+        this(name, capacity, period, maxClients, meterRegistry, System::currentTimeMillis);
+    }
+
+    TokenBucketRateLimiter(String name, int capacity, Duration period, int maxClients, MeterRegistry meterRegistry,
+                           LongSupplier clock) {
+        this.store = new BoundedBucketStore(new TokenBucket(capacity, period, clock.getAsLong()), maxClients);
+        // A rejected bucket holds less than one token, and one token refills in period / capacity
+        this.retryAfter = period.dividedBy(capacity);
+        this.clock = clock;
+        this.name = name;
+        this.meterRegistry = meterRegistry;
+        registerMeters();
+    }
+
+    @Override
+    public void registerMeters() {
+        this.meters = List.of(
+                Gauge.builder("auth.ratelimit.occupancy", store, BoundedBucketStore::occupied)
+                        .description("Client slots holding a bucket")
+                        .tag("limiter", name)
+                        .register(meterRegistry),
+                Gauge.builder("auth.ratelimit.capacity", store, BoundedBucketStore::capacity)
+                        .description("Client slots available")
+                        .tag("limiter", name)
+                        .register(meterRegistry),
+                FunctionCounter.builder("auth.ratelimit.evictions", store, BoundedBucketStore::evictions)
+                        .description("Partially drained buckets replaced by another client because their set was full")
+                        .tag("limiter", name)
+                        .register(meterRegistry)
+        );
+    }
+
+    @Override
+    public int acquire(ClientAddress client) {
+        int remaining = store.acquire(client, clock.getAsLong());
+        return remaining < 0 ? REJECTED : remaining;
+    }
+
+    @Override
+    public Duration retryAfter() {
+        return retryAfter;
+    }
+
+    @Override
+    public void close() {
+        meters.forEach(meterRegistry::remove);
+    }
+}
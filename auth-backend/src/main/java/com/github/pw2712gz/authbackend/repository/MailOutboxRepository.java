@@ -0,0 +1,37 @@
+package com.github.pw2712gz.authbackend.repository;
+
+import com.github.pw2712gz.authbackend.entity.MailOutboxMessage;
+import com.github.pw2712gz.authbackend.entity.MailOutboxMessage.Status;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface MailOutboxRepository extends JpaRepository<MailOutboxMessage, Long> {
+
+    @Query("SELECT m FROM MailOutboxMessage m WHERE m.status = :status AND m.nextAttemptAt <= :now ORDER BY m.nextAttemptAt")
+    List<MailOutboxMessage> findDue(@Param("status") Status status, @Param("now") Instant now, Limit limit);
+
+    /**
+     * Pushes a due message's next attempt out by a lease, but only if no other instance has done so since it was
+     * read. Returns 1 to the single caller that may send it.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE MailOutboxMessage m SET m.nextAttemptAt = :leaseUntil " +
+            "WHERE m.id = :id AND m.status = :status AND m.nextAttemptAt = :due")
+    int claim(@Param("id") Long id, @Param("status") Status status, @Param("due") Instant due,
+              @Param("leaseUntil") Instant leaseUntil);
+
+    long countByStatus(Status status);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM MailOutboxMessage m WHERE m.status <> :pending AND m.createdAt < :cutoff")
+    int deleteFinishedBefore(@Param("pending") Status pending, @Param("cutoff") Instant cutoff);
+}
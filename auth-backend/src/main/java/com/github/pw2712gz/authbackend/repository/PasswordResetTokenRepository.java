@@ -1,7 +1,12 @@
 package com.github.pw2712gz.authbackend.repository;
 
 import com.github.pw2712gz.authbackend.entity.PasswordResetToken;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
 import java.util.List;
@@ -10,5 +15,14 @@ import java.util.Optional;
 public interface PasswordResetTokenRepository extends JpaRepository<PasswordResetToken, Long> {
     Optional<PasswordResetToken> findByToken(String token);
 
-    List<PasswordResetToken> findAllByExpiresAtBefore(Instant timestamp);
+    /**
+     * Ids of used tokens and of tokens that expired before the cutoff — scalars only, no entities or user proxies.
+     */
+    @Query("SELECT t.id FROM PasswordResetToken t WHERE t.used = true OR t.expiresAt < :cutoff ORDER BY t.id")
+    List<Long> findPurgeableIds(@Param("cutoff") Instant cutoff, Limit limit);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM PasswordResetToken t WHERE t.id IN :ids")
+    int deleteAllByIdIn(@Param("ids") List<Long> ids);
 }
@@ -1,17 +1,115 @@
 package com.github.pw2712gz.authbackend.repository;
 
 import com.github.pw2712gz.authbackend.entity.RefreshToken;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 
 public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
-    Optional<RefreshToken> findByToken(String token);
+    Optional<RefreshToken> findByTokenHash(byte[] tokenHash);
 
-    void deleteByToken(String token);
+    @Modifying
+    @Query("DELETE FROM RefreshToken t WHERE t.tokenHash = :tokenHash")
+    int deleteByTokenHash(@Param("tokenHash") byte[] tokenHash);
 
-    int deleteAllByExpiresAtBefore(Instant time);
+    /**
+     * Ids of the longest-expired tokens, read from the expires_at index; the reaper deletes them in bounded batches.
+     */
+    @Query("SELECT t.id FROM RefreshToken t WHERE t.expiresAt < :now ORDER BY t.expiresAt")
+    List<Long> findExpiredIds(@Param("now") Instant now, Limit limit);
 
-    boolean existsByToken(String token);
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RefreshToken t WHERE t.id IN :ids")
+    int deleteAllByIdIn(@Param("ids") List<Long> ids);
+
+    @Query("SELECT MIN(t.expiresAt) FROM RefreshToken t")
+    Optional<Instant> findOldestExpiresAt();
+
+    boolean existsByTokenHash(byte[] tokenHash);
+
+    /**
+     * Consumes a live token in one statement; returns 0 if it is unknown, expired or already consumed.
+     */
+    @Modifying
+    @Query("UPDATE RefreshToken t SET t.consumedAt = :now " +
+            "WHERE t.tokenHash = :tokenHash AND t.consumedAt IS NULL AND t.expiresAt > :now")
+    int consume(@Param("tokenHash") byte[] tokenHash, @Param("now") Instant now);
+
+    @Modifying
+    @Query("UPDATE RefreshToken t SET t.consumedAt = :now WHERE t.familyId = :familyId AND t.consumedAt IS NULL")
+    int revokeFamily(@Param("familyId") String familyId, @Param("now") Instant now);
+
+    @Query("SELECT t.familyId AS familyId, t.consumedAt AS consumedAt, t.expiresAt AS expiresAt, " +
+            "u.id AS userId, u.email AS email, u.firstName AS firstName, u.lastName AS lastName " +
+            "FROM RefreshToken t JOIN t.user u WHERE t.tokenHash = :tokenHash")
+    Optional<RotationView> findRotationViewByTokenHash(@Param("tokenHash") byte[] tokenHash);
+
+    /**
+     * A user's live sessions, newest first, served from the (user_id, expires_at) index.
+     */
+    @Query("SELECT t.id AS id, t.createdAt AS createdAt, t.expiresAt AS expiresAt FROM RefreshToken t " +
+            "WHERE t.user.id = :userId AND t.expiresAt > :now AND t.consumedAt IS NULL ORDER BY t.id DESC")
+    List<SessionView> findSessionsByUserId(@Param("userId") Long userId, @Param("now") Instant now);
+
+    /**
+     * Deletes all but the newest {@code keep} live tokens of a user in one statement.
+     * The derived table lets MySQL read the table it is deleting from.
+     */
+    @Modifying
+    @Query(value = "DELETE FROM refresh_tokens WHERE user_id = :userId AND consumed_at IS NULL AND id <= (" +
+            "SELECT id FROM (SELECT id FROM refresh_tokens WHERE user_id = :userId AND consumed_at IS NULL " +
+            "ORDER BY id DESC LIMIT 1 OFFSET :keep) oldest)", nativeQuery = true)
+    int deleteOldestSessions(@Param("userId") Long userId, @Param("keep") int keep);
+
+    /**
+     * Deletes a user's consumed tokens whose family has no live token left (evicted or revoked sessions):
+     * replaying one of them has nothing left to revoke.
+     */
+    @Modifying
+    @Query(value = "DELETE FROM refresh_tokens WHERE user_id = :userId AND consumed_at IS NOT NULL " +
+            "AND (family_id IS NULL OR family_id NOT IN (SELECT family_id FROM (SELECT family_id FROM refresh_tokens " +
+            "WHERE user_id = :userId AND consumed_at IS NULL AND family_id IS NOT NULL) live))", nativeQuery = true)
+    int deleteDeadFamilies(@Param("userId") Long userId);
+
+    /**
+     * Deletes a user's tokens consumed before {@code before}, served from the (user_id, expires_at) index.
+     */
+    @Modifying
+    @Query("DELETE FROM RefreshToken t WHERE t.user.id = :userId AND t.consumedAt < :before")
+    int deleteConsumedBefore(@Param("userId") Long userId, @Param("before") Instant before);
+
+    /**
+     * Token state plus the owner's profile, read without loading either entity.
+     */
+    interface RotationView {
+        String getFamilyId();
+
+        Instant getConsumedAt();
+
+        Instant getExpiresAt();
+
+        Long getUserId();
+
+        String getEmail();
+
+        String getFirstName();
+
+        String getLastName();
+    }
+
+    interface SessionView {
+        Long getId();
+
+        Instant getCreatedAt();
+
+        Instant getExpiresAt();
+    }
 }
@@ -0,0 +1,35 @@
+package com.github.pw2712gz.authbackend.repository;
+
+import com.github.pw2712gz.authbackend.entity.RefreshTokenRevocation;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface RefreshTokenRevocationRepository extends JpaRepository<RefreshTokenRevocation, Long> {
+
+    /**
+     * Revocations added after the given id, oldest first; used both for paging and incremental polling.
+     */
+    @Query("SELECT r.id AS id, r.familyId AS familyId FROM RefreshTokenRevocation r " +
+            "WHERE r.id > :afterId AND r.expiresAt > :now ORDER BY r.id")
+    List<RevocationView> findActiveAfter(@Param("afterId") long afterId, @Param("now") Instant now, Limit limit);
+
+    boolean existsByFamilyIdAndExpiresAtAfter(long familyId, Instant now);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RefreshTokenRevocation r WHERE r.expiresAt <= :now")
+    int deleteExpired(@Param("now") Instant now);
+
+    interface RevocationView {
+        Long getId();
+
+        Long getFamilyId();
+    }
+}
@@ -1,12 +1,37 @@
 package com.github.pw2712gz.authbackend.repository;
 
 import com.github.pw2712gz.authbackend.entity.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
 
     boolean existsByEmail(String email);
+
+    /**
+     * Keyset-paged scan of (id, email) used to rebuild in-memory indexes without loading entities.
+     */
+    @Query("select u.id as id, u.email as email from User u where u.id > :afterId order by u.id")
+    List<EmailView> findEmailsAfter(@Param("afterId") long afterId, Limit limit);
+
+    @Modifying
+    @Transactional
+    @Query("update User u set u.password = :newHash where u.email = :email and u.password = :currentHash")
+    int updatePasswordIfUnchanged(@Param("email") String email,
+                                  @Param("currentHash") String currentHash,
+                                  @Param("newHash") String newHash);
+
+    interface EmailView {
+        Long getId();
+
+        String getEmail();
+    }
 }
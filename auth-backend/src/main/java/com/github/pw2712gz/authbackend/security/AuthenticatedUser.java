@@ -0,0 +1,67 @@
+package com.github.pw2712gz.authbackend.security;
+
+import com.github.pw2712gz.authbackend.entity.User;
+import lombok.Getter;
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Authenticated principal carrying the user's id and profile from the single load done at login,
+ * so token generation never has to query the users table again.
+ */
+@Getter
+public class AuthenticatedUser implements UserDetails, CredentialsContainer {
+
+    private final Long id;
+    private final String firstName;
+    private final String lastName;
+    private final String email;
+    private final boolean enabled;
+    private String password;
+
+    public AuthenticatedUser(Long id, String firstName, String lastName, String email, String password, boolean enabled) {
+        this.id = id;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.email = email;
+        this.password = password;
+        this.enabled = enabled;
+    }
+
+    public static AuthenticatedUser from(User user) {
+        return new AuthenticatedUser(
+                user.getId(),
+                user.getFirstName(),
+                user.getLastName(),
+                user.getEmail(),
+                user.getPassword(),
+                user.isEnabled()
+        );
+    }
+
+    /**
+     * Returns a copy of this principal with a different password hash.
+     */
+    public AuthenticatedUser withPassword(String newPassword) {
+        return new AuthenticatedUser(id, firstName, lastName, email, newPassword, enabled);
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public void eraseCredentials() {
+        this.password = null;
+    }
+}
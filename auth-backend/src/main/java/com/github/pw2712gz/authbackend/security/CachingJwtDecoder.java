@@ -0,0 +1,101 @@
+package com.github.pw2712gz.authbackend.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * JwtDecoder decorator that caches successfully verified tokens until their {@code exp},
+ * so signature verification runs once per distinct token instead of once per request.
+ * Entries are keyed by the token's SHA-256; rejected tokens are never cached.
+ */
+public class CachingJwtDecoder implements JwtDecoder {
+
+    private final JwtDecoder delegate;
+    private final Cache<String, Jwt> cache;
+    private final Timer verifyTimer;
+    private final Clock clock;
+
+    public CachingJwtDecoder(JwtDecoder delegate, MeterRegistry meterRegistry, long maximumSize, Duration maxTtl) {
+        this(delegate, meterRegistry, maximumSize, maxTtl, Clock.systemUTC());
+    }
+
+    CachingJwtDecoder(JwtDecoder delegate, MeterRegistry meterRegistry, long maximumSize, Duration maxTtl, Clock clock) {
+        this.delegate = delegate;
+        this.clock = clock;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new ExpiresAt(clock, maxTtl))
+                .recordStats()
+                .build();
+        this.verifyTimer = Timer.builder("auth.jwt.verify.duration")
+                .description("Time spent verifying JWT signatures and claims on a cache miss")
+                .register(meterRegistry);
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwt.decoder");
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        String key = hash(token);
+        Jwt cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        Jwt jwt = verifyTimer.record(() -> delegate.decode(token));
+        if (jwt.getExpiresAt() != null && jwt.getExpiresAt().isAfter(clock.instant())) {
+            cache.put(key, jwt);
+        }
+        return jwt;
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Expires each entry at the token's own {@code exp}, capped at {@code maxTtl}.
+     */
+    private record ExpiresAt(Clock clock, Duration maxTtl) implements Expiry<String, Jwt> {
+
+        @Override
+        public long expireAfterCreate(String key, Jwt jwt, long currentTime) {
+            Instant expiresAt = jwt.getExpiresAt();
+            Duration remaining = expiresAt == null ? Duration.ZERO : Duration.between(clock.instant(), expiresAt);
+            if (remaining.isNegative()) {
+                return 0;
+            }
+            return remaining.compareTo(maxTtl) < 0 ? remaining.toNanos() : maxTtl.toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Jwt jwt, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, jwt, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Jwt jwt, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.github.pw2712gz.authbackend.security;
+
+import com.github.pw2712gz.authbackend.ratelimit.ClientAddress;
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * Finds the client IP of a request that may have come through reverse proxies.
+ * Only when the peer is a trusted proxy is the forwarding header consulted: its hops are read right to left,
+ * skipping further trusted proxies, and the first other address is the client. Any other peer is the client
+ * itself, so callers cannot pick their own address by sending the header.
+ */
+public class ClientIpResolver {
+
+    private final String header;
+    private final List<Network> trustedProxies;
+
+    /**
+     * @param header         forwarding header appended to by the proxies, usually {@code X-Forwarded-For}
+     * @param trustedProxies proxy addresses or CIDR ranges, e.g. {@code 10.0.0.0/8} or {@code fd00::/8}
+     */
+    public ClientIpResolver(String header, List<String> trustedProxies) {
+        this.header = header;
+        this.trustedProxies = trustedProxies.stream()
+                .map(String::trim)
+                .filter(range -> !range.isEmpty())
+                .map(Network::parse)
+                .toList();
+    }
+
+    /**
+     * Trusts no proxy; every request's peer address is its client.
+     */
+    public static ClientIpResolver direct() {
+        return new ClientIpResolver("X-Forwarded-For", List.of());
+    }
+
+    public String resolve(HttpServletRequest request) {
+        String client = request.getRemoteAddr();
+        if (!isTrusted(client)) {
+            return client;
+        }
+
+        List<String> hops = forwardedHops(request);
+        for (int i = hops.size() - 1; i >= 0; i--) {
+            client = hops.get(i);
+            if (!isTrusted(client)) {
+                return client;
+            }
+        }
+        // Every hop is a proxy of ours; the leftmost is as close to the client as we can get
+        return client;
+    }
+
+    private boolean isTrusted(String address) {
+        if (trustedProxies.isEmpty()) {
+            return false;
+        }
+        ClientAddress parsed = ClientAddress.parse(address);
+        for (Network network : trustedProxies) {
+            if (network.contains(parsed)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<String> forwardedHops(HttpServletRequest request) {
+        List<String> hops = new ArrayList<>();
+        Enumeration<String> values = request.getHeaders(header);
+        while (values != null && values.hasMoreElements()) {
+            for (String hop : values.nextElement().split(",")) {
+                hop = hop.trim();
+                if (!hop.isEmpty()) {
+                    hops.add(hop);
+                }
+            }
+        }
+        return hops;
+    }
+
+    private record Network(ClientAddress prefix, int length) {
+
+        static Network parse(String range) {
+            int slash = range.indexOf('/');
+            String address = slash < 0 ? range : range.substring(0, slash);
+            ClientAddress parsed = ClientAddress.parse(address);
+            if (!parsed.isIpLiteral()) {
+                throw new IllegalArgumentException("Not an IP address or CIDR range: " + range);
+            }
+
+            // IPv4 ranges are matched against the IPv4-mapped form, 96 bits in
+            int maxLength = parsed.isIpv4() ? 32 : 128;
+            int length = slash < 0 ? maxLength : Integer.parseInt(range.substring(slash + 1));
+            if (length < 0 || length > maxLength) {
+                throw new IllegalArgumentException("Invalid prefix length in " + range);
+            }
+            int bits = parsed.isIpv4() ? 96 + length : length;
+            return new Network(parsed.prefix(bits), bits);
+        }
+
+        boolean contains(ClientAddress address) {
+            return prefix.equals(address.prefix(length));
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.github.pw2712gz.authbackend.security;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The current signing key plus any additional verification-only keys.
+ * Every key gets its RFC 7638 thumbprint as {@code kid}, so ids are stable across restarts and instances.
+ * Publishing the next key as an additional key before switching to it allows rotation without downtime.
+ */
+public class JwtKeyRing {
+
+    private final JwtSigningAlgorithm signingAlgorithm;
+    private final JWK signingKey;
+    private final JWKSet signingKeys;
+    private final JWKSet publicKeys;
+
+    public JwtKeyRing(JwtSigningAlgorithm signingAlgorithm,
+                      PublicKey publicKey,
+                      PrivateKey privateKey,
+                      List<PublicKey> additionalPublicKeys) {
+        this.signingAlgorithm = signingAlgorithm;
+        this.signingKey = withThumbprintKid(signingAlgorithm, publicKey, privateKey);
+        this.signingKeys = new JWKSet(signingKey);
+
+        // Keyed by kid so a retired key listed twice (or equal to the current one) is published once
+        Map<String, JWK> keys = new LinkedHashMap<>();
+        keys.put(signingKey.getKeyID(), signingKey.toPublicJWK());
+        for (PublicKey additional : additionalPublicKeys) {
+            JWK jwk = withThumbprintKid(algorithmFor(additional), additional, null);
+            keys.putIfAbsent(jwk.getKeyID(), jwk);
+        }
+        this.publicKeys = new JWKSet(new ArrayList<>(keys.values()));
+    }
+
+    public JwtSigningAlgorithm signingAlgorithm() {
+        return signingAlgorithm;
+    }
+
+    public String signingKeyId() {
+        return signingKey.getKeyID();
+    }
+
+    /**
+     * Only the current key; it is the only one with private material.
+     */
+    public JWKSet signingKeys() {
+        return signingKeys;
+    }
+
+    /**
+     * All public keys accepted for verification, as published at the JWKS endpoint.
+     */
+    public JWKSet publicKeys() {
+        return publicKeys;
+    }
+
+    /**
+     * Creates a decoder that verifies signatures against every public key in the ring.
+     * Tokens without a kid (issued before kids were added) are tried against every key of their type.
+     */
+    public NimbusJwtDecoder newDecoder() {
+        var processor = new DefaultJWTProcessor<SecurityContext>();
+        processor.setJWSKeySelector(new JWSVerificationKeySelector<>(verificationAlgorithms(), new ImmutableJWKSet<>(publicKeys)));
+        // Claims (exp, nbf) are validated by Spring's validators set on the decoder
+        processor.setJWTClaimsSetVerifier((claims, context) -> {
+        });
+        return new NimbusJwtDecoder(processor);
+    }
+
+    public Set<JWSAlgorithm> verificationAlgorithms() {
+        Set<JWSAlgorithm> algorithms = new LinkedHashSet<>();
+        for (JWK key : publicKeys.getKeys()) {
+            algorithms.add((JWSAlgorithm) key.getAlgorithm());
+        }
+        return algorithms;
+    }
+
+    private static JwtSigningAlgorithm algorithmFor(PublicKey key) {
+        return key instanceof ECPublicKey ? JwtSigningAlgorithm.ES256 : JwtSigningAlgorithm.RS256;
+    }
+
+    private static JWK withThumbprintKid(JwtSigningAlgorithm algorithm, PublicKey publicKey, PrivateKey privateKey) {
+        JWK jwk = algorithm.toJwk(publicKey, privateKey);
+        try {
+            String kid = jwk.computeThumbprint().toString();
+            return algorithm.toJwk(publicKey, privateKey, kid);
+        } catch (JOSEException e) {
+            throw new IllegalStateException("Unable to compute JWK thumbprint", e);
+        }
+    }
+}
@@ -1,16 +1,24 @@
 package com.github.pw2712gz.authbackend.security;
 
+import com.github.pw2712gz.authbackend.dto.response.UserResponse;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.jwt.JwtClaimsSet;
 import org.springframework.security.oauth2.jwt.JwtEncoder;
 import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
 
 /**
  * Service for generating JWT access tokens using Spring's JwtEncoder.
@@ -19,22 +27,67 @@ import java.time.Instant;
 @Slf4j
 public class JwtProvider {
 
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_GIVEN_NAME = "given_name";
+    public static final String CLAIM_FAMILY_NAME = "family_name";
+    public static final String CLAIM_PROFILE_VERSION = "pv";
+    public static final String CLAIM_TOKEN_USE = "token_use";
+    public static final String CLAIM_FAMILY = "fam";
+    public static final String TOKEN_USE_REFRESH = "refresh";
+    public static final String REFRESH_AUDIENCE = "auth-backend/refresh";
+
+    private static final long DEFAULT_PROFILE_VERSION = 1;
+
     private final JwtEncoder jwtEncoder;
 
     @Getter
     private final Long jwtExpirationInMillis;
 
+    private final long profileClaimsVersion;
+
+    private final JwtSigningAlgorithm signingAlgorithm;
+
+    private final String signingKeyId;
+
+    public JwtProvider(JwtEncoder jwtEncoder, Long jwtExpirationInMillis) {
+        this(jwtEncoder, jwtExpirationInMillis, DEFAULT_PROFILE_VERSION);
+    }
+
+    public JwtProvider(JwtEncoder jwtEncoder, Long jwtExpirationInMillis, long profileClaimsVersion) {
+        this(jwtEncoder, jwtExpirationInMillis, profileClaimsVersion, JwtSigningAlgorithm.RS256);
+    }
+
+    public JwtProvider(JwtEncoder jwtEncoder, Long jwtExpirationInMillis, long profileClaimsVersion,
+                       JwtSigningAlgorithm signingAlgorithm) {
+        this(jwtEncoder, jwtExpirationInMillis, profileClaimsVersion, signingAlgorithm, null);
+    }
+
+    @Autowired
     public JwtProvider(JwtEncoder jwtEncoder,
-                       @Value("${jwt.expiration.time}") Long jwtExpirationInMillis) {
+                       @Value("${jwt.expiration.time}") Long jwtExpirationInMillis,
+                       @Value("${jwt.claims.profile-version:1}") long profileClaimsVersion,
+                       JwtKeyRing keyRing) {
+        this(jwtEncoder, jwtExpirationInMillis, profileClaimsVersion, keyRing.signingAlgorithm(), keyRing.signingKeyId());
+    }
+
+    public JwtProvider(JwtEncoder jwtEncoder, Long jwtExpirationInMillis, long profileClaimsVersion,
+                       JwtSigningAlgorithm signingAlgorithm, String signingKeyId) {
         this.jwtEncoder = jwtEncoder;
         this.jwtExpirationInMillis = jwtExpirationInMillis;
+        this.profileClaimsVersion = profileClaimsVersion;
+        this.signingAlgorithm = signingAlgorithm;
+        this.signingKeyId = signingKeyId;
     }
 
     /**
-     * Generates a token using the authenticated principal's username.
+     * Generates a token for the authenticated principal, embedding profile claims when available.
      */
     public String generateToken(Authentication authentication) {
-        User principal = (User) authentication.getPrincipal();
+        if (authentication.getPrincipal() instanceof AuthenticatedUser user) {
+            return generateTokenWithUsername(user.getUsername(), user.getId(), user.getFirstName(), user.getLastName());
+        }
+
+        UserDetails principal = (UserDetails) authentication.getPrincipal();
         return generateTokenWithUsername(principal.getUsername());
     }
 
@@ -42,6 +95,14 @@ public class JwtProvider {
      * Generates a JWT token using the provided username.
      */
     public String generateTokenWithUsername(String username) {
+        return generateTokenWithUsername(username, null, null, null);
+    }
+
+    /**
+     * Generates a JWT token with uid, given_name and family_name claims so /me can be served
+     * without a database lookup. Profile claims are skipped when no user id is given.
+     */
+    public String generateTokenWithUsername(String username, Long userId, String firstName, String lastName) {
         if (username == null) {
             throw new IllegalArgumentException("Username must not be null");
         }
@@ -53,14 +114,76 @@ public class JwtProvider {
 
         Instant now = Instant.now();
         Instant expiry = now.plusMillis(jwtExpirationInMillis);
+        return encode(profileClaims(username, userId, firstName, lastName, now, expiry));
+    }
 
-        JwtClaimsSet claims = JwtClaimsSet.builder()
-                .issuer("auth-backend")
-                .issuedAt(now)
-                .expiresAt(expiry)
-                .subject(username)
+    /**
+     * Claims of a self-contained refresh token: the same profile claims as an access token plus
+     * token_use=refresh, the refresh audience and the family id used for revocation. The caller signs them
+     * with the refresh key, which is never published, so resource servers cannot accept these tokens.
+     */
+    public JwtClaimsSet refreshTokenClaims(String username, Long userId, String firstName, String lastName,
+                                           long familyId, Duration ttl) {
+        if (username == null || userId == null) {
+            throw new IllegalArgumentException("Username and user id must not be null");
+        }
+
+        Instant now = Instant.now();
+        return profileClaims(username, userId, firstName, lastName, now, now.plus(ttl))
+                .id(UUID.randomUUID().toString())
+                .audience(List.of(REFRESH_AUDIENCE))
+                .claim(CLAIM_TOKEN_USE, TOKEN_USE_REFRESH)
+                .claim(CLAIM_FAMILY, familyId)
                 .build();
+    }
+
+    private JwtClaimsSet.Builder profileClaims(String username, Long userId, String firstName, String lastName,
+                                               Instant issuedAt, Instant expiresAt) {
+        JwtClaimsSet.Builder claims = JwtClaimsSet.builder()
+                .issuer("auth-backend")
+                .issuedAt(issuedAt)
+                .expiresAt(expiresAt)
+                .subject(username);
+
+        if (userId != null) {
+            claims.claim(CLAIM_USER_ID, userId)
+                    .claim(CLAIM_PROFILE_VERSION, profileClaimsVersion);
+            if (firstName != null) {
+                claims.claim(CLAIM_GIVEN_NAME, firstName);
+            }
+            if (lastName != null) {
+                claims.claim(CLAIM_FAMILY_NAME, lastName);
+            }
+        }
+        return claims;
+    }
+
+    private String encode(JwtClaimsSet.Builder claims) {
+        // NimbusJwtEncoder assumes RS256 unless the header says otherwise; kid lets verifiers pick the key
+        JwsHeader.Builder header = JwsHeader.with(signingAlgorithm.signatureAlgorithm());
+        if (signingKeyId != null) {
+            header.keyId(signingKeyId);
+        }
+        return jwtEncoder.encode(JwtEncoderParameters.from(header.build(), claims.build())).getTokenValue();
+    }
+
+    /**
+     * Builds the user profile from a decoded token. Returns empty when the token carries no
+     * profile claims or was issued under a different profile version, forcing a DB lookup.
+     */
+    public Optional<UserResponse> readProfile(Jwt jwt) {
+        Object userId = jwt.getClaim(CLAIM_USER_ID);
+        Object version = jwt.getClaim(CLAIM_PROFILE_VERSION);
+
+        if (!(userId instanceof Number id) || !(version instanceof Number v) || v.longValue() != profileClaimsVersion) {
+            return Optional.empty();
+        }
 
-        return jwtEncoder.encode(JwtEncoderParameters.from(claims)).getTokenValue();
+        return Optional.of(new UserResponse(
+                id.longValue(),
+                jwt.getClaimAsString(CLAIM_GIVEN_NAME),
+                jwt.getClaimAsString(CLAIM_FAMILY_NAME),
+                jwt.getSubject()
+        ));
     }
 }
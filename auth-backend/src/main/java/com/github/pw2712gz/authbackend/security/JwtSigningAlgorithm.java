@@ -0,0 +1,94 @@
+package com.github.pw2712gz.authbackend.security;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.RSAKey;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+
+/**
+ * Signing algorithms supported for access tokens, selected with {@code jwt.algorithm}.
+ * Each constant knows its PEM key type and how to wrap a key pair as a JWK.
+ */
+public enum JwtSigningAlgorithm {
+
+    RS256("RSA", SignatureAlgorithm.RS256) {
+        @Override
+        public JWK toJwk(PublicKey publicKey, PrivateKey privateKey, String keyId) {
+            var builder = new RSAKey.Builder((RSAPublicKey) publicKey)
+                    .algorithm(JWSAlgorithm.RS256)
+                    .keyUse(KeyUse.SIGNATURE)
+                    .keyID(keyId);
+            if (privateKey != null) {
+                builder.privateKey((RSAPrivateKey) privateKey);
+            }
+            return builder.build();
+        }
+    },
+
+    ES256("EC", SignatureAlgorithm.ES256) {
+        @Override
+        public JWK toJwk(PublicKey publicKey, PrivateKey privateKey, String keyId) {
+            ECPublicKey ecPublicKey = (ECPublicKey) publicKey;
+            if (!Curve.P_256.equals(Curve.forECParameterSpec(ecPublicKey.getParams()))) {
+                throw new IllegalStateException("ES256 requires a P-256 (prime256v1) key");
+            }
+
+            var builder = new ECKey.Builder(Curve.P_256, ecPublicKey)
+                    .algorithm(JWSAlgorithm.ES256)
+                    .keyUse(KeyUse.SIGNATURE)
+                    .keyID(keyId);
+            if (privateKey != null) {
+                builder.privateKey((ECPrivateKey) privateKey);
+            }
+            return builder.build();
+        }
+    };
+
+    private final String keyAlgorithm;
+    private final SignatureAlgorithm signatureAlgorithm;
+
+    JwtSigningAlgorithm(String keyAlgorithm, SignatureAlgorithm signatureAlgorithm) {
+        this.keyAlgorithm = keyAlgorithm;
+        this.signatureAlgorithm = signatureAlgorithm;
+    }
+
+    /**
+     * JCA key algorithm used to parse the PEM keys ("RSA" or "EC").
+     */
+    public String keyAlgorithm() {
+        return keyAlgorithm;
+    }
+
+    /**
+     * Algorithm written to the JWS header of issued tokens.
+     */
+    public SignatureAlgorithm signatureAlgorithm() {
+        return signatureAlgorithm;
+    }
+
+    public JWSAlgorithm jwsAlgorithm() {
+        return JWSAlgorithm.parse(signatureAlgorithm.getName());
+    }
+
+    /**
+     * Wraps the key pair as a JWK; pass a null private key for a verification-only key.
+     */
+    public JWK toJwk(PublicKey publicKey, PrivateKey privateKey) {
+        return toJwk(publicKey, privateKey, null);
+    }
+
+    /**
+     * Same as {@link #toJwk(PublicKey, PrivateKey)} with an explicit {@code kid}.
+     */
+    public abstract JWK toJwk(PublicKey publicKey, PrivateKey privateKey, String keyId);
+}
@@ -0,0 +1,52 @@
+package com.github.pw2712gz.authbackend.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+/**
+ * Measures BCrypt on the current hardware to pick a cost that fits a latency budget.
+ */
+@Slf4j
+public final class PasswordEncoderCalibrator {
+
+    static final int MAX_BCRYPT_STRENGTH = 16;
+    private static final String SAMPLE_PASSWORD = "calibration-Password-123!";
+
+    private PasswordEncoderCalibrator() {
+    }
+
+    /**
+     * Returns the highest BCrypt strength whose encode time stays within the target,
+     * never going below {@code minStrength}.
+     */
+    public static int calibrateBCryptStrength(long targetMillis, int minStrength) {
+        // Warm up the JIT so the first measurement isn't inflated
+        new BCryptPasswordEncoder(BCryptPasswordEncoder.BCryptVersion.$2B, minStrength).encode(SAMPLE_PASSWORD);
+
+        int chosen = minStrength;
+        for (int strength = minStrength; strength <= MAX_BCRYPT_STRENGTH; strength++) {
+            long elapsedMillis = measure(strength);
+            log.info("[PasswordCalibration] BCrypt strength {} took {} ms", strength, elapsedMillis);
+
+            if (elapsedMillis > targetMillis) {
+                break;
+            }
+            chosen = strength;
+
+            // Each step doubles the cost; stop before the next one would blow the budget
+            if (elapsedMillis * 2 > targetMillis) {
+                break;
+            }
+        }
+
+        log.info("[PasswordCalibration] Selected BCrypt strength {} for a {} ms target", chosen, targetMillis);
+        return chosen;
+    }
+
+    private static long measure(int strength) {
+        var encoder = new BCryptPasswordEncoder(BCryptPasswordEncoder.BCryptVersion.$2B, strength);
+        long start = System.nanoTime();
+        encoder.encode(SAMPLE_PASSWORD);
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
@@ -0,0 +1,152 @@
+package com.github.pw2712gz.authbackend.service;
+
+import com.github.pw2712gz.authbackend.exception.AccountThrottledException;
+import com.github.pw2712gz.authbackend.util.CountMinSketch;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Per-account attempt counting for login and password reset, independent of the client IP.
+ * Counts live in fixed-size Count-Min sketches keyed by normalized email and are halved every decay period,
+ * so an attack spread over many IPs still accumulates against the targeted account. Once an account is over
+ * its free attempts, logins are refused before BCrypt runs until decay brings the count back under the budget,
+ * which caps password verifications per account no matter how many sources are involved. Refused attempts are
+ * not counted, so waiting out the Retry-After always works, and a successful login clears the count.
+ */
+@Service
+@Slf4j
+public class AccountAttemptThrottle {
+
+    private final MeterRegistry meterRegistry;
+    private final Counter throttledLogins;
+    private final Counter throttledResets;
+
+    @Value("${auth.throttle.account.enabled:true}")
+    private boolean enabled;
+
+    @Value("${auth.throttle.account.sketch.width:16384}")
+    private int sketchWidth;
+
+    @Value("${auth.throttle.account.sketch.depth:4}")
+    private int sketchDepth;
+
+    @Value("${auth.throttle.account.login.free-attempts:5}")
+    private int loginFreeAttempts;
+
+    @Value("${auth.throttle.account.reset.free-attempts:3}")
+    private int resetFreeAttempts;
+
+    @Value("${auth.throttle.account.decay.ms:60000}")
+    private long decayMillis;
+
+    private CountMinSketch loginFailures;
+    private CountMinSketch resetRequests;
+
+    // Epoch millis of the next scheduled decay; Retry-After counts the halvings still needed from here
+    private volatile long nextDecayAt;
+
+    public AccountAttemptThrottle(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.throttledLogins = Counter.builder("auth.throttle.account.logins.rejected")
+                .description("Login attempts refused before password verification because the account was over its budget")
+                .register(meterRegistry);
+        this.throttledResets = Counter.builder("auth.throttle.account.resets.suppressed")
+                .description("Password reset emails not sent because the account was over its budget")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void init() {
+        nextDecayAt = System.currentTimeMillis() + decayMillis;
+        loginFailures = new CountMinSketch(sketchWidth, sketchDepth);
+        resetRequests = new CountMinSketch(sketchWidth, sketchDepth);
+
+        Gauge.builder("auth.throttle.account.size.bytes", this,
+                        t -> t.loginFailures.sizeInBytes() + t.resetRequests.sizeInBytes())
+                .description("Memory used by the per-account attempt sketches")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Refuses the login if the account has too many recent failures. The refusal itself is not counted.
+     *
+     * @throws AccountThrottledException with the time until decay lets the account log in again
+     */
+    public void checkLogin(String email) {
+        if (!enabled) {
+            return;
+        }
+
+        String key = UserCache.normalize(email);
+        int failures = loginFailures.estimate(key);
+        if (failures >= loginFreeAttempts) {
+            throttledLogins.increment();
+            long retryAfter = retryAfterSeconds(failures);
+            log.warn("[AccountThrottle] Login refused for {} after ~{} failures, retry in {}s", email, failures, retryAfter);
+            throw new AccountThrottledException(retryAfter);
+        }
+    }
+
+    public void recordLoginFailure(String email) {
+        if (enabled) {
+            loginFailures.increment(UserCache.normalize(email));
+        }
+    }
+
+    /**
+     * Clears the account's failures, so the owner is not held back by earlier guesses once they are in.
+     */
+    public void recordLoginSuccess(String email) {
+        if (enabled) {
+            loginFailures.reset(UserCache.normalize(email));
+        }
+    }
+
+    /**
+     * Counts a password reset request; true when the account is over its budget and no email should be sent.
+     */
+    public boolean throttlePasswordReset(String email) {
+        if (!enabled) {
+            return false;
+        }
+
+        int requests = resetRequests.increment(UserCache.normalize(email));
+        if (requests > resetFreeAttempts) {
+            throttledResets.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Halves all counts; an account stops being throttled once enough periods pass without new failures.
+     */
+    @Scheduled(fixedRateString = "${auth.throttle.account.decay.ms:60000}")
+    public void decay() {
+        if (loginFailures != null) {
+            loginFailures.decay();
+            resetRequests.decay();
+        }
+        nextDecayAt = System.currentTimeMillis() + decayMillis;
+    }
+
+    /**
+     * Seconds until enough halvings have run for {@code failures} to drop below the free attempts.
+     */
+    private long retryAfterSeconds(int failures) {
+        int halvings = 0;
+        while (failures >= loginFreeAttempts && failures > 0) {
+            failures >>>= 1;
+            halvings++;
+        }
+        long waitMillis = Math.max(0, nextDecayAt - System.currentTimeMillis())
+                + (long) Math.max(0, halvings - 1) * decayMillis;
+        return Math.max(1, (waitMillis + 999) / 1000);
+    }
+}
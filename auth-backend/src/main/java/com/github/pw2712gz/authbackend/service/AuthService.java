@@ -4,19 +4,31 @@ import com.github.pw2712gz.authbackend.dto.request.LoginRequest;
 import com.github.pw2712gz.authbackend.dto.request.RefreshTokenRequest;
 import com.github.pw2712gz.authbackend.dto.request.RegisterRequest;
 import com.github.pw2712gz.authbackend.dto.response.AuthenticationResponse;
+import com.github.pw2712gz.authbackend.dto.response.SessionResponse;
+import com.github.pw2712gz.authbackend.dto.response.UserResponse;
 import com.github.pw2712gz.authbackend.entity.User;
 import com.github.pw2712gz.authbackend.repository.UserRepository;
+import com.github.pw2712gz.authbackend.security.AuthenticatedUser;
 import com.github.pw2712gz.authbackend.security.JwtProvider;
+import com.github.pw2712gz.authbackend.service.RefreshTokenService.RotatedToken;
+import com.github.pw2712gz.authbackend.service.SignedRefreshTokenService.VerifiedToken;
+import com.github.pw2712gz.authbackend.service.UserCache.CachedUser;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -32,16 +44,34 @@ public class AuthService {
     private final AuthenticationManager authenticationManager;
     private final JwtProvider jwtProvider;
     private final RefreshTokenService refreshTokenService;
+    private final SignedRefreshTokenService signedRefreshTokenService;
+    private final RefreshTokenUsageRecorder refreshTokenUsageRecorder;
     private final MailService mailService;
     private final PasswordResetService passwordResetService;
+    private final UserCache userCache;
+    private final RegisteredEmailFilter registeredEmailFilter;
+    private final AccountAttemptThrottle accountAttemptThrottle;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${auth.me.from-token:false}")
+    private boolean meFromToken;
+
+    @Value("${auth.refresh.rotation.enabled:false}")
+    private boolean refreshRotation;
+
+    @Value("${auth.refresh.signed.enabled:false}")
+    private boolean signedRefresh;
 
     /**
-     * Registers a new user and sends a welcome email.
+     * Registers a new user and queues a welcome email in the same transaction.
+     * The password is hashed before the transaction starts, so no connection is held during BCrypt.
      */
     public void register(RegisterRequest request) {
         log.info("[Auth] Registering new user: {}", request.email());
 
-        if (userRepository.existsByEmail(request.email())) {
+        // A Bloom-filter negative means the email is definitely free; the unique index still guards races
+        if (registeredEmailFilter.mightExist(request.email())
+                && (userCache.isCached(request.email()) || userRepository.existsByEmail(request.email()))) {
             log.warn("[Auth] Registration failed — email already in use: {}", request.email());
             throw new IllegalStateException("Email is already registered");
         }
@@ -55,31 +85,47 @@ public class AuthService {
                 .createdAt(Instant.now())
                 .build();
 
-        userRepository.save(user);
-
         try {
-            mailService.sendWelcomeEmail(user.getEmail(), user.getFirstName());
-        } catch (Exception e) {
-            log.warn("[Auth] Welcome email failed for {}: {}", user.getEmail(), e.getMessage());
+            transactionTemplate.executeWithoutResult(status -> {
+                userRepository.save(user);
+                mailService.sendWelcomeEmail(user.getEmail(), user.getFirstName());
+            });
+        } catch (DataIntegrityViolationException e) {
+            log.warn("[Auth] Registration failed — email already in use: {}", request.email());
+            throw new IllegalStateException("Email is already registered");
         }
+        userCache.invalidate(user.getEmail());
+        registeredEmailFilter.add(user.getEmail());
     }
 
     /**
      * Authenticates a user and returns a new access and refresh token pair.
+     * The principal loaded during authentication is reused, so login costs one SELECT and one INSERT.
+     * Accounts with too many recent failures are refused before the password is checked.
      */
     public AuthenticationResponse login(LoginRequest request) {
         log.info("[Auth] Login attempt for: {}", request.email());
 
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(request.email(), request.password())
-        );
+        accountAttemptThrottle.checkLogin(request.email());
+
+        Authentication authentication;
+        try {
+            authentication = authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken(request.email(), request.password())
+            );
+        } catch (BadCredentialsException e) {
+            accountAttemptThrottle.recordLoginFailure(request.email());
+            throw e;
+        }
+        accountAttemptThrottle.recordLoginSuccess(request.email());
         SecurityContextHolder.getContext().setAuthentication(authentication);
 
-        User user = userRepository.findByEmail(request.email())
-                .orElseThrow(() -> new IllegalStateException("User not found: " + request.email()));
+        AuthenticatedUser principal = (AuthenticatedUser) authentication.getPrincipal();
 
         String jwt = jwtProvider.generateToken(authentication);
-        String refreshToken = refreshTokenService.generateTokenForUser(user);
+        String refreshToken = signedRefresh
+                ? signedRefreshTokenService.issue(principal)
+                : refreshTokenService.generateTokenForUser(principal.getId());
         Instant expiration = Instant.now().plusMillis(jwtProvider.getJwtExpirationInMillis());
 
         log.info("[Auth] Login successful for: {}", request.email());
@@ -89,11 +135,43 @@ public class AuthService {
 
     /**
      * Refreshes the access token using a valid refresh token.
+     * With rotation enabled the refresh token is replaced on every call; signed refresh tokens
+     * are verified without touching the database and returned unchanged.
      */
     public AuthenticationResponse refresh(RefreshTokenRequest request) {
+        return refresh(request, null);
+    }
+
+    /**
+     * Same as {@link #refresh(RefreshTokenRequest)}, recording the client address as the stored token's last use.
+     */
+    public AuthenticationResponse refresh(RefreshTokenRequest request, String clientIp) {
         log.debug("[Auth] Refreshing token for: {}", request.email());
 
+        if (signedRefresh) {
+            VerifiedToken verified = signedRefreshTokenService.verify(request.refreshToken());
+            String jwt = jwtProvider.generateTokenWithUsername(
+                    verified.email(), verified.userId(), verified.firstName(), verified.lastName());
+            Instant expiration = Instant.now().plusMillis(jwtProvider.getJwtExpirationInMillis());
+
+            log.debug("[Auth] Token refreshed from signed token for user id: {}", verified.userId());
+            return new AuthenticationResponse(jwt, request.refreshToken(), expiration, verified.email());
+        }
+
+        if (refreshRotation) {
+            // The use is stored on the replacement's INSERT; the consumed token is never presented again
+            RotatedToken rotated = refreshTokenService.rotate(request.refreshToken(), clientIp);
+            // Issued to the token's owner, not to the email in the request body
+            String jwt = jwtProvider.generateTokenWithUsername(
+                    rotated.email(), rotated.userId(), rotated.firstName(), rotated.lastName());
+            Instant expiration = Instant.now().plusMillis(jwtProvider.getJwtExpirationInMillis());
+
+            log.debug("[Auth] Token refreshed and rotated for user id: {}", rotated.userId());
+            return new AuthenticationResponse(jwt, rotated.token(), expiration, rotated.email());
+        }
+
         refreshTokenService.validate(request.refreshToken());
+        refreshTokenUsageRecorder.record(request.refreshToken(), clientIp);
 
         String jwt = jwtProvider.generateTokenWithUsername(request.email());
         Instant expiration = Instant.now().plusMillis(jwtProvider.getJwtExpirationInMillis());
@@ -108,7 +186,11 @@ public class AuthService {
      */
     public void logout(RefreshTokenRequest request) {
         log.debug("[Auth] Logging out: {}", request.email());
-        refreshTokenService.delete(request.refreshToken());
+        if (signedRefresh) {
+            signedRefreshTokenService.revoke(request.refreshToken());
+        } else {
+            refreshTokenService.delete(request.refreshToken());
+        }
         log.info("[Auth] Refresh token invalidated for: {}", request.email());
     }
 
@@ -116,38 +198,91 @@ public class AuthService {
      * Returns the currently authenticated user from the security context.
      */
     public User getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String email = currentUserEmail();
 
-        if (authentication == null || !authentication.isAuthenticated()) {
-            throw new IllegalStateException("No authenticated user found in context");
+        return userRepository.findByEmail(email)
+                .orElseThrow(() -> new IllegalStateException("User not found: " + email));
+    }
+
+    /**
+     * Returns the current user's profile. When enabled, it is built straight from the
+     * access token's claims; tokens without current profile claims fall back to the database.
+     */
+    public UserResponse getCurrentUserProfile() {
+        if (meFromToken && SecurityContextHolder.getContext().getAuthentication() instanceof JwtAuthenticationToken jwtAuth) {
+            Optional<UserResponse> profile = jwtProvider.readProfile(jwtAuth.getToken());
+            if (profile.isPresent()) {
+                return profile.get();
+            }
         }
 
-        String email = authentication.getName();
+        String email = currentUserEmail();
+        CachedUser user = userCache.findByEmail(email)
+                .orElseThrow(() -> new IllegalStateException("User not found: " + email));
 
-        return userRepository.findByEmail(email)
+        return new UserResponse(
+                user.id(),
+                user.firstName(),
+                user.lastName(),
+                user.email()
+        );
+    }
+
+    /**
+     * Lists the current user's active refresh-token sessions. Signed refresh tokens are not stored,
+     * so in that mode the list is empty.
+     */
+    public List<SessionResponse> getCurrentUserSessions() {
+        String email = currentUserEmail();
+        CachedUser user = userCache.findByEmail(email)
                 .orElseThrow(() -> new IllegalStateException("User not found: " + email));
+
+        return refreshTokenService.listSessions(user.id());
     }
 
     /**
-     * Sends a password reset email with a reset token if the user exists.
+     * Creates a reset token and queues the reset email in one transaction, if the user exists.
      */
     public void sendResetPasswordEmail(String email) {
-        Optional<User> userOpt = userRepository.findByEmail(email);
+        // Counted before the existence checks so throttling reveals nothing about registered emails
+        if (accountAttemptThrottle.throttlePasswordReset(email)) {
+            log.warn("[Auth] Password reset throttled for: {}", email);
+            return;
+        }
+
+        if (!registeredEmailFilter.mightExist(email)) {
+            log.debug("[Auth] Password reset skipped — email not registered: {}", email);
+            return;
+        }
+
+        Optional<CachedUser> userOpt = userCache.findByEmail(email);
 
         if (userOpt.isEmpty()) {
             log.warn("[Auth] Password reset skipped — no user found for: {}", email);
             return;
         }
 
-        User user = userOpt.get();
-        String token = passwordResetService.createTokenForUser(user);
-        String link = "http://localhost:4200/reset-password?token=" + token;
-
+        CachedUser user = userOpt.get();
         try {
-            mailService.sendResetPasswordEmail(user.getEmail(), user.getFirstName(), link);
-            log.info("[Auth] Sent password reset email to: {}", email);
+            transactionTemplate.executeWithoutResult(status -> {
+                String token = passwordResetService.createTokenForUser(userRepository.getReferenceById(user.id()));
+                String link = "http://localhost:4200/reset-password?token=" + token;
+                mailService.sendResetPasswordEmail(user.email(), user.firstName(), link);
+            });
+            log.info("[Auth] Queued password reset email to: {}", email);
         } catch (Exception e) {
-            log.error("[Auth] Failed to send reset email to {}: {}", email, e.getMessage(), e);
+            // Swallowed like the other outcomes, so the response never tells whether the account exists
+            log.error("[Auth] Failed to queue reset email to {}: {}", email, e.getMessage(), e);
         }
     }
+
+    private String currentUserEmail() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+
+        if (authentication == null || !authentication.isAuthenticated()) {
+            throw new IllegalStateException("No authenticated user found in context");
+        }
+
+        return authentication.getName();
+    }
 }
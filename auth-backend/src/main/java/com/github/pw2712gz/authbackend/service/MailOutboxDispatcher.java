@@ -0,0 +1,180 @@
+package com.github.pw2712gz.authbackend.service;
+
+import com.github.pw2712gz.authbackend.entity.MailOutboxMessage;
+import com.github.pw2712gz.authbackend.entity.MailOutboxMessage.Status;
+import com.github.pw2712gz.authbackend.exception.MailDeliveryException;
+import com.github.pw2712gz.authbackend.repository.MailOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drains the mail outbox in the background, so request threads never wait on the mail provider.
+ * Failed sends are retried with jittered exponential backoff until the attempt limit; errors the provider will
+ * repeat (most 4xx) fail the message at once. Each message is claimed before sending, so with several instances
+ * only one sends it, and the idempotency key covers a send whose outcome was lost.
+ * Sends block on the provider, so dispatch runs on its own thread rather than the shared scheduler; a slow or
+ * unreachable provider never delays the other scheduled jobs.
+ */
+@Service
+@Slf4j
+public class MailOutboxDispatcher {
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final MailOutboxRepository outboxRepository;
+    private final MailService mailService;
+    private final Counter sentCounter;
+    private final Counter retriedCounter;
+    private final Counter failedCounter;
+    private final ScheduledExecutorService dispatchExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "mail-outbox");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${mail.outbox.batch-size:20}")
+    private int batchSize;
+
+    @Value("${mail.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${mail.outbox.backoff.initial.ms:5000}")
+    private long initialBackoffMillis;
+
+    @Value("${mail.outbox.backoff.max.ms:1800000}")
+    private long maxBackoffMillis;
+
+    // Longer than a send can take, so a claimed message is only picked up again if its sender died
+    @Value("${mail.outbox.lease.ms:60000}")
+    private long leaseMillis;
+
+    @Value("${mail.outbox.retention.days:7}")
+    private long retentionDays;
+
+    @Value("${mail.outbox.poll.ms:1000}")
+    private long pollMillis;
+
+    private volatile long pending;
+
+    public MailOutboxDispatcher(MailOutboxRepository outboxRepository, MailService mailService, MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.mailService = mailService;
+        this.sentCounter = Counter.builder("mail.outbox.sent")
+                .description("Outbox messages accepted by the mail provider")
+                .register(meterRegistry);
+        this.retriedCounter = Counter.builder("mail.outbox.retried")
+                .description("Failed sends scheduled for another attempt")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("mail.outbox.failed")
+                .description("Outbox messages given up on")
+                .register(meterRegistry);
+
+        Gauge.builder("mail.outbox.pending", this, d -> d.pending)
+                .description("Outbox messages not yet sent, as of the last dispatch")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        dispatchExecutor.scheduleWithFixedDelay(this::dispatch, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatchExecutor.shutdown();
+    }
+
+    /**
+     * Sends up to one batch of due messages, every {@code mail.outbox.poll.ms} on the dispatcher's own thread.
+     */
+    public void dispatch() {
+        try {
+            List<MailOutboxMessage> due = outboxRepository.findDue(Status.PENDING, Instant.now(), Limit.of(batchSize));
+            for (MailOutboxMessage message : due) {
+                // Taken at claim time: earlier sends in the batch must not eat into this message's lease
+                Instant leaseUntil = Instant.now().plusMillis(leaseMillis);
+                if (outboxRepository.claim(message.getId(), Status.PENDING, message.getNextAttemptAt(), leaseUntil) == 1) {
+                    deliver(message);
+                }
+            }
+            pending = outboxRepository.countByStatus(Status.PENDING);
+        } catch (Exception e) {
+            log.warn("[MailOutbox] Dispatch failed, retrying next poll: {}", e.getMessage());
+        }
+    }
+
+    void deliver(MailOutboxMessage message) {
+        int attempt = message.getAttempts() + 1;
+        message.setAttempts(attempt);
+        try {
+            mailService.send(message);
+            message.setStatus(Status.SENT);
+            message.setSentAt(Instant.now());
+            message.setLastError(null);
+            sentCounter.increment();
+        } catch (Exception e) {
+            boolean retryable = !(e instanceof MailDeliveryException delivery) || delivery.isRetryable();
+            message.setLastError(truncate(e.getMessage()));
+            if (retryable && attempt < maxAttempts) {
+                Duration delay = backoff(attempt);
+                message.setNextAttemptAt(Instant.now().plus(delay));
+                retriedCounter.increment();
+                log.warn("[MailOutbox] Send {} of message {} failed, retrying in {}s: {}",
+                        attempt, message.getId(), delay.toSeconds(), e.getMessage());
+            } else {
+                message.setStatus(Status.FAILED);
+                failedCounter.increment();
+                log.error("[MailOutbox] Giving up on message {} to '{}' after {} attempt(s): {}",
+                        message.getId(), message.getRecipient(), attempt, e.getMessage());
+            }
+        }
+        outboxRepository.save(message);
+    }
+
+    /**
+     * Doubles per attempt up to the cap, randomized over its upper half so retries from one outage spread out.
+     */
+    Duration backoff(int attempt) {
+        long delay = initialBackoffMillis << Math.min(attempt - 1, 30);
+        delay = Math.min(delay <= 0 ? maxBackoffMillis : delay, maxBackoffMillis);
+        return Duration.ofMillis(delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1));
+    }
+
+    /**
+     * Deletes sent and failed messages once they are older than the retention period.
+     */
+    @Scheduled(fixedRateString = "${mail.outbox.cleanup.interval.ms:3600000}")
+    public void purge() {
+        try {
+            int deleted = outboxRepository.deleteFinishedBefore(Status.PENDING, Instant.now().minus(Duration.ofDays(retentionDays)));
+            if (deleted > 0) {
+                log.info("[MailOutbox] Deleted {} finished message(s)", deleted);
+            }
+        } catch (Exception e) {
+            log.warn("[MailOutbox] Purge failed: {}", e.getMessage());
+        }
+    }
+
+    private static String truncate(String error) {
+        if (error == null || error.length() <= MAX_ERROR_LENGTH) {
+            return error;
+        }
+        return error.substring(0, MAX_ERROR_LENGTH);
+    }
+}
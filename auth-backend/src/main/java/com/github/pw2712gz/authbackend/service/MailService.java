@@ -1,6 +1,11 @@
 package com.github.pw2712gz.authbackend.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.pw2712gz.authbackend.entity.MailOutboxMessage;
+import com.github.pw2712gz.authbackend.exception.MailDeliveryException;
+import com.github.pw2712gz.authbackend.repository.MailOutboxRepository;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -15,17 +20,26 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Map;
+import java.util.UUID;
 
 /**
  * Service for sending HTML emails using Thymeleaf and Resend API.
+ * Callers only {@link #enqueue} messages into the mail outbox, as part of their own transaction;
+ * {@link MailOutboxDispatcher} renders and sends them in the background.
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class MailService {
 
+    private static final TypeReference<Map<String, Object>> MODEL_TYPE = new TypeReference<>() {
+    };
+
     private final TemplateEngine templateEngine;
+    private final MailOutboxRepository outboxRepository;
     private final ObjectMapper objectMapper = new ObjectMapper();
     private HttpClient httpClient;
 
@@ -35,23 +49,67 @@ public class MailService {
     @Value("${resend.from}")
     private String from;
 
+    @Value("${mail.send.timeout.ms:10000}")
+    private long sendTimeoutMillis;
+
     @PostConstruct
     public void init() {
-        this.httpClient = HttpClient.newHttpClient();
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(sendTimeoutMillis))
+                .build();
+    }
+
+    /**
+     * Adds an email to the outbox. Joins the caller's transaction when there is one, so the email is sent
+     * if and only if the caller's changes commit.
+     */
+    public void enqueue(String to, String subject, String templateName, Map<String, Object> model) {
+        if (to == null || subject == null || templateName == null || model == null) {
+            throw new IllegalArgumentException("[MailService] Missing email parameters");
+        }
+
+        Instant now = Instant.now();
+        try {
+            outboxRepository.save(MailOutboxMessage.builder()
+                    .idempotencyKey(UUID.randomUUID().toString())
+                    .recipient(to)
+                    .subject(subject)
+                    .template(templateName)
+                    .model(objectMapper.writeValueAsString(model))
+                    .status(MailOutboxMessage.Status.PENDING)
+                    .nextAttemptAt(now)
+                    .createdAt(now)
+                    .build());
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("[MailService] Email model is not serializable", e);
+        }
+        log.debug("[MailService] Queued '{}' to '{}'", templateName, to);
+    }
+
+    /**
+     * Sends an outbox message through Resend.
+     */
+    public void send(MailOutboxMessage message) {
+        try {
+            sendHtml(message.getRecipient(), message.getSubject(), message.getTemplate(),
+                    objectMapper.readValue(message.getModel(), MODEL_TYPE), message.getIdempotencyKey());
+        } catch (JsonProcessingException e) {
+            throw new MailDeliveryException("Unreadable email model", 400);
+        }
     }
 
     /**
-     * Sends a Resend email with a rendered HTML template.
+     * Sends a Resend email with a rendered HTML template. Resend delivers a given idempotency key at most once,
+     * so retries of the same message are safe.
      */
-    public void sendHtml(String to, String subject, String templateName, Map<String, Object> model) {
+    public void sendHtml(String to, String subject, String templateName, Map<String, Object> model, String idempotencyKey) {
         if (to == null || subject == null || templateName == null || model == null) {
             throw new IllegalArgumentException("[MailService] Missing email parameters");
         }
 
+        HttpResponse<String> response;
         try {
-            Context context = new Context();
-            context.setVariables(model);
-            String html = templateEngine.process(templateName, context);
+            String html = render(templateName, model);
 
             Map<String, Object> payload = Map.of(
                     "from", from,
@@ -62,37 +120,51 @@ public class MailService {
 
             String body = objectMapper.writeValueAsString(payload);
 
-            HttpRequest request = HttpRequest.newBuilder()
+            HttpRequest.Builder request = HttpRequest.newBuilder()
                     .uri(URI.create("https://api.resend.com/emails"))
+                    .timeout(Duration.ofMillis(sendTimeoutMillis))
                     .header(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
                     .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
-                    .POST(HttpRequest.BodyPublishers.ofString(body))
-                    .build();
-
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-
-            if (response.statusCode() >= 200 && response.statusCode() < 300) {
-                log.debug("[MailService] ✅ Sent email to '{}' | Subject: '{}' | Template: {}", to, subject, templateName);
-            } else {
-                log.error("[MailService] ❌ Failed to send email: {} - {}", response.statusCode(), response.body());
-                throw new RuntimeException("Email failed with code: " + response.statusCode());
+                    .POST(HttpRequest.BodyPublishers.ofString(body));
+            if (idempotencyKey != null) {
+                request.header("Idempotency-Key", idempotencyKey);
             }
 
+            response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MailDeliveryException("Failed to send email", e);
         } catch (Exception e) {
             log.error("[MailService] ❌ Exception sending email to '{}': {}", to, e.getMessage(), e);
-            throw new RuntimeException("Failed to send email", e);
+            throw new MailDeliveryException("Failed to send email", e);
         }
+
+        if (response.statusCode() >= 200 && response.statusCode() < 300) {
+            log.debug("[MailService] ✅ Sent email to '{}' | Subject: '{}' | Template: {}", to, subject, templateName);
+        } else {
+            log.error("[MailService] ❌ Failed to send email: {} - {}", response.statusCode(), response.body());
+            throw new MailDeliveryException("Failed to send email, code: " + response.statusCode(), response.statusCode());
+        }
+    }
+
+    /**
+     * Renders an email template to HTML.
+     */
+    public String render(String templateName, Map<String, Object> model) {
+        Context context = new Context();
+        context.setVariables(model);
+        return templateEngine.process(templateName, context);
     }
 
     public void sendWelcomeEmail(String to, String name) {
-        sendHtml(to, "🎉 Welcome to AuthApp", "email/welcome.html", Map.of("name", name));
+        enqueue(to, "🎉 Welcome to AuthApp", "email/welcome.html", Map.of("name", name));
     }
 
     public void sendResetPasswordEmail(String to, String name, String resetLink) {
-        sendHtml(to, "Reset your password", "email/reset-password.html", Map.of("name", name, "link", resetLink));
+        enqueue(to, "Reset your password", "email/reset-password.html", Map.of("name", name, "link", resetLink));
     }
 
     public void sendPasswordChangedEmail(String to, String name) {
-        sendHtml(to, "Your password was changed", "email/password-changed.html", Map.of("name", name));
+        enqueue(to, "Your password was changed", "email/password-changed.html", Map.of("name", name));
     }
 }
\ No newline at end of file
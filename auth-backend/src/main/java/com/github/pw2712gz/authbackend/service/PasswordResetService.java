@@ -4,21 +4,25 @@ import com.github.pw2712gz.authbackend.entity.PasswordResetToken;
 import com.github.pw2712gz.authbackend.entity.User;
 import com.github.pw2712gz.authbackend.repository.PasswordResetTokenRepository;
 import com.github.pw2712gz.authbackend.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.transaction.Transactional;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.lang.management.ManagementFactory;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Service for generating, validating, and cleaning up password reset tokens.
@@ -34,10 +38,19 @@ public class PasswordResetService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final MailService mailService;
+    private final UserCache userCache;
+    private final MeterRegistry meterRegistry;
 
     @Value("${cleanup.token.min.age.days:1}")
     private int tokenMinAgeDays;
 
+    @Value("${cleanup.token.batch-size:1000}")
+    private int cleanupBatchSize;
+
+    // Partition drops take over expiry, see TokenPartitionMaintainer
+    @Value("${storage.partitioning.enabled:false}")
+    private boolean partitioned;
+
     @Getter
     @Setter
     @Value("${cleanup.token.interval.ms:3600000}")
@@ -58,7 +71,7 @@ public class PasswordResetService {
                 .build();
 
         tokenRepository.save(resetToken);
-        log.debug("[PasswordReset] Token created for {}: {}", user.getEmail(), token);
+        log.debug("[PasswordReset] Token created for user id {}", user.getId());
 
         return token;
     }
@@ -96,32 +109,50 @@ public class PasswordResetService {
 
         user.setPassword(passwordEncoder.encode(newPassword));
         userRepository.save(user);
+        userCache.invalidate(user.getEmail());
 
         resetToken.setUsed(true);
         tokenRepository.save(resetToken);
 
-        try {
-            mailService.sendPasswordChangedEmail(user.getEmail(), user.getFirstName());
-        } catch (Exception e) {
-            log.error("[PasswordReset] Failed to send confirmation email to {}: {}", user.getEmail(), e.getMessage(), e);
-        }
+        // Queued in this transaction; sent by MailOutboxDispatcher after the commit
+        mailService.sendPasswordChangedEmail(user.getEmail(), user.getFirstName());
 
         log.info("[PasswordReset] Password reset successful for {}", user.getEmail());
         return true;
     }
 
     /**
-     * Deletes expired tokens that are older than the configured age.
+     * Deletes used tokens and tokens expired for longer than the configured age, in batches of ids.
+     * Entities are never loaded, so time and memory depend on the batch size, not on the backlog.
      */
     public void cleanupExpiredTokens() {
         Instant cutoff = Instant.now().minus(tokenMinAgeDays, ChronoUnit.DAYS);
-        List<PasswordResetToken> expired = tokenRepository.findAllByExpiresAtBefore(cutoff);
+        long start = System.nanoTime();
+        long allocatedBefore = allocatedBytes();
+
+        int deleted = 0;
+        List<Long> ids;
+        do {
+            ids = tokenRepository.findPurgeableIds(cutoff, Limit.of(cleanupBatchSize));
+            if (!ids.isEmpty()) {
+                deleted += tokenRepository.deleteAllByIdIn(ids);
+            }
+        } while (!ids.isEmpty() && ids.size() == cleanupBatchSize);
+
+        long elapsedNanos = System.nanoTime() - start;
+        long allocated = allocatedBefore < 0 ? -1 : allocatedBytes() - allocatedBefore;
+
+        meterRegistry.timer("password.reset.cleanup.duration").record(elapsedNanos, TimeUnit.NANOSECONDS);
+        meterRegistry.counter("password.reset.cleanup.deleted").increment(deleted);
+        if (allocated >= 0) {
+            meterRegistry.summary("password.reset.cleanup.allocated.bytes").record(allocated);
+        }
 
-        if (!expired.isEmpty()) {
-            tokenRepository.deleteAll(expired);
-            log.info("[PasswordReset] Deleted {} expired token(s) older than {} day(s)", expired.size(), tokenMinAgeDays);
+        if (deleted > 0) {
+            log.info("[PasswordReset] Deleted {} used or expired token(s) in {} ms, {} KB allocated",
+                    deleted, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), allocated / 1024);
         } else {
-            log.debug("[PasswordReset] No expired tokens found older than {} day(s)", tokenMinAgeDays);
+            log.debug("[PasswordReset] No used or expired tokens found older than {} day(s)", tokenMinAgeDays);
         }
     }
 
@@ -130,7 +161,19 @@ public class PasswordResetService {
      */
     @Scheduled(fixedRateString = "${cleanup.token.interval.ms}")
     public void scheduledTokenCleanup() {
+        if (partitioned) {
+            return;
+        }
         log.info("[PasswordReset] Scheduled token cleanup started");
         cleanupExpiredTokens();
     }
+
+    // Bytes allocated by the current thread so far, or -1 when the JVM can't tell
+    private static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+            return bean.getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
 }
@@ -0,0 +1,35 @@
+package com.github.pw2712gz.authbackend.service;
+
+import com.github.pw2712gz.authbackend.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+/**
+ * Persists re-encoded password hashes off the login request thread.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PasswordUpgradeService {
+
+    private final UserRepository userRepository;
+    private final UserCache userCache;
+
+    /**
+     * Replaces the stored hash only if it still matches the one that was verified,
+     * so a concurrent password reset is never overwritten.
+     */
+    @Async
+    public void upgrade(String email, String currentHash, String upgradedHash) {
+        int updated = userRepository.updatePasswordIfUnchanged(email, currentHash, upgradedHash);
+
+        if (updated > 0) {
+            userCache.invalidate(email);
+            log.info("[PasswordUpgrade] Re-encoded password hash for {}", email);
+        } else {
+            log.debug("[PasswordUpgrade] Skipped upgrade for {} — password changed concurrently", email);
+        }
+    }
+}
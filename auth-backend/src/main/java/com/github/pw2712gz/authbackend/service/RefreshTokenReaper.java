@@ -0,0 +1,160 @@
+package com.github.pw2712gz.authbackend.service;
+
+import com.github.pw2712gz.authbackend.repository.RefreshTokenRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Deletes expired refresh tokens continuously in small batches instead of one hourly DELETE.
+ * Each tick removes at most one batch of the longest-expired rows via the expires_at index, so locks
+ * are short and the undo log stays small. A slow batch means the database is busy, so the reaper
+ * backs off; once caught up it idles until new rows expire.
+ */
+@Service
+@Slf4j
+public class RefreshTokenReaper {
+
+    private static final long RATE_WINDOW_MILLIS = 60_000;
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final Clock clock;
+    private final Counter deletedCounter;
+    private final Counter batchCounter;
+    private final Counter backoffCounter;
+    private final Timer batchTimer;
+
+    @Value("${auth.refresh.reaper.enabled:true}")
+    private boolean enabled;
+
+    // Partition drops take over expiry, see TokenPartitionMaintainer
+    @Value("${storage.partitioning.enabled:false}")
+    private boolean partitioned;
+
+    @Value("${auth.refresh.reaper.batch-size:500}")
+    private int batchSize;
+
+    @Value("${auth.refresh.reaper.latency-threshold.ms:200}")
+    private long latencyThresholdMillis;
+
+    @Value("${auth.refresh.reaper.backoff.ms:30000}")
+    private long backoffMillis;
+
+    @Value("${auth.refresh.reaper.idle.ms:60000}")
+    private long idleMillis;
+
+    private long resumeAt;
+    private volatile double lagSeconds;
+    private volatile double rowsPerSecond;
+    private long windowStart;
+    private long windowDeleted;
+
+    @Autowired
+    public RefreshTokenReaper(RefreshTokenRepository refreshTokenRepository, MeterRegistry meterRegistry) {
+        this(refreshTokenRepository, meterRegistry, Clock.systemUTC());
+    }
+
+    RefreshTokenReaper(RefreshTokenRepository refreshTokenRepository, MeterRegistry meterRegistry, Clock clock) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.clock = clock;
+        this.windowStart = clock.millis();
+
+        this.deletedCounter = Counter.builder("auth.refresh.reaper.deleted")
+                .description("Expired refresh tokens deleted")
+                .register(meterRegistry);
+        this.batchCounter = Counter.builder("auth.refresh.reaper.batches")
+                .description("Delete batches executed")
+                .register(meterRegistry);
+        this.backoffCounter = Counter.builder("auth.refresh.reaper.backoffs")
+                .description("Pauses taken because a batch exceeded the latency threshold")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("auth.refresh.reaper.batch.duration")
+                .description("Time to select and delete one batch")
+                .register(meterRegistry);
+
+        Gauge.builder("auth.refresh.reaper.lag.seconds", this, r -> r.lagSeconds)
+                .description("Age of the oldest expired refresh token still stored")
+                .register(meterRegistry);
+        Gauge.builder("auth.refresh.reaper.rows.per.second", this, r -> r.rowsPerSecond)
+                .description("Deletion rate over the last minute")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Deletes one batch per tick; the fixed delay between ticks is the pause between batches.
+     */
+    @Scheduled(fixedDelayString = "${auth.refresh.reaper.pause.ms:500}")
+    public void reap() {
+        if (!enabled || partitioned) {
+            return;
+        }
+
+        long start = clock.millis();
+        if (start < resumeAt) {
+            recordRate(start, 0);
+            return;
+        }
+
+        int selected;
+        int deleted;
+        try {
+            List<Long> ids = refreshTokenRepository.findExpiredIds(clock.instant(), Limit.of(batchSize));
+            selected = ids.size();
+            deleted = ids.isEmpty() ? 0 : refreshTokenRepository.deleteAllByIdIn(ids);
+        } catch (Exception e) {
+            log.warn("[RefreshTokenReaper] Batch failed, backing off: {}", e.getMessage());
+            resumeAt = clock.millis() + backoffMillis;
+            return;
+        }
+
+        long end = clock.millis();
+        long elapsed = end - start;
+        recordRate(end, deleted);
+
+        if (deleted > 0) {
+            batchTimer.record(Duration.ofMillis(elapsed));
+            batchCounter.increment();
+            deletedCounter.increment(deleted);
+            log.debug("[RefreshTokenReaper] Deleted {} expired token(s) in {} ms", deleted, elapsed);
+        }
+
+        if (selected < batchSize) {
+            // Caught up: nothing older than now is left
+            lagSeconds = 0;
+            resumeAt = end + idleMillis;
+            return;
+        }
+
+        lagSeconds = refreshTokenRepository.findOldestExpiresAt()
+                .map(oldest -> Math.max(0, Duration.between(oldest, clock.instant()).toMillis() / 1000.0))
+                .orElse(0.0);
+
+        if (elapsed > latencyThresholdMillis) {
+            log.info("[RefreshTokenReaper] Batch took {} ms (threshold {} ms), pausing for {} ms",
+                    elapsed, latencyThresholdMillis, backoffMillis);
+            backoffCounter.increment();
+            resumeAt = end + backoffMillis;
+        }
+    }
+
+    private void recordRate(long now, int deleted) {
+        windowDeleted += deleted;
+        long window = now - windowStart;
+        if (window >= RATE_WINDOW_MILLIS) {
+            rowsPerSecond = windowDeleted * 1000.0 / window;
+            windowStart = now;
+            windowDeleted = 0;
+        }
+    }
+}
@@ -1,20 +1,26 @@
 package com.github.pw2712gz.authbackend.service;
 
+import com.github.pw2712gz.authbackend.dto.response.SessionResponse;
 import com.github.pw2712gz.authbackend.entity.RefreshToken;
 import com.github.pw2712gz.authbackend.entity.User;
 import com.github.pw2712gz.authbackend.repository.RefreshTokenRepository;
+import com.github.pw2712gz.authbackend.repository.RefreshTokenRepository.RotationView;
+import com.github.pw2712gz.authbackend.repository.UserRepository;
+import com.github.pw2712gz.authbackend.util.TokenHashUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.List;
 import java.util.UUID;
 
 /**
- * Service for managing refresh tokens — creation, validation, and cleanup.
+ * Service for managing refresh tokens — creation, validation, and rotation.
+ * Expired tokens are removed by {@link RefreshTokenReaper}.
  */
 @Service
 @RequiredArgsConstructor
@@ -25,35 +31,116 @@ public class RefreshTokenService {
     public static final long REFRESH_TOKEN_EXPIRY_DAYS = 30;
 
     private final RefreshTokenRepository refreshTokenRepository;
+    private final UserRepository userRepository;
+
+    @Value("${auth.refresh.rotation.reuse-grace.seconds:10}")
+    private long reuseGraceSeconds;
+
+    // How long a consumed token is kept so that replaying it revokes its family
+    @Value("${auth.refresh.rotation.reuse-detection.seconds:86400}")
+    private long reuseDetectionSeconds;
+
+    @Value("${auth.refresh.usage.enabled:true}")
+    private boolean recordUsage;
+
+    @Value("${auth.sessions.max-per-user:10}")
+    private int maxSessionsPerUser;
 
     /**
-     * Generates and persists a new refresh token for the given user.
+     * Generates a 256-bit random refresh token for the given user and persists only its SHA-256 hash.
+     * Each call starts a new token family (session); beyond the per-user cap the oldest sessions are evicted
+     * together with the rotated tokens of their families.
      */
     public String generateTokenForUser(User user) {
-        String tokenValue = UUID.randomUUID().toString();
+        String token = issue(user, UUID.randomUUID().toString(), null, null);
 
-        RefreshToken token = new RefreshToken();
-        token.setToken(tokenValue);
-        token.setUser(user);
-        token.setCreatedAt(Instant.now());
-        token.setExpiresAt(Instant.now().plus(REFRESH_TOKEN_EXPIRY_DAYS, ChronoUnit.DAYS));
+        if (maxSessionsPerUser > 0) {
+            int evicted = refreshTokenRepository.deleteOldestSessions(user.getId(), maxSessionsPerUser);
+            if (evicted > 0) {
+                int consumed = refreshTokenRepository.deleteDeadFamilies(user.getId());
+                log.info("[RefreshToken] Evicted {} oldest session(s) and {} rotated token(s) for user id: {}",
+                        evicted, consumed, user.getId());
+            }
+        }
+        return token;
+    }
 
-        refreshTokenRepository.save(token);
-        log.debug("[RefreshToken] Created token for user: {}", user.getEmail());
+    /**
+     * Generates a refresh token for a user id without loading the user —
+     * the reference proxy only supplies the foreign key for the INSERT.
+     */
+    public String generateTokenForUser(Long userId) {
+        return generateTokenForUser(userRepository.getReferenceById(userId));
+    }
 
-        return tokenValue;
+    /**
+     * Exchanges a refresh token for a new one in the same family.
+     * The old token is consumed by a single conditional UPDATE, so of two concurrent refreshes only one wins.
+     * Presenting an already-consumed token after the grace window is treated as theft and revokes the whole family.
+     * Consumed tokens older than the reuse-detection window are deleted here, so a user's row count stays bounded.
+     */
+    public RotatedToken rotate(String token) {
+        return rotate(token, null);
     }
 
     /**
-     * Validates a refresh token — must exist and not be expired.
+     * Same as {@link #rotate(String)}, recording the use and client address on the replacement's INSERT,
+     * so rotation needs no separate last-use write.
+     */
+    @Transactional(noRollbackFor = {IllegalArgumentException.class, IllegalStateException.class})
+    public RotatedToken rotate(String token, String clientIp) {
+        byte[] tokenHash = TokenHashUtils.sha256(token);
+        Instant now = Instant.now();
+
+        int consumed = refreshTokenRepository.consume(tokenHash, now);
+        RotationView view = refreshTokenRepository.findRotationViewByTokenHash(tokenHash)
+                .orElseThrow(() -> {
+                    log.warn("[RefreshToken] Invalid token");
+                    return new IllegalArgumentException("Invalid refresh token");
+                });
+
+        if (consumed == 0) {
+            if (view.getConsumedAt() != null) {
+                if (view.getConsumedAt().isAfter(now.minusSeconds(reuseGraceSeconds))) {
+                    // Parallel requests refreshing with the same token; the first one got the replacement
+                    log.warn("[RefreshToken] Concurrent refresh for user id: {} — rejected without revoking", view.getUserId());
+                    throw new IllegalArgumentException("Invalid refresh token");
+                }
+
+                int revoked = view.getFamilyId() == null ? 0 : refreshTokenRepository.revokeFamily(view.getFamilyId(), now);
+                log.warn("[RefreshToken] Reuse of consumed token for user id: {} — revoked {} token(s) in family",
+                        view.getUserId(), revoked);
+                throw new IllegalArgumentException("Invalid refresh token");
+            }
+
+            log.warn("[RefreshToken] Expired token");
+            throw new IllegalStateException("Refresh token expired");
+        }
+
+        String familyId = view.getFamilyId() != null ? view.getFamilyId() : UUID.randomUUID().toString();
+        String replacement = issue(userRepository.getReferenceById(view.getUserId()), familyId,
+                recordUsage ? now : null, recordUsage ? clientIp : null);
+        refreshTokenRepository.deleteConsumedBefore(view.getUserId(),
+                now.minusSeconds(Math.max(reuseDetectionSeconds, reuseGraceSeconds)));
+
+        return new RotatedToken(replacement, view.getUserId(), view.getEmail(), view.getFirstName(), view.getLastName());
+    }
+
+    /**
+     * Validates a refresh token — must exist, not be expired and not have been rotated.
      */
     public void validate(String token) {
-        RefreshToken refreshToken = refreshTokenRepository.findByToken(token)
+        RefreshToken refreshToken = refreshTokenRepository.findByTokenHash(TokenHashUtils.sha256(token))
                 .orElseThrow(() -> {
                     log.warn("[RefreshToken] Invalid token");
                     return new IllegalArgumentException("Invalid refresh token");
                 });
 
+        if (refreshToken.getConsumedAt() != null) {
+            log.warn("[RefreshToken] Consumed token presented");
+            throw new IllegalArgumentException("Invalid refresh token");
+        }
+
         if (refreshToken.getExpiresAt().isBefore(Instant.now())) {
             log.warn("[RefreshToken] Expired token: deleting");
             refreshTokenRepository.delete(refreshToken);
@@ -67,20 +154,42 @@ public class RefreshTokenService {
      * Deletes a refresh token by its token string.
      */
     public void delete(String token) {
-        log.debug("[RefreshToken] Deleting token: {}", token);
-        refreshTokenRepository.deleteByToken(token);
+        int deleted = refreshTokenRepository.deleteByTokenHash(TokenHashUtils.sha256(token));
+        log.debug("[RefreshToken] Deleted {} token(s)", deleted);
     }
 
     /**
-     * Deletes all expired refresh tokens (runs hourly).
+     * Lists a user's live sessions, newest first.
      */
-    @Scheduled(cron = "0 0 * * * *") // Every hour
-    public void cleanupExpiredTokens() {
-        int deleted = refreshTokenRepository.deleteAllByExpiresAtBefore(Instant.now());
-        if (deleted > 0) {
-            log.info("[RefreshToken] Cleanup: deleted {} expired token(s)", deleted);
-        } else {
-            log.debug("[RefreshToken] No expired tokens found during cleanup");
-        }
+    @Transactional(readOnly = true)
+    public List<SessionResponse> listSessions(Long userId) {
+        return refreshTokenRepository.findSessionsByUserId(userId, Instant.now()).stream()
+                .map(session -> new SessionResponse(session.getId(), session.getCreatedAt(), session.getExpiresAt()))
+                .toList();
+    }
+
+    private String issue(User user, String familyId, Instant lastUsedAt, String lastUsedIp) {
+        String tokenValue = TokenHashUtils.generateToken();
+        Instant now = Instant.now();
+
+        RefreshToken token = new RefreshToken();
+        token.setTokenHash(TokenHashUtils.sha256(tokenValue));
+        token.setUser(user);
+        token.setFamilyId(familyId);
+        token.setCreatedAt(now);
+        token.setExpiresAt(now.plus(REFRESH_TOKEN_EXPIRY_DAYS, ChronoUnit.DAYS));
+        token.setLastUsedAt(lastUsedAt);
+        token.setLastUsedIp(lastUsedIp);
+
+        refreshTokenRepository.save(token);
+        log.debug("[RefreshToken] Created token for user id: {}", user.getId());
+
+        return tokenValue;
+    }
+
+    /**
+     * The replacement token plus the owner's profile, so callers can mint an access token without a lookup.
+     */
+    public record RotatedToken(String token, Long userId, String email, String firstName, String lastName) {
     }
 }
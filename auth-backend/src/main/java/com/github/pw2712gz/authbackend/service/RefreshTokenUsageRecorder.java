@@ -0,0 +1,119 @@
+package com.github.pw2712gz.authbackend.service;
+
+import com.github.pw2712gz.authbackend.util.TokenHashUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Write-behind recorder for refresh token last-used time and client IP, used when refresh tokens are not rotated
+ * (a rotated token's replacement is inserted with its use already set, see {@link RefreshTokenService#rotate(String, String)}).
+ * Refreshes only touch an in-memory map that keeps the latest use per token; a background flush writes
+ * them as batched UPDATEs, so a token refreshed many times between flushes costs one write.
+ * Pending entries are capped, and uses beyond the cap are dropped rather than blocking refreshes.
+ */
+@Service
+@Slf4j
+public class RefreshTokenUsageRecorder {
+
+    private static final int BATCH_SIZE = 500;
+
+    // Never moves last_used_at backwards if another instance flushed a newer use first
+    private static final String UPDATE_SQL = "UPDATE refresh_tokens SET last_used_at = ?, last_used_ip = ? " +
+            "WHERE token_hash = ? AND (last_used_at IS NULL OR last_used_at < ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<ByteBuffer, Usage> pending = new ConcurrentHashMap<>();
+    private final Counter droppedCounter;
+    private final Counter writtenCounter;
+
+    @Value("${auth.refresh.usage.enabled:true}")
+    private boolean enabled;
+
+    @Value("${auth.refresh.usage.max-pending:10000}")
+    private int maxPending;
+
+    public RefreshTokenUsageRecorder(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.droppedCounter = Counter.builder("auth.refresh.usage.dropped")
+                .description("Token uses not recorded because the pending map was full")
+                .register(meterRegistry);
+        this.writtenCounter = Counter.builder("auth.refresh.usage.written")
+                .description("Coalesced token uses flushed to the database")
+                .register(meterRegistry);
+
+        Gauge.builder("auth.refresh.usage.pending", pending, Map::size)
+                .description("Token uses waiting for the next flush")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Records a successful use of the token. Later uses of the same token overwrite earlier ones.
+     */
+    public void record(String token, String clientIp) {
+        if (!enabled) {
+            return;
+        }
+
+        ByteBuffer key = ByteBuffer.wrap(TokenHashUtils.sha256(token));
+        Usage usage = new Usage(Instant.now(), clientIp);
+
+        if (pending.size() >= maxPending && !pending.containsKey(key)) {
+            droppedCounter.increment();
+            return;
+        }
+        pending.put(key, usage);
+    }
+
+    /**
+     * Writes pending uses in JDBC batches. Entries are removed only if no newer use replaced them meanwhile.
+     */
+    @Scheduled(fixedDelayString = "${auth.refresh.usage.flush.ms:5000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> rows = new ArrayList<>(pending.size());
+        for (Map.Entry<ByteBuffer, Usage> entry : pending.entrySet()) {
+            if (pending.remove(entry.getKey(), entry.getValue())) {
+                Usage usage = entry.getValue();
+                Timestamp usedAt = Timestamp.from(usage.usedAt());
+                rows.add(new Object[]{usedAt, usage.clientIp(), entry.getKey().array(), usedAt});
+            }
+        }
+
+        try {
+            for (int from = 0; from < rows.size(); from += BATCH_SIZE) {
+                jdbcTemplate.batchUpdate(UPDATE_SQL, rows.subList(from, Math.min(from + BATCH_SIZE, rows.size())));
+            }
+            writtenCounter.increment(rows.size());
+            log.debug("[RefreshTokenUsage] Flushed {} token use(s)", rows.size());
+        } catch (Exception e) {
+            // Usage metadata is best effort; losing one flush is preferable to retrying into a struggling DB
+            log.warn("[RefreshTokenUsage] Flush of {} token use(s) failed: {}", rows.size(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private record Usage(Instant usedAt, String clientIp) {
+    }
+}
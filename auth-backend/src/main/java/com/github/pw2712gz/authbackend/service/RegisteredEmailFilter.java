@@ -0,0 +1,188 @@
+package com.github.pw2712gz.authbackend.service;
+
+import com.github.pw2712gz.authbackend.repository.UserRepository;
+import com.github.pw2712gz.authbackend.repository.UserRepository.EmailView;
+import com.github.pw2712gz.authbackend.util.BloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory Bloom filter of registered emails.
+ * A negative answer means the email is definitely not registered, so callers can skip the DB.
+ * Emails registered on other instances are picked up by a short incremental poll; if that poll falls behind,
+ * or before the first build completes, every email is reported as possibly registered.
+ */
+@Service
+@Slf4j
+public class RegisteredEmailFilter {
+
+    private static final int PAGE_SIZE = 5_000;
+
+    private final UserRepository userRepository;
+    private final Counter negativeCounter;
+
+    @Value("${bloom.users.enabled:true}")
+    private boolean enabled;
+
+    @Value("${bloom.users.expected-insertions:100000}")
+    private long expectedInsertions;
+
+    @Value("${bloom.users.fpp:0.01}")
+    private double falsePositiveRate;
+
+    @Value("${bloom.users.sync.ms:5000}")
+    private long syncMillis;
+
+    private volatile BloomFilter filter;
+
+    // When the filter last caught up with the table; negatives are only trusted while this is recent
+    private volatile long syncedAt;
+
+    // Highest user id seen by the last two polls. Each poll rescans from the older one, so a registration whose
+    // transaction committed after a higher id was already seen is still picked up.
+    private long previousHighestId;
+    private long highestId;
+
+    // Emails registered while a rebuild is streaming the table; replayed into the new filter
+    private final Set<String> addedDuringRebuild = ConcurrentHashMap.newKeySet();
+    private volatile boolean rebuilding;
+
+    public RegisteredEmailFilter(UserRepository userRepository, MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.negativeCounter = Counter.builder("users.bloom.negatives")
+                .description("Lookups short-circuited because the email is definitely not registered")
+                .register(meterRegistry);
+
+        Gauge.builder("users.bloom.size.bytes", this, f -> f.filter == null ? 0 : f.filter.sizeInBytes())
+                .description("Memory used by the registered-email Bloom filter")
+                .register(meterRegistry);
+        Gauge.builder("users.bloom.expected.fpp", this, f -> f.filter == null ? 1 : f.filter.expectedFalsePositiveRate())
+                .description("Estimated false-positive rate of the registered-email Bloom filter")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns false only when the email is definitely not registered.
+     */
+    public boolean mightExist(String email) {
+        BloomFilter current = filter;
+        if (!enabled || current == null) {
+            return true;
+        }
+
+        if (current.mightContain(normalize(email))) {
+            return true;
+        }
+        if (System.currentTimeMillis() - syncedAt > 2 * syncMillis) {
+            // Other instances' registrations may be missing; let the caller ask the database
+            return true;
+        }
+        negativeCounter.increment();
+        return false;
+    }
+
+    /**
+     * Records a newly registered email.
+     */
+    public void add(String email) {
+        String key = normalize(email);
+
+        // Record before reading the filter so a concurrent swap can't drop the email
+        if (rebuilding) {
+            addedDuringRebuild.add(key);
+        }
+
+        BloomFilter current = filter;
+        if (current != null) {
+            current.put(key);
+        }
+    }
+
+    /**
+     * Builds the filter at startup and periodically rebuilds it by paging through the users table.
+     */
+    @Scheduled(fixedRateString = "${bloom.users.rebuild.interval.ms:21600000}")
+    public synchronized void rebuild() {
+        if (!enabled) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        rebuilding = true;
+        try {
+            long capacity = Math.max(expectedInsertions, userRepository.count() * 2);
+            BloomFilter next = BloomFilter.create(capacity, falsePositiveRate);
+
+            long count = 0;
+            long lastId = 0;
+            List<EmailView> page;
+            do {
+                page = userRepository.findEmailsAfter(lastId, Limit.of(PAGE_SIZE));
+                for (EmailView row : page) {
+                    next.put(normalize(row.getEmail()));
+                    lastId = row.getId();
+                }
+                count += page.size();
+            } while (page.size() == PAGE_SIZE);
+
+            filter = next;
+            addedDuringRebuild.forEach(next::put);
+            previousHighestId = lastId;
+            highestId = lastId;
+            syncedAt = start;
+
+            log.info("[RegisteredEmailFilter] Built from {} user(s) in {} ms — {} KB, {} hash(es), target fpp {}",
+                    count, System.currentTimeMillis() - start, next.sizeInBytes() / 1024, next.hashCount(), falsePositiveRate);
+        } catch (Exception e) {
+            log.error("[RegisteredEmailFilter] Rebuild failed, keeping previous filter: {}", e.getMessage(), e);
+        } finally {
+            rebuilding = false;
+            addedDuringRebuild.clear();
+        }
+    }
+
+    /**
+     * Adds users registered since the last poll, wherever they registered. Runs every {@code bloom.users.sync.ms}.
+     */
+    @Scheduled(fixedDelayString = "${bloom.users.sync.ms:5000}")
+    public synchronized void sync() {
+        BloomFilter current = filter;
+        if (!enabled || current == null) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        try {
+            long lastId = previousHighestId;
+            List<EmailView> page;
+            do {
+                page = userRepository.findEmailsAfter(lastId, Limit.of(PAGE_SIZE));
+                for (EmailView row : page) {
+                    current.put(normalize(row.getEmail()));
+                    lastId = row.getId();
+                }
+            } while (page.size() == PAGE_SIZE);
+
+            previousHighestId = highestId;
+            highestId = Math.max(highestId, lastId);
+            syncedAt = start;
+        } catch (Exception e) {
+            log.warn("[RegisteredEmailFilter] Sync failed, negatives fall back to the database: {}", e.getMessage());
+        }
+    }
+
+    private static String normalize(String email) {
+        return email == null ? "" : email.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,141 @@
+package com.github.pw2712gz.authbackend.service;
+
+import com.github.pw2712gz.authbackend.entity.RefreshTokenRevocation;
+import com.github.pw2712gz.authbackend.repository.RefreshTokenRevocationRepository;
+import com.github.pw2712gz.authbackend.repository.RefreshTokenRevocationRepository.RevocationView;
+import com.github.pw2712gz.authbackend.util.SortedLongSet;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * In-memory set of revoked signed-refresh-token families, so verifying a refresh token needs no query.
+ * The set is rebuilt from the revocations table and topped up by polling for rows with a higher id;
+ * other instances therefore see a revocation within one poll interval.
+ * Until the first build completes, lookups fall back to the database.
+ */
+@Service
+@Slf4j
+public class RevokedTokenFamilies {
+
+    private static final int PAGE_SIZE = 5_000;
+
+    private final RefreshTokenRevocationRepository revocationRepository;
+
+    @Value("${auth.refresh.signed.enabled:false}")
+    private boolean enabled;
+
+    private volatile SortedLongSet revoked;
+    private long lastSeenId;
+
+    public RevokedTokenFamilies(RefreshTokenRevocationRepository revocationRepository, MeterRegistry meterRegistry) {
+        this.revocationRepository = revocationRepository;
+
+        Gauge.builder("auth.refresh.revocations.size", this, f -> f.revoked == null ? 0 : f.revoked.size())
+                .description("Revoked refresh token families held in memory")
+                .register(meterRegistry);
+    }
+
+    public boolean isRevoked(long familyId) {
+        SortedLongSet current = revoked;
+        if (current == null) {
+            return revocationRepository.existsByFamilyIdAndExpiresAtAfter(familyId, Instant.now());
+        }
+        return current.contains(familyId);
+    }
+
+    /**
+     * Persists a revocation and applies it locally at once. The row is kept until the family's last token expires.
+     */
+    public void revoke(long familyId, Instant expiresAt) {
+        revocationRepository.save(RefreshTokenRevocation.builder()
+                .familyId(familyId)
+                .revokedAt(Instant.now())
+                .expiresAt(expiresAt)
+                .build());
+
+        synchronized (this) {
+            if (revoked != null) {
+                revoked = revoked.with(familyId);
+            }
+        }
+        log.debug("[RevokedTokenFamilies] Revoked family {}", familyId);
+    }
+
+    /**
+     * Picks up revocations written by other instances since the last poll.
+     */
+    @Scheduled(fixedDelayString = "${auth.refresh.revocations.poll.ms:5000}",
+            initialDelayString = "${auth.refresh.revocations.poll.ms:5000}")
+    public synchronized void poll() {
+        if (!enabled || revoked == null) {
+            return;
+        }
+
+        try {
+            long[] added = load(lastSeenId);
+            if (added.length > 0) {
+                revoked = revoked.with(added);
+                log.debug("[RevokedTokenFamilies] Added {} revocation(s)", added.length);
+            }
+        } catch (Exception e) {
+            log.warn("[RevokedTokenFamilies] Poll failed, keeping current set: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Builds the set at startup and periodically rebuilds it, which drops expired families and
+     * catches rows whose id was allocated before, but committed after, an earlier poll.
+     */
+    @Scheduled(fixedRateString = "${auth.refresh.revocations.rebuild.interval.ms:3600000}")
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        try {
+            int expired = revocationRepository.deleteExpired(Instant.now());
+
+            synchronized (this) {
+                lastSeenId = 0;
+                revoked = SortedLongSet.of(load(0));
+            }
+
+            log.info("[RevokedTokenFamilies] Built {} revoked family(ies) in {} ms, purged {} expired",
+                    revoked.size(), System.currentTimeMillis() - start, expired);
+        } catch (Exception e) {
+            log.error("[RevokedTokenFamilies] Rebuild failed, keeping previous set: {}", e.getMessage(), e);
+        }
+    }
+
+    // Pages through active revocations after the given id and advances lastSeenId
+    private long[] load(long afterId) {
+        Instant now = Instant.now();
+        long[] families = new long[0];
+        int count = 0;
+
+        List<RevocationView> page;
+        do {
+            page = revocationRepository.findActiveAfter(afterId, now, Limit.of(PAGE_SIZE));
+            if (count + page.size() > families.length) {
+                families = Arrays.copyOf(families, Math.max(count + page.size(), families.length * 2));
+            }
+            for (RevocationView row : page) {
+                families[count++] = row.getFamilyId();
+                afterId = row.getId();
+            }
+        } while (page.size() == PAGE_SIZE);
+
+        lastSeenId = Math.max(lastSeenId, afterId);
+        return count == families.length ? families : Arrays.copyOf(families, count);
+    }
+}
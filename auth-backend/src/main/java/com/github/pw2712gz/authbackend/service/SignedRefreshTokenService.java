@@ -0,0 +1,170 @@
+package com.github.pw2712gz.authbackend.service;
+
+import com.github.pw2712gz.authbackend.security.AuthenticatedUser;
+import com.github.pw2712gz.authbackend.security.JwtProvider;
+import com.nimbusds.jose.JOSEObjectType;
+import com.nimbusds.jose.jwk.source.ImmutableSecret;
+import com.nimbusds.jose.proc.DefaultJOSEObjectTypeVerifier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimNames;
+import org.springframework.security.oauth2.jwt.JwtClaimValidator;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Self-contained refresh tokens: JWTs marked {@code token_use=refresh} and signed with HS256 under
+ * {@code auth.refresh.signed.secret}. Only this service reads them, so the key is symmetric and never appears in
+ * the JWKS; a resource server verifying access tokens against the JWKS cannot accept one. Verification is a signature check plus a lookup in {@link RevokedTokenFamilies}, with no database round trip.
+ * Every login starts a new family; logging out revokes the family until its tokens expire.
+ */
+@Service
+@Slf4j
+public class SignedRefreshTokenService {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final int MIN_SECRET_BYTES = 32;
+    private static final String TOKEN_TYPE = "refresh+jwt";
+
+    private final JwtProvider jwtProvider;
+    private final RevokedTokenFamilies revokedTokenFamilies;
+    private final JwtEncoder encoder;
+    private final NimbusJwtDecoder decoder;
+    private final Duration ttl;
+
+    public SignedRefreshTokenService(JwtProvider jwtProvider,
+                                     RevokedTokenFamilies revokedTokenFamilies,
+                                     @Value("${auth.refresh.signed.enabled:false}") boolean enabled,
+                                     @Value("${auth.refresh.signed.secret:}") String secret,
+                                     @Value("${auth.refresh.signed.ttl.days:30}") long ttlDays) {
+        this.jwtProvider = jwtProvider;
+        this.revokedTokenFamilies = revokedTokenFamilies;
+        this.ttl = Duration.ofDays(ttlDays);
+
+        SecretKey key = refreshKey(enabled, secret);
+        this.encoder = new NimbusJwtEncoder(new ImmutableSecret<>(key));
+
+        // Expiry is checked in verify() so an expired token can be told apart from a forged one
+        // Only the refresh typ is accepted; default JWT processors elsewhere refuse it
+        this.decoder = NimbusJwtDecoder.withSecretKey(key)
+                .macAlgorithm(MacAlgorithm.HS256)
+                .jwtProcessorCustomizer(processor -> processor.setJWSTypeVerifier(
+                        new DefaultJOSEObjectTypeVerifier<>(new JOSEObjectType(TOKEN_TYPE))))
+                .build();
+        this.decoder.setJwtValidator(new DelegatingOAuth2TokenValidator<>(
+                new JwtClaimValidator<String>(JwtProvider.CLAIM_TOKEN_USE, JwtProvider.TOKEN_USE_REFRESH::equals),
+                new JwtClaimValidator<List<String>>(JwtClaimNames.AUD,
+                        aud -> aud != null && aud.contains(JwtProvider.REFRESH_AUDIENCE))));
+    }
+
+    /**
+     * The configured secret, base64-encoded and at least 256 bits. While signed refresh tokens are disabled none
+     * is required and a random key stands in, since no token is ever issued or accepted.
+     */
+    private static SecretKey refreshKey(boolean enabled, String secret) {
+        byte[] bytes;
+        if (secret == null || secret.isBlank()) {
+            if (enabled) {
+                throw new IllegalStateException("auth.refresh.signed.secret must be set when signed refresh tokens are enabled");
+            }
+            bytes = new byte[MIN_SECRET_BYTES];
+            RANDOM.nextBytes(bytes);
+        } else {
+            bytes = Base64.getDecoder().decode(secret.trim());
+            if (bytes.length < MIN_SECRET_BYTES) {
+                throw new IllegalStateException("auth.refresh.signed.secret must decode to at least " + MIN_SECRET_BYTES + " bytes");
+            }
+        }
+        return new SecretKeySpec(bytes, "HmacSHA256");
+    }
+
+    /**
+     * Issues a refresh token for the authenticated user, starting a new family.
+     */
+    public String issue(AuthenticatedUser user) {
+        // 63 random bits: ids are never coordinated between instances, so collisions must be negligible
+        long familyId = RANDOM.nextLong() & Long.MAX_VALUE;
+        var claims = jwtProvider.refreshTokenClaims(
+                user.getUsername(), user.getId(), user.getFirstName(), user.getLastName(), familyId, ttl);
+        var header = JwsHeader.with(MacAlgorithm.HS256).type(TOKEN_TYPE).build();
+        return encoder.encode(JwtEncoderParameters.from(header, claims)).getTokenValue();
+    }
+
+    /**
+     * Verifies the signature, expiry and family of a refresh token and returns its owner.
+     */
+    public VerifiedToken verify(String token) {
+        Jwt jwt = decode(token);
+
+        if (jwt.getExpiresAt() == null || !jwt.getExpiresAt().isAfter(Instant.now())) {
+            log.warn("[SignedRefreshToken] Expired token");
+            throw new IllegalStateException("Refresh token expired");
+        }
+
+        VerifiedToken verified = toVerifiedToken(jwt);
+        if (revokedTokenFamilies.isRevoked(verified.familyId())) {
+            log.warn("[SignedRefreshToken] Revoked token presented for user id: {}", verified.userId());
+            throw new IllegalArgumentException("Invalid refresh token");
+        }
+
+        return verified;
+    }
+
+    /**
+     * Revokes the token's family. Invalid tokens are ignored so logout always succeeds.
+     */
+    public void revoke(String token) {
+        try {
+            Jwt jwt = decode(token);
+            if (jwt.getExpiresAt() != null && jwt.getExpiresAt().isAfter(Instant.now())) {
+                revokedTokenFamilies.revoke(toVerifiedToken(jwt).familyId(), jwt.getExpiresAt());
+            }
+        } catch (IllegalArgumentException e) {
+            log.debug("[SignedRefreshToken] Ignoring logout with invalid token");
+        }
+    }
+
+    private Jwt decode(String token) {
+        try {
+            return decoder.decode(token);
+        } catch (JwtException e) {
+            log.warn("[SignedRefreshToken] Invalid token: {}", e.getMessage());
+            throw new IllegalArgumentException("Invalid refresh token");
+        }
+    }
+
+    private static VerifiedToken toVerifiedToken(Jwt jwt) {
+        Object familyId = jwt.getClaim(JwtProvider.CLAIM_FAMILY);
+        Object userId = jwt.getClaim(JwtProvider.CLAIM_USER_ID);
+        if (!(familyId instanceof Number family) || !(userId instanceof Number id)) {
+            throw new IllegalArgumentException("Invalid refresh token");
+        }
+
+        return new VerifiedToken(
+                family.longValue(),
+                id.longValue(),
+                jwt.getSubject(),
+                jwt.getClaimAsString(JwtProvider.CLAIM_GIVEN_NAME),
+                jwt.getClaimAsString(JwtProvider.CLAIM_FAMILY_NAME)
+        );
+    }
+
+    public record VerifiedToken(long familyId, Long userId, String email, String firstName, String lastName) {
+    }
+}
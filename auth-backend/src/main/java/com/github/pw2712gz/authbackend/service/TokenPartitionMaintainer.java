@@ -0,0 +1,166 @@
+package com.github.pw2712gz.authbackend.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the token tables' daily RANGE partitions on TO_DAYS(expires_at) rolling (see sql/003-partition-token-tables.sql).
+ * Partitions are created ahead of the longest token lifetime, and whole days of expired rows are dropped
+ * with DROP PARTITION, a metadata operation, instead of being deleted row by row.
+ * Tables that are not partitioned are left alone.
+ */
+@Service
+@Slf4j
+public class TokenPartitionMaintainer {
+
+    // MySQL TO_DAYS('1970-01-01')
+    private static final long TO_DAYS_EPOCH_OFFSET = 719_528;
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMMdd");
+    private static final String MAX_PARTITION = "pmax";
+
+    private static final List<PartitionedTable> TABLES = List.of(
+            new PartitionedTable("refresh_tokens", RefreshTokenService.REFRESH_TOKEN_EXPIRY_DAYS),
+            new PartitionedTable("password_reset_tokens", 1)
+    );
+
+    private static final String PARTITIONS_QUERY = """
+            SELECT PARTITION_NAME, PARTITION_DESCRIPTION FROM information_schema.PARTITIONS
+            WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL
+            ORDER BY PARTITION_ORDINAL_POSITION""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Clock clock;
+
+    @Value("${storage.partitioning.enabled:false}")
+    private boolean enabled;
+
+    @Value("${storage.partitioning.days-ahead:7}")
+    private int daysAhead;
+
+    @Value("${storage.partitioning.retention.days:1}")
+    private int retentionDays;
+
+    @Autowired
+    public TokenPartitionMaintainer(JdbcTemplate jdbcTemplate) {
+        // Hibernate writes DATETIME columns in the JVM zone, so days are cut in that zone too
+        this(jdbcTemplate, Clock.systemDefaultZone());
+    }
+
+    TokenPartitionMaintainer(JdbcTemplate jdbcTemplate, Clock clock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.clock = clock;
+    }
+
+    /**
+     * Runs at startup and then periodically; each table is maintained independently.
+     */
+    @Scheduled(fixedRateString = "${storage.partitioning.interval.ms:3600000}")
+    public void maintain() {
+        if (!enabled) {
+            return;
+        }
+
+        for (PartitionedTable table : TABLES) {
+            try {
+                maintain(table);
+            } catch (DataAccessException e) {
+                log.error("[TokenPartitionMaintainer] Maintenance of {} failed: {}", table.name(), e.getMessage(), e);
+            }
+        }
+    }
+
+    private void maintain(PartitionedTable table) {
+        List<Partition> partitions = jdbcTemplate.query(PARTITIONS_QUERY,
+                (rs, rowNum) -> new Partition(rs.getString(1), rs.getString(2)), table.name());
+
+        if (partitions.isEmpty()) {
+            log.warn("[TokenPartitionMaintainer] {} is not partitioned — run sql/003-partition-token-tables.sql", table.name());
+            return;
+        }
+
+        LocalDate today = LocalDate.now(clock);
+        createFuturePartitions(table, partitions, today);
+        dropExpiredPartitions(table, partitions, today);
+    }
+
+    private void createFuturePartitions(PartitionedTable table, List<Partition> partitions, LocalDate today) {
+        LocalDate next = partitions.stream()
+                .filter(p -> !p.isMax())
+                .map(p -> fromDays(p.upperBound()))
+                .max(LocalDate::compareTo)
+                .orElse(today);
+        LocalDate last = today.plusDays(table.ttlDays() + daysAhead);
+
+        List<String> definitions = new ArrayList<>();
+        for (LocalDate day = next; !day.isAfter(last); day = day.plusDays(1)) {
+            definitions.add("PARTITION " + day.format(PARTITION_NAME) + " VALUES LESS THAN (" + toDays(day.plusDays(1)) + ")");
+        }
+        if (definitions.isEmpty()) {
+            return;
+        }
+
+        int created = definitions.size();
+        boolean hasMax = partitions.stream().anyMatch(Partition::isMax);
+        String sql;
+        if (hasMax) {
+            // Splitting an empty MAXVALUE partition only touches metadata
+            definitions.add("PARTITION " + MAX_PARTITION + " VALUES LESS THAN MAXVALUE");
+            sql = "ALTER TABLE " + table.name() + " REORGANIZE PARTITION " + MAX_PARTITION
+                    + " INTO (" + String.join(", ", definitions) + ")";
+        } else {
+            sql = "ALTER TABLE " + table.name() + " ADD PARTITION (" + String.join(", ", definitions) + ")";
+        }
+
+        jdbcTemplate.execute(sql);
+        log.info("[TokenPartitionMaintainer] Created {} partition(s) on {} through {}", created, table.name(), last);
+    }
+
+    private void dropExpiredPartitions(PartitionedTable table, List<Partition> partitions, LocalDate today) {
+        // A partition is dropped once every row in it expired more than retentionDays ago
+        long cutoff = toDays(today.minusDays(retentionDays));
+        List<String> expired = partitions.stream()
+                .filter(p -> !p.isMax() && p.upperBound() <= cutoff)
+                .map(Partition::name)
+                .toList();
+        if (expired.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.execute("ALTER TABLE " + table.name() + " DROP PARTITION " + String.join(", ", expired));
+        log.info("[TokenPartitionMaintainer] Dropped {} expired partition(s) from {}: {}",
+                expired.size(), table.name(), String.join(", ", expired));
+    }
+
+    private static long toDays(LocalDate date) {
+        return date.toEpochDay() + TO_DAYS_EPOCH_OFFSET;
+    }
+
+    private static LocalDate fromDays(long days) {
+        return LocalDate.ofEpochDay(days - TO_DAYS_EPOCH_OFFSET);
+    }
+
+    private record PartitionedTable(String name, long ttlDays) {
+    }
+
+    private record Partition(String name, String description) {
+
+        boolean isMax() {
+            return "MAXVALUE".equalsIgnoreCase(description);
+        }
+
+        long upperBound() {
+            return Long.parseLong(description);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.github.pw2712gz.authbackend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.pw2712gz.authbackend.entity.User;
+import com.github.pw2712gz.authbackend.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size- and TTL-bounded (W-TinyLFU) cache of user profiles keyed by normalized email.
+ * Only existing users are cached; writers must call {@link #invalidate(String)}.
+ * Invalidation is local to this node, so credentials and the enabled flag are never cached: authentication
+ * reads them from the database, and a password reset or disabled account takes effect on every node at once.
+ */
+@Service
+@Slf4j
+public class UserCache {
+
+    private final UserRepository userRepository;
+    private final Cache<String, CachedUser> cache;
+
+    // Bumped on every invalidation so a load that raced with it never re-inserts stale data
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public UserCache(UserRepository userRepository,
+                     MeterRegistry meterRegistry,
+                     @Value("${cache.users.maximum-size:10000}") long maximumSize,
+                     @Value("${cache.users.ttl.seconds:300}") long ttlSeconds) {
+        this.userRepository = userRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "users");
+    }
+
+    /**
+     * Returns the user for the given email, loading and caching it on a miss.
+     */
+    public Optional<CachedUser> findByEmail(String email) {
+        String key = normalize(email);
+        CachedUser cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        long generation = invalidations.get();
+        Optional<CachedUser> loaded = userRepository.findByEmail(email).map(CachedUser::from);
+
+        loaded.ifPresent(user -> {
+            if (invalidations.get() == generation) {
+                cache.put(key, user);
+            }
+        });
+        return loaded;
+    }
+
+    /**
+     * Returns true only if the user is currently cached, without touching the database.
+     */
+    public boolean isCached(String email) {
+        return cache.getIfPresent(normalize(email)) != null;
+    }
+
+    /**
+     * Evicts the user now and, inside a transaction, again after commit so readers
+     * can't re-cache the pre-commit row in between.
+     */
+    public void invalidate(String email) {
+        String key = normalize(email);
+        evict(key);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(key);
+                }
+            });
+        }
+    }
+
+    private void evict(String key) {
+        invalidations.incrementAndGet();
+        cache.invalidate(key);
+        log.debug("[UserCache] Invalidated {}", key);
+    }
+
+    static String normalize(String email) {
+        return email == null ? "" : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Immutable snapshot of a user's profile; never a managed entity and never the password hash.
+     */
+    public record CachedUser(
+            Long id,
+            String firstName,
+            String lastName,
+            String email
+    ) {
+        static CachedUser from(User user) {
+            return new CachedUser(
+                    user.getId(),
+                    user.getFirstName(),
+                    user.getLastName(),
+                    user.getEmail()
+            );
+        }
+    }
+}
@@ -2,29 +2,30 @@ package com.github.pw2712gz.authbackend.service;
 
 import com.github.pw2712gz.authbackend.entity.User;
 import com.github.pw2712gz.authbackend.repository.UserRepository;
+import com.github.pw2712gz.authbackend.security.AuthenticatedUser;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-
-import java.util.Collections;
 
 /**
  * Custom implementation of Spring Security's UserDetailsService.
- * Loads users by email for authentication.
+ * Loads users by email for authentication and upgrades stale password hashes.
+ * Always reads the database, never {@link UserCache}, so a changed password or disabled account is seen at once
+ * by every instance.
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
-public class UserDetailsServiceImpl implements UserDetailsService {
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
+    private final PasswordUpgradeService passwordUpgradeService;
 
     @Override
-    @Transactional(readOnly = true)
     public UserDetails loadUserByUsername(String email) {
         log.debug("[UserDetailsService] Loading user by email: {}", email);
 
@@ -36,14 +37,22 @@ public class UserDetailsServiceImpl implements UserDetailsService {
 
         log.debug("[UserDetailsService] Found user: {} (enabled: {})", user.getEmail(), user.isEnabled());
 
-        return new org.springframework.security.core.userdetails.User(
-                user.getEmail(),
-                user.getPassword(),
-                user.isEnabled(),
-                true,  // accountNonExpired
-                true,  // credentialsNonExpired
-                true,  // accountNonLocked
-                Collections.emptyList() // authorities
-        );
+        return AuthenticatedUser.from(user);
+    }
+
+    /**
+     * Called after a successful login when the stored hash uses an outdated encoding or cost.
+     * The new hash is written asynchronously so the login response isn't delayed.
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        passwordUpgradeService.upgrade(user.getUsername(), user.getPassword(), newPassword);
+
+        if (user instanceof AuthenticatedUser authenticatedUser) {
+            return authenticatedUser.withPassword(newPassword);
+        }
+        return org.springframework.security.core.userdetails.User.withUserDetails(user)
+                .password(newPassword)
+                .build();
     }
 }
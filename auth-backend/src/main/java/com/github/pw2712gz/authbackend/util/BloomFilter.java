@@ -0,0 +1,150 @@
+package com.github.pw2712gz.authbackend.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe Bloom filter over strings.
+ * {@link #mightContain(String)} never returns false for a value that was added.
+ */
+public class BloomFilter {
+
+    private static final double LN2 = Math.log(2);
+
+    private final AtomicLongArray words;
+    private final long bitSize;
+    private final int hashCount;
+
+    private BloomFilter(long bitSize, int hashCount) {
+        this.bitSize = bitSize;
+        this.hashCount = hashCount;
+        this.words = new AtomicLongArray(Math.toIntExact((bitSize + 63) / 64));
+    }
+
+    /**
+     * Creates a filter sized for the expected number of insertions at the given false-positive rate.
+     */
+    public static BloomFilter create(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions <= 0) {
+            throw new IllegalArgumentException("Expected insertions must be positive");
+        }
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("False-positive rate must be between 0 and 1");
+        }
+
+        long bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (LN2 * LN2));
+        bits = Math.max(64, bits);
+        int hashes = Math.max(1, (int) Math.round((double) bits / expectedInsertions * LN2));
+        return new BloomFilter(bits, hashes);
+    }
+
+    public void put(String value) {
+        byte[] data = value.getBytes(StandardCharsets.UTF_8);
+        long h1 = hash64(data, 0x9E3779B97F4A7C15L);
+        long h2 = hash64(data, 0xC2B2AE3D27D4EB4FL);
+
+        for (int i = 0; i < hashCount; i++) {
+            setBit(index(h1 + i * h2));
+        }
+    }
+
+    public boolean mightContain(String value) {
+        byte[] data = value.getBytes(StandardCharsets.UTF_8);
+        long h1 = hash64(data, 0x9E3779B97F4A7C15L);
+        long h2 = hash64(data, 0xC2B2AE3D27D4EB4FL);
+
+        for (int i = 0; i < hashCount; i++) {
+            if (!getBit(index(h1 + i * h2))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long bitSize() {
+        return bitSize;
+    }
+
+    public int hashCount() {
+        return hashCount;
+    }
+
+    /**
+     * Approximate heap used by the bit array.
+     */
+    public long sizeInBytes() {
+        return (long) words.length() * Long.BYTES;
+    }
+
+    /**
+     * Estimated false-positive rate given the bits currently set.
+     */
+    public double expectedFalsePositiveRate() {
+        long setBits = 0;
+        for (int i = 0; i < words.length(); i++) {
+            setBits += Long.bitCount(words.get(i));
+        }
+        return Math.pow((double) setBits / bitSize, hashCount);
+    }
+
+    private long index(long combinedHash) {
+        return (combinedHash & Long.MAX_VALUE) % bitSize;
+    }
+
+    private void setBit(long bit) {
+        int word = (int) (bit >>> 6);
+        long mask = 1L << bit;
+        long current;
+        do {
+            current = words.get(word);
+            if ((current & mask) != 0) {
+                return;
+            }
+        } while (!words.compareAndSet(word, current, current | mask));
+    }
+
+    private boolean getBit(long bit) {
+        return (words.get((int) (bit >>> 6)) & (1L << bit)) != 0;
+    }
+
+    /**
+     * MurmurHash64A-style hash; good enough dispersion for double hashing.
+     */
+    static long hash64(byte[] data, long seed) {
+        final long m = 0xC6A4A7935BD1E995L;
+        final int r = 47;
+        long h = seed ^ (data.length * m);
+
+        int i = 0;
+        for (; i + 8 <= data.length; i += 8) {
+            long k = (data[i] & 0xFFL)
+                    | (data[i + 1] & 0xFFL) << 8
+                    | (data[i + 2] & 0xFFL) << 16
+                    | (data[i + 3] & 0xFFL) << 24
+                    | (data[i + 4] & 0xFFL) << 32
+                    | (data[i + 5] & 0xFFL) << 40
+                    | (data[i + 6] & 0xFFL) << 48
+                    | (data[i + 7] & 0xFFL) << 56;
+            k *= m;
+            k ^= k >>> r;
+            k *= m;
+            h ^= k;
+            h *= m;
+        }
+
+        int remaining = data.length - i;
+        if (remaining > 0) {
+            long k = 0;
+            for (int j = remaining - 1; j >= 0; j--) {
+                k = (k << 8) | (data[i + j] & 0xFFL);
+            }
+            h ^= k;
+            h *= m;
+        }
+
+        h ^= h >>> r;
+        h *= m;
+        h ^= h >>> r;
+        return h;
+    }
+}
@@ -0,0 +1,112 @@
+package com.github.pw2712gz.authbackend.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Thread-safe Count-Min sketch over strings with halving decay.
+ * {@link #estimate(String)} never under-counts, and over-counts only through hash collisions;
+ * memory is fixed at {@code depth * width} ints however many distinct keys are seen.
+ * Hash seeds are random per instance so colliding keys cannot be precomputed.
+ */
+public class CountMinSketch {
+
+    private final AtomicIntegerArray counters;
+    private final int width;
+    private final int depth;
+    private final long seed1;
+    private final long seed2;
+
+    public CountMinSketch(int width, int depth) {
+        if (width <= 0 || depth <= 0) {
+            throw new IllegalArgumentException("Width and depth must be positive");
+        }
+        this.width = width;
+        this.depth = depth;
+        this.counters = new AtomicIntegerArray(Math.multiplyExact(width, depth));
+
+        SecureRandom random = new SecureRandom();
+        this.seed1 = random.nextLong();
+        this.seed2 = random.nextLong();
+    }
+
+    /**
+     * Counts one occurrence and returns the new estimate. Uses conservative update: only the rows holding
+     * the current minimum are raised, which keeps collision error well below the plain sketch's.
+     */
+    public int increment(String key) {
+        byte[] data = key.getBytes(StandardCharsets.UTF_8);
+        long h1 = BloomFilter.hash64(data, seed1);
+        long h2 = BloomFilter.hash64(data, seed2);
+
+        int min = estimate(h1, h2);
+        for (int row = 0; row < depth; row++) {
+            int index = index(row, h1, h2);
+            int current;
+            do {
+                current = counters.get(index);
+            } while (current <= min && current < Integer.MAX_VALUE && !counters.compareAndSet(index, current, current + 1));
+        }
+        return min == Integer.MAX_VALUE ? min : min + 1;
+    }
+
+    public int estimate(String key) {
+        byte[] data = key.getBytes(StandardCharsets.UTF_8);
+        return estimate(BloomFilter.hash64(data, seed1), BloomFilter.hash64(data, seed2));
+    }
+
+    /**
+     * Forgets a key by subtracting its estimate from each of its counters. Keys colliding with it in every row
+     * may lose up to the collision share of that estimate, the one case where this sketch under-counts.
+     */
+    public void reset(String key) {
+        byte[] data = key.getBytes(StandardCharsets.UTF_8);
+        long h1 = BloomFilter.hash64(data, seed1);
+        long h2 = BloomFilter.hash64(data, seed2);
+
+        int min = estimate(h1, h2);
+        if (min == 0) {
+            return;
+        }
+        for (int row = 0; row < depth; row++) {
+            int index = index(row, h1, h2);
+            int current;
+            do {
+                current = counters.get(index);
+            } while (current != 0 && !counters.compareAndSet(index, current, Math.max(0, current - min)));
+        }
+    }
+
+    /**
+     * Halves every counter, so counts fade exponentially with the number of decay periods since they were added.
+     * Increments racing the decay may survive undivided, which only ever over-counts.
+     */
+    public void decay() {
+        for (int i = 0; i < counters.length(); i++) {
+            int current;
+            do {
+                current = counters.get(i);
+            } while (current != 0 && !counters.compareAndSet(i, current, current >>> 1));
+        }
+    }
+
+    /**
+     * Heap used by the counter array.
+     */
+    public long sizeInBytes() {
+        return (long) counters.length() * Integer.BYTES;
+    }
+
+    private int estimate(long h1, long h2) {
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, counters.get(index(row, h1, h2)));
+        }
+        return min;
+    }
+
+    private int index(int row, long h1, long h2) {
+        return row * width + (int) (((h1 + row * h2) & Long.MAX_VALUE) % width);
+    }
+}
@@ -1,14 +1,17 @@
 package com.github.pw2712gz.authbackend.util;
 
+import java.security.GeneralSecurityException;
 import java.security.KeyFactory;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.List;
 
 /**
- * Utility class for parsing PEM-encoded RSA keys.
+ * Utility class for parsing PEM-encoded RSA and EC keys.
  */
 public class PemUtils {
 
@@ -21,25 +24,68 @@ public class PemUtils {
      * Parses a PEM-formatted RSA public key into a PublicKey instance.
      */
     public static PublicKey parsePublicKey(String pem) throws Exception {
+        return parsePublicKey(pem, "RSA");
+    }
+
+    /**
+     * Parses a PEM-formatted X.509 public key for the given key algorithm ("RSA" or "EC").
+     */
+    public static PublicKey parsePublicKey(String pem, String keyAlgorithm) throws Exception {
         String clean = pem.replace(BEGIN_PUBLIC, "")
                 .replace(END_PUBLIC, "")
                 .replaceAll("\\s+", "");
 
         byte[] decoded = Base64.getDecoder().decode(clean);
         X509EncodedKeySpec spec = new X509EncodedKeySpec(decoded);
-        return KeyFactory.getInstance("RSA").generatePublic(spec);
+        return KeyFactory.getInstance(keyAlgorithm).generatePublic(spec);
     }
 
     /**
      * Parses a PEM-formatted RSA private key into a PrivateKey instance.
      */
     public static PrivateKey parsePrivateKey(String pem) throws Exception {
+        return parsePrivateKey(pem, "RSA");
+    }
+
+    /**
+     * Parses a PEM-formatted PKCS#8 private key for the given key algorithm ("RSA" or "EC").
+     */
+    public static PrivateKey parsePrivateKey(String pem, String keyAlgorithm) throws Exception {
         String clean = pem.replace(BEGIN_PRIVATE, "")
                 .replace(END_PRIVATE, "")
                 .replaceAll("\\s+", "");
 
         byte[] decoded = Base64.getDecoder().decode(clean);
         PKCS8EncodedKeySpec spec = new PKCS8EncodedKeySpec(decoded);
-        return KeyFactory.getInstance("RSA").generatePrivate(spec);
+        return KeyFactory.getInstance(keyAlgorithm).generatePrivate(spec);
+    }
+
+    /**
+     * Parses zero or more concatenated PEM public keys, detecting RSA or EC for each one.
+     */
+    public static List<PublicKey> parsePublicKeys(String pem) throws Exception {
+        List<PublicKey> keys = new ArrayList<>();
+        if (pem == null || pem.isBlank()) {
+            return keys;
+        }
+
+        int start = pem.indexOf(BEGIN_PUBLIC);
+        while (start >= 0) {
+            int end = pem.indexOf(END_PUBLIC, start);
+            if (end < 0) {
+                throw new IllegalArgumentException("Unterminated PEM public key");
+            }
+            keys.add(parseRsaOrEcPublicKey(pem.substring(start, end + END_PUBLIC.length())));
+            start = pem.indexOf(BEGIN_PUBLIC, end);
+        }
+        return keys;
+    }
+
+    private static PublicKey parseRsaOrEcPublicKey(String pem) throws Exception {
+        try {
+            return parsePublicKey(pem, "RSA");
+        } catch (GeneralSecurityException e) {
+            return parsePublicKey(pem, "EC");
+        }
     }
 }
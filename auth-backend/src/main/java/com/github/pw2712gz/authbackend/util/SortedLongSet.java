@@ -0,0 +1,88 @@
+package com.github.pw2712gz.authbackend.util;
+
+import java.util.Arrays;
+
+/**
+ * Immutable set of longs backed by a sorted, duplicate-free array.
+ * Lookups are a binary search over 8 bytes per element, so it can be read without locks and swapped atomically.
+ */
+public final class SortedLongSet {
+
+    private static final SortedLongSet EMPTY = new SortedLongSet(new long[0]);
+
+    private final long[] values;
+
+    private SortedLongSet(long[] values) {
+        this.values = values;
+    }
+
+    public static SortedLongSet empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Creates a set from arbitrary values; the array is copied.
+     */
+    public static SortedLongSet of(long... values) {
+        if (values.length == 0) {
+            return EMPTY;
+        }
+
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return new SortedLongSet(dedupe(sorted, sorted.length));
+    }
+
+    public boolean contains(long value) {
+        return Arrays.binarySearch(values, value) >= 0;
+    }
+
+    /**
+     * Returns a new set holding this set's values plus the given ones, merging in linear time.
+     */
+    public SortedLongSet with(long... additions) {
+        if (additions.length == 0) {
+            return this;
+        }
+
+        long[] sorted = additions.clone();
+        Arrays.sort(sorted);
+
+        long[] merged = new long[values.length + sorted.length];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < values.length && j < sorted.length) {
+            merged[n++] = values[i] <= sorted[j] ? values[i++] : sorted[j++];
+        }
+        while (i < values.length) {
+            merged[n++] = values[i++];
+        }
+        while (j < sorted.length) {
+            merged[n++] = sorted[j++];
+        }
+        return new SortedLongSet(dedupe(merged, n));
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    public long sizeInBytes() {
+        return (long) values.length * Long.BYTES;
+    }
+
+    private static long[] dedupe(long[] sorted, int length) {
+        if (length == 0) {
+            return sorted;
+        }
+
+        int n = 1;
+        for (int i = 1; i < length; i++) {
+            if (sorted[i] != sorted[n - 1]) {
+                sorted[n++] = sorted[i];
+            }
+        }
+        return n == sorted.length ? sorted : Arrays.copyOf(sorted, n);
+    }
+}
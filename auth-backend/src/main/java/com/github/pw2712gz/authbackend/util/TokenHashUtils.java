@@ -0,0 +1,39 @@
+package com.github.pw2712gz.authbackend.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Utility class for opaque bearer secrets: generates 256-bit random tokens and the
+ * SHA-256 digests they are stored and looked up by, so raw tokens never reach the database.
+ */
+public class TokenHashUtils {
+
+    public static final int TOKEN_BYTES = 32;
+    public static final int HASH_BYTES = 32;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /**
+     * Returns a URL-safe token carrying 256 bits of randomness (43 chars).
+     */
+    public static String generateToken() {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        RANDOM.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * SHA-256 of the token's UTF-8 bytes. A fast hash is enough: the input is already high-entropy.
+     */
+    public static byte[] sha256(String token) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.github.pw2712gz.authbackend.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PartitionedSchemaGuardTest {
+
+    @Test
+    void partitioned_shouldRefuseSchemaUpdates() {
+        var guard = new PartitionedSchemaGuard(true);
+
+        assertThatThrownBy(() -> guard.customize(ddlAuto("update")))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("ddl-auto");
+        assertThatThrownBy(() -> guard.customize(ddlAuto("create-drop"))).isInstanceOf(IllegalStateException.class);
+        assertThatCode(() -> guard.customize(ddlAuto("validate"))).doesNotThrowAnyException();
+        assertThatCode(() -> guard.customize(new HashMap<>())).doesNotThrowAnyException();
+    }
+
+    @Test
+    void unpartitioned_shouldAllowAnyMode() {
+        assertThatCode(() -> new PartitionedSchemaGuard(false).customize(ddlAuto("update"))).doesNotThrowAnyException();
+    }
+
+    private static Map<String, Object> ddlAuto(String mode) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(AvailableSettings.HBM2DDL_AUTO, mode);
+        return properties;
+    }
+}
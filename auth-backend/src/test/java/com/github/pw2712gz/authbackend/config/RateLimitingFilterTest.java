@@ -0,0 +1,192 @@
+package com.github.pw2712gz.authbackend.config;
+
+import com.github.pw2712gz.authbackend.ratelimit.AddressAggregation;
+import com.github.pw2712gz.authbackend.ratelimit.RateLimitPolicy;
+import com.github.pw2712gz.authbackend.ratelimit.RateLimiter;
+import com.github.pw2712gz.authbackend.ratelimit.TokenBucketRateLimiter;
+import com.github.pw2712gz.authbackend.security.ClientIpResolver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class RateLimitingFilterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private RateLimitingFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new RateLimitingFilter(
+                policy -> new TokenBucketRateLimiter(policy.name(), policy.limit(), policy.window(), 1_000, meterRegistry),
+                RateLimitPolicy.defaults(), ClientIpResolver.direct(), AddressAggregation.DEFAULT);
+        filter.updatePolicies(List.of(new RateLimitPolicy("/api/auth/login", 2, Duration.ofMinutes(1))));
+    }
+
+    @Test
+    @DisplayName("Allowed requests carry the limit and the requests remaining")
+    void doFilter_allowed() throws Exception {
+        FilterChain chain = mock(FilterChain.class);
+
+        MockHttpServletResponse response = send("/api/auth/login", chain);
+
+        assertEquals(200, response.getStatus());
+        assertEquals("2", response.getHeader(RateLimitingFilter.LIMIT_HEADER));
+        assertEquals("1", response.getHeader(RateLimitingFilter.REMAINING_HEADER));
+        verify(chain).doFilter(any(), any());
+    }
+
+    @Test
+    @DisplayName("Rejects with 429, Retry-After and a JSON body once the limit is used")
+    void doFilter_rejected() throws Exception {
+        FilterChain chain = mock(FilterChain.class);
+        send("/api/auth/login", chain);
+        send("/api/auth/login", chain);
+
+        MockHttpServletResponse response = send("/api/auth/login", chain);
+
+        assertEquals(429, response.getStatus());
+        assertEquals("30", response.getHeader("Retry-After"));
+        assertNull(response.getHeader("X-RateLimit-Reset"));
+        assertEquals("0", response.getHeader(RateLimitingFilter.REMAINING_HEADER));
+        assertEquals("application/json", response.getContentType());
+        assertEquals(response.getContentAsByteArray().length, response.getContentLength());
+        assertTrue(response.getContentAsString().contains("\"status\": 429"));
+        verify(chain, times(2)).doFilter(any(), any());
+    }
+
+    @Test
+    @DisplayName("Paths without a policy are not limited")
+    void doFilter_unlimitedPath() throws Exception {
+        FilterChain chain = mock(FilterChain.class);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(200, send("/api/auth/register", chain).getStatus());
+        }
+        verify(chain, times(5)).doFilter(any(), any());
+    }
+
+    @Test
+    @DisplayName("Updating policies keeps unchanged limiters and rebuilds changed ones")
+    void updatePolicies_keepsUnchanged() throws Exception {
+        FilterChain chain = mock(FilterChain.class);
+        RateLimitPolicy refresh = new RateLimitPolicy("/api/auth/refresh", 2, Duration.ofMinutes(1));
+        filter.updatePolicies(List.of(new RateLimitPolicy("/api/auth/login", 2, Duration.ofMinutes(1)), refresh));
+        send("/api/auth/login", chain);
+        send("/api/auth/login", chain);
+        send("/api/auth/refresh", chain);
+        send("/api/auth/refresh", chain);
+
+        filter.updatePolicies(List.of(new RateLimitPolicy("/api/auth/login", 3, Duration.ofMinutes(1)), refresh));
+
+        assertEquals("2", send("/api/auth/login", chain).getHeader(RateLimitingFilter.REMAINING_HEADER));
+        assertEquals(429, send("/api/auth/refresh", chain).getStatus());
+        assertEquals(1, meterRegistry.find("auth.ratelimit.capacity").tag("limiter", "login").meters().size());
+    }
+
+    @Test
+    @DisplayName("A replacement that cannot be built leaves the current limiters in service")
+    void updatePolicies_factoryFailureKeepsCurrent() throws Exception {
+        FilterChain chain = mock(FilterChain.class);
+        List<RateLimiter> closed = new ArrayList<>();
+        RateLimitingFilter reloadable = new RateLimitingFilter(policy -> {
+            if (policy.limit() > 100) {
+                throw new IllegalArgumentException("Limit too large");
+            }
+            return new TokenBucketRateLimiter(policy.name(), policy.limit(), policy.window(), 1_000, meterRegistry) {
+                @Override
+                public void close() {
+                    closed.add(this);
+                    super.close();
+                }
+            };
+        }, List.of(new RateLimitPolicy("/api/auth/register", 2, Duration.ofMinutes(1)),
+                new RateLimitPolicy("/api/auth/refresh", 2, Duration.ofMinutes(1))),
+                ClientIpResolver.direct(), AddressAggregation.DEFAULT);
+        send(reloadable, "/api/auth/register", chain);
+        send(reloadable, "/api/auth/refresh", chain);
+
+        assertThrows(IllegalArgumentException.class, () -> reloadable.updatePolicies(List.of(
+                new RateLimitPolicy("/api/auth/register", 3, Duration.ofMinutes(1)),
+                new RateLimitPolicy("/api/auth/refresh", 1_000, Duration.ofMinutes(1)))));
+
+        // Only the discarded replacement was closed; both paths keep their counts and meters
+        assertEquals(1, closed.size());
+        assertEquals("0", send(reloadable, "/api/auth/register", chain).getHeader(RateLimitingFilter.REMAINING_HEADER));
+        assertEquals("0", send(reloadable, "/api/auth/refresh", chain).getHeader(RateLimitingFilter.REMAINING_HEADER));
+        for (String name : List.of("register", "refresh")) {
+            assertEquals(1, meterRegistry.get("auth.ratelimit.occupancy").tag("limiter", name).gauge().value());
+        }
+    }
+
+    @Test
+    @DisplayName("Rejects policies whose meter names would collide")
+    void updatePolicies_duplicateNames() {
+        assertThrows(IllegalArgumentException.class, () -> filter.updatePolicies(List.of(
+                new RateLimitPolicy("/api/auth/login", 2, Duration.ofMinutes(1)),
+                new RateLimitPolicy("/api/admin/login", 2, Duration.ofMinutes(1)))));
+    }
+
+    @Test
+    @DisplayName("Addresses within one IPv6 /64 share a limit")
+    void doFilter_ipv6PrefixShared() throws Exception {
+        FilterChain chain = mock(FilterChain.class);
+
+        assertEquals(200, send("/api/auth/login", "2001:db8:1:2::1", chain).getStatus());
+        assertEquals(200, send("/api/auth/login", "2001:db8:1:2:ffff::1", chain).getStatus());
+        assertEquals(429, send("/api/auth/login", "2001:db8:1:2::abcd", chain).getStatus());
+        assertEquals(200, send("/api/auth/login", "2001:db8:1:3::1", chain).getStatus());
+    }
+
+    @Test
+    @DisplayName("Limits the forwarded client rather than the trusted proxy")
+    void doFilter_behindProxy() throws Exception {
+        FilterChain chain = mock(FilterChain.class);
+        RateLimitingFilter proxied = new RateLimitingFilter(
+                policy -> new TokenBucketRateLimiter(policy.name(), policy.limit(), policy.window(), 1_000, new SimpleMeterRegistry()),
+                List.of(new RateLimitPolicy("/api/auth/login", 1, Duration.ofMinutes(1))),
+                new ClientIpResolver("X-Forwarded-For", List.of("10.0.0.0/8")),
+                AddressAggregation.DEFAULT);
+
+        for (String client : List.of("198.51.100.1", "198.51.100.2")) {
+            MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/auth/login");
+            request.setRemoteAddr("10.0.0.1");
+            request.addHeader("X-Forwarded-For", client);
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            proxied.doFilter(request, response, chain);
+            assertEquals(200, response.getStatus());
+        }
+    }
+
+    private MockHttpServletResponse send(String path, FilterChain chain) throws Exception {
+        return send(path, "10.0.0.1", chain);
+    }
+
+    private MockHttpServletResponse send(RateLimitingFilter target, String path, FilterChain chain) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", path);
+        request.setRemoteAddr("10.0.0.1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        target.doFilter(request, response, chain);
+        return response;
+    }
+
+    private MockHttpServletResponse send(String path, String remoteAddress, FilterChain chain) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", path);
+        request.setRemoteAddr(remoteAddress);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+}
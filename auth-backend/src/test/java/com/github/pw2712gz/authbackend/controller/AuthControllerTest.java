@@ -6,10 +6,16 @@ import com.github.pw2712gz.authbackend.dto.request.ForgotPasswordRequest;
 import com.github.pw2712gz.authbackend.dto.request.LoginRequest;
 import com.github.pw2712gz.authbackend.dto.request.RefreshTokenRequest;
 import com.github.pw2712gz.authbackend.dto.request.RegisterRequest;
+import com.github.pw2712gz.authbackend.entity.RefreshToken;
 import com.github.pw2712gz.authbackend.entity.User;
+import com.github.pw2712gz.authbackend.repository.PasswordResetTokenRepository;
 import com.github.pw2712gz.authbackend.repository.RefreshTokenRepository;
 import com.github.pw2712gz.authbackend.repository.UserRepository;
 import com.github.pw2712gz.authbackend.service.RefreshTokenService;
+import com.github.pw2712gz.authbackend.service.RefreshTokenUsageRecorder;
+import com.github.pw2712gz.authbackend.service.RegisteredEmailFilter;
+import com.github.pw2712gz.authbackend.service.UserCache;
+import com.github.pw2712gz.authbackend.util.TokenHashUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -45,9 +51,20 @@ class AuthControllerTest {
     private ObjectMapper objectMapper;
     @Autowired
     private RefreshTokenRepository refreshTokenRepository;
+    @Autowired
+    private PasswordResetTokenRepository passwordResetTokenRepository;
+    @Autowired
+    private UserCache userCache;
+    @Autowired
+    private RegisteredEmailFilter registeredEmailFilter;
+    @Autowired
+    private RefreshTokenUsageRecorder refreshTokenUsageRecorder;
 
     @BeforeEach
     void setup() {
+        // Token tables carry no cascading foreign keys
+        refreshTokenRepository.deleteAll();
+        passwordResetTokenRepository.deleteAll();
         userRepository.deleteAll();
         User user = User.builder()
                 .firstName("Auth")
@@ -58,6 +75,8 @@ class AuthControllerTest {
                 .createdAt(Instant.now())
                 .build();
         userRepository.save(user);
+        userCache.invalidate(email);
+        registeredEmailFilter.add(email);
     }
 
     @Test
@@ -91,6 +110,11 @@ class AuthControllerTest {
                         .content(objectMapper.writeValueAsString(request)))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.authenticationToken").exists());
+
+        refreshTokenUsageRecorder.flush();
+        RefreshToken stored = refreshTokenRepository.findByTokenHash(TokenHashUtils.sha256(refreshToken)).orElseThrow();
+        assertThat(stored.getLastUsedAt()).isNotNull();
+        assertThat(stored.getLastUsedIp()).isEqualTo("127.0.0.1");
     }
 
     @Test
@@ -158,6 +182,32 @@ class AuthControllerTest {
                         .content(objectMapper.writeValueAsString(logoutRequest)))
                 .andExpect(status().isOk());
 
-        assertThat(refreshTokenRepository.existsByToken(refreshToken)).isFalse();
+        assertThat(refreshTokenRepository.existsByTokenHash(TokenHashUtils.sha256(refreshToken))).isFalse();
+    }
+
+    @Test
+    void sessions_shouldListLiveSessionsUpToTheCap() throws Exception {
+        User user = userRepository.findByEmail(email).orElseThrow();
+        for (int i = 0; i < 11; i++) {
+            refreshTokenService.generateTokenForUser(user);
+        }
+
+        String loginResponse = mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new LoginRequest(email, password))))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        String accessToken = objectMapper.readTree(loginResponse).get("authenticationToken").asText();
+        String refreshToken = objectMapper.readTree(loginResponse).get("refreshToken").asText();
+
+        mockMvc.perform(get("/api/auth/sessions")
+                        .header("Authorization", "Bearer " + accessToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(10))
+                .andExpect(jsonPath("$[0].expiresAt").exists());
+
+        assertThat(refreshTokenRepository.existsByTokenHash(TokenHashUtils.sha256(refreshToken))).isTrue();
     }
 }
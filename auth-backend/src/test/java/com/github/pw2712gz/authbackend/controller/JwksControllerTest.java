@@ -0,0 +1,52 @@
+package com.github.pw2712gz.authbackend.controller;
+
+import com.github.pw2712gz.authbackend.security.JwtKeyRing;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class JwksControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private JwtKeyRing keyRing;
+
+    @Test
+    void jwks_shouldPublishPublicKeysWithCacheHeaders() throws Exception {
+        String etag = mockMvc.perform(get("/.well-known/jwks.json"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.keys[0].kid").value(keyRing.signingKeyId()))
+                .andExpect(jsonPath("$.keys[0].use").value("sig"))
+                .andExpect(jsonPath("$.keys[0].d").doesNotExist())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("max-age=")))
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+
+        assertThat(etag).startsWith("\"");
+    }
+
+    @Test
+    void jwks_shouldReturnNotModifiedForCurrentEtag() throws Exception {
+        String etag = mockMvc.perform(get("/.well-known/jwks.json"))
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/.well-known/jwks.json").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+    }
+}
@@ -0,0 +1,95 @@
+package com.github.pw2712gz.authbackend.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.pw2712gz.authbackend.dto.request.RefreshTokenRequest;
+import com.github.pw2712gz.authbackend.entity.User;
+import com.github.pw2712gz.authbackend.repository.RefreshTokenRepository;
+import com.github.pw2712gz.authbackend.repository.UserRepository;
+import com.github.pw2712gz.authbackend.service.RefreshTokenService;
+import com.github.pw2712gz.authbackend.service.UserCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "auth.refresh.rotation.enabled=true",
+        "auth.refresh.rotation.reuse-grace.seconds=0"
+})
+@AutoConfigureMockMvc
+class RefreshTokenRotationTest {
+
+    private final String email = "rotate@test.com";
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private UserCache userCache;
+
+    private User user;
+
+    @BeforeEach
+    void setup() {
+        refreshTokenRepository.deleteAll();
+        userRepository.deleteAll();
+        user = userRepository.save(User.builder()
+                .firstName("Rot")
+                .lastName("Ator")
+                .email(email)
+                .password("unused")
+                .enabled(true)
+                .createdAt(Instant.now())
+                .build());
+        userCache.invalidate(email);
+    }
+
+    @Test
+    void refresh_shouldRotateToken() throws Exception {
+        String original = refreshTokenService.generateTokenForUser(user);
+
+        String rotated = refreshToken(refresh(original).andExpect(status().isOk()));
+
+        assertThat(rotated).isNotEqualTo(original);
+        refresh(rotated).andExpect(status().isOk());
+    }
+
+    @Test
+    void refresh_replayShouldRevokeFamily() throws Exception {
+        String original = refreshTokenService.generateTokenForUser(user);
+        String rotated = refreshToken(refresh(original).andExpect(status().isOk()));
+
+        Thread.sleep(5);
+        refresh(original).andExpect(status().isBadRequest());
+
+        refresh(rotated).andExpect(status().isBadRequest());
+    }
+
+    private ResultActions refresh(String refreshToken) throws Exception {
+        return mockMvc.perform(post("/api/auth/refresh")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new RefreshTokenRequest(refreshToken, email))));
+    }
+
+    private String refreshToken(ResultActions result) throws Exception {
+        String body = result.andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body).get("refreshToken").asText();
+    }
+}
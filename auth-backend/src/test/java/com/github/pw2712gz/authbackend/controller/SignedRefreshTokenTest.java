@@ -0,0 +1,127 @@
+package com.github.pw2712gz.authbackend.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.pw2712gz.authbackend.dto.request.RefreshTokenRequest;
+import com.github.pw2712gz.authbackend.repository.RefreshTokenRepository;
+import com.github.pw2712gz.authbackend.repository.RefreshTokenRevocationRepository;
+import com.github.pw2712gz.authbackend.security.AuthenticatedUser;
+import com.github.pw2712gz.authbackend.security.JwtKeyRing;
+import com.github.pw2712gz.authbackend.security.JwtProvider;
+import com.github.pw2712gz.authbackend.service.RevokedTokenFamilies;
+import com.github.pw2712gz.authbackend.service.SignedRefreshTokenService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "auth.refresh.signed.enabled=true",
+        "auth.refresh.signed.secret=dGVzdC1yZWZyZXNoLXNlY3JldC1hdC1sZWFzdC0zMi1ieXRlcw=="
+})
+@AutoConfigureMockMvc
+class SignedRefreshTokenTest {
+
+    private final String email = "signed@test.com";
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private SignedRefreshTokenService signedRefreshTokenService;
+    @Autowired
+    private RevokedTokenFamilies revokedTokenFamilies;
+    @Autowired
+    private RefreshTokenRevocationRepository revocationRepository;
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+    @Autowired
+    private JwtProvider jwtProvider;
+    @Autowired
+    private JwtKeyRing keyRing;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private String refreshToken;
+
+    @BeforeEach
+    void setup() {
+        revocationRepository.deleteAll();
+        revokedTokenFamilies.rebuild();
+        refreshToken = signedRefreshTokenService.issue(
+                new AuthenticatedUser(7L, "Sig", "Ned", email, "unused", true));
+    }
+
+    @Test
+    void refresh_shouldIssueAccessTokenWithoutStoringRefreshToken() throws Exception {
+        long storedBefore = refreshTokenRepository.count();
+
+        refresh(refreshToken)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.refreshToken").value(refreshToken))
+                .andExpect(jsonPath("$.email").value(email));
+
+        assertThat(refreshTokenRepository.count()).isEqualTo(storedBefore);
+    }
+
+    @Test
+    void logout_shouldRevokeFamily() throws Exception {
+        mockMvc.perform(post("/api/auth/logout")
+                        .header("Authorization", "Bearer " + jwtProvider.generateTokenWithUsername(email))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new RefreshTokenRequest(refreshToken, email))))
+                .andExpect(status().isOk());
+
+        refresh(refreshToken).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void refresh_shouldSeeRevocationsAfterRebuild() throws Exception {
+        signedRefreshTokenService.revoke(refreshToken);
+        revokedTokenFamilies.rebuild();
+
+        refresh(refreshToken).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void refresh_shouldRejectTamperedToken() throws Exception {
+        String[] parts = refreshToken.split("\\.");
+        String tampered = parts[0] + "." + parts[1] + "." + new StringBuilder(parts[2]).reverse();
+
+        refresh(tampered).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void refreshToken_shouldNotBeAcceptedAsBearerToken() throws Exception {
+        mockMvc.perform(get("/api/auth/me").header("Authorization", "Bearer " + refreshToken))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void refreshToken_shouldNotVerifyAgainstPublishedKeys() {
+        // A resource server checking signatures against the JWKS alone must still refuse it
+        assertThatThrownBy(() -> keyRing.newDecoder().decode(refreshToken)).isInstanceOf(JwtException.class);
+
+        String header = new String(Base64.getUrlDecoder().decode(refreshToken.split("\\.")[0]), StandardCharsets.UTF_8);
+        assertThat(header).contains("\"HS256\"").contains("\"refresh+jwt\"");
+    }
+
+    private ResultActions refresh(String token) throws Exception {
+        return mockMvc.perform(post("/api/auth/refresh")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new RefreshTokenRequest(token, email))));
+    }
+}
@@ -0,0 +1,68 @@
+package com.github.pw2712gz.authbackend.ratelimit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedBucketStoreTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    private final TokenBucket bucket = new TokenBucket(1, Duration.ofMinutes(1), NOW);
+
+    @Test
+    @DisplayName("Rounds capacity up to whole sets")
+    void capacity_roundedUp() {
+        assertEquals(8, new BoundedBucketStore(bucket, 1).capacity());
+        assertEquals(1_024, new BoundedBucketStore(bucket, 1_000).capacity());
+        assertEquals(1_024, new BoundedBucketStore(bucket, 1_024).capacity());
+    }
+
+    @Test
+    @DisplayName("Evicts the first unreferenced bucket in CLOCK order when the set is full")
+    void tryAcquire_evictsUnreferenced() {
+        BoundedBucketStore store = new BoundedBucketStore(bucket, 1);
+        for (int i = 0; i < 8; i++) {
+            assertTrue(store.tryAcquire(ClientAddress.ofIpv4(i), NOW + i));
+        }
+
+        // The ninth client replaces client 0, under the hand and never looked up since; client 1 keeps its drained bucket
+        assertTrue(store.tryAcquire(ClientAddress.ofIpv4(8), NOW + 8));
+        assertFalse(store.tryAcquire(ClientAddress.ofIpv4(1), NOW + 9));
+        assertEquals(1, store.evictions());
+        assertEquals(8, store.occupied());
+
+        assertTrue(store.tryAcquire(ClientAddress.ofIpv4(0), NOW + 10));
+        assertEquals(2, store.evictions());
+    }
+
+    @Test
+    @DisplayName("A throttled client keeps its drained bucket through a flood of new addresses")
+    void tryAcquire_drainedClientSurvivesFlood() {
+        BoundedBucketStore store = new BoundedBucketStore(bucket, 1);
+        ClientAddress throttled = ClientAddress.ofIpv4(-1);
+        assertTrue(store.tryAcquire(throttled, NOW));
+
+        for (int i = 0; i < 1_000; i++) {
+            assertTrue(store.tryAcquire(ClientAddress.ofIpv4(i), NOW + 1 + i));
+            assertFalse(store.tryAcquire(throttled, NOW + 1 + i), "throttled client got a fresh bucket at " + i);
+        }
+        assertEquals(8, store.occupied());
+    }
+
+    @Test
+    @DisplayName("Reuses refilled buckets before evicting draining ones")
+    void tryAcquire_prefersRefilledBuckets() {
+        BoundedBucketStore store = new BoundedBucketStore(bucket, 1);
+        for (int i = 0; i < 8; i++) {
+            store.tryAcquire(ClientAddress.ofIpv4(i), NOW + 30_000 * i);
+        }
+
+        // Client 0 refilled a minute after its grant; the set is full but nothing live is lost
+        assertTrue(store.tryAcquire(ClientAddress.ofIpv4(8), NOW + 60_000));
+        assertEquals(0, store.evictions());
+    }
+}
@@ -0,0 +1,70 @@
+package com.github.pw2712gz.authbackend.ratelimit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClientAddressTest {
+
+    @Test
+    @DisplayName("Packs IPv4 into its IPv4-mapped IPv6 form")
+    void parse_ipv4() {
+        assertEquals(new ClientAddress(0, 0xFFFF_0A00_0001L), ClientAddress.parse("10.0.0.1"));
+        assertEquals(new ClientAddress(0, 0xFFFF_FFFF_FFFFL), ClientAddress.parse("255.255.255.255"));
+        assertEquals(ClientAddress.parse("10.0.0.1"), ClientAddress.parse("::ffff:10.0.0.1"));
+    }
+
+    @Test
+    @DisplayName("Packs IPv6 into two longs")
+    void parse_ipv6() {
+        assertEquals(new ClientAddress(0x2001_0DB8_0000_0000L, 1), ClientAddress.parse("2001:db8::1"));
+        assertEquals(ClientAddress.parse("2001:db8::1"), ClientAddress.parse("2001:0db8:0:0:0:0:0:1"));
+        assertEquals(new ClientAddress(0, 0), ClientAddress.parse("::"));
+        assertEquals(new ClientAddress(0, 1), ClientAddress.parse("::1"));
+        assertEquals(new ClientAddress(0x0001_0000_0000_0000L, 0), ClientAddress.parse("1::"));
+        assertEquals(new ClientAddress(0xFE80_0000_0000_0000L, 1), ClientAddress.parse("fe80::1%eth0"));
+        assertEquals(new ClientAddress(0x0001_0002_0003_0004L, 0x0005_0006_0007_0008L), ClientAddress.parse("1:2:3:4:5:6:7:8"));
+        assertEquals(new ClientAddress(0x2001_0DB8_0000_0000L, 0x0000_0000_C000_0201L), ClientAddress.parse("2001:db8::192.0.2.1"));
+    }
+
+    @Test
+    @DisplayName("Strings with ':' that are not IPv6 literals are hashed, never handed to a resolver")
+    void parse_nonLiteralWithColon() {
+        for (String address : new String[]{"zz:1", "example.com:8080", "1:2:3:4:5:6:7:8:9", "1::2::3", "12345::1",
+                "1:2", ":1", "1:", ":::", "[::1]", "::1.2.3", "1:2:3:4:5:6:7:1.2.3.4"}) {
+            assertFalse(ClientAddress.parse(address).isIpLiteral(), address);
+        }
+    }
+
+    @Test
+    @DisplayName("Hashes anything that is not an IP literal without resolving it")
+    void parse_other() {
+        assertEquals(-1L, ClientAddress.parse("256.0.0.1").high());
+        assertEquals(-1L, ClientAddress.parse("localhost").high());
+        assertEquals(-1L, ClientAddress.parse("1.2.3").high());
+        assertEquals(-1L, ClientAddress.parse("zz:zz").high());
+    }
+
+    @Test
+    @DisplayName("Cuts addresses to a network prefix")
+    void prefix() {
+        assertEquals(ClientAddress.parse("2001:db8:1:2::"), ClientAddress.parse("2001:db8:1:2:aaaa:bbbb:cccc:dddd").prefix(64));
+        assertEquals(ClientAddress.parse("2001:db8:1::"), ClientAddress.parse("2001:db8:1:2::1").prefix(48));
+        assertEquals(ClientAddress.parse("10.1.2.0"), ClientAddress.parse("10.1.2.3").prefix(120));
+        assertEquals(ClientAddress.parse("localhost"), ClientAddress.parse("localhost").prefix(64));
+        assertThrows(IllegalArgumentException.class, () -> ClientAddress.parse("10.1.2.3").prefix(129));
+    }
+
+    @Test
+    @DisplayName("Aggregates IPv4 and IPv6 clients at their own prefix lengths")
+    void aggregation() {
+        AddressAggregation aggregation = new AddressAggregation(24, 48);
+
+        assertEquals(aggregation.apply(ClientAddress.parse("10.1.2.3")), aggregation.apply(ClientAddress.parse("10.1.2.200")));
+        assertNotEquals(aggregation.apply(ClientAddress.parse("10.1.2.3")), aggregation.apply(ClientAddress.parse("10.1.3.3")));
+        assertEquals(aggregation.apply(ClientAddress.parse("2001:db8:1:2::1")), aggregation.apply(ClientAddress.parse("2001:db8:1:ffff::1")));
+        assertEquals(ClientAddress.parse("10.1.2.3"), AddressAggregation.DEFAULT.apply(ClientAddress.parse("10.1.2.3")));
+        assertEquals(ClientAddress.parse("2001:db8::"), AddressAggregation.DEFAULT.apply(ClientAddress.parse("2001:db8::1")));
+    }
+}
@@ -0,0 +1,218 @@
+package com.github.pw2712gz.authbackend.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DistributedRateLimiterTest {
+
+    private static final Duration WINDOW = Duration.ofMinutes(1);
+    // Store key of 10.0.0.1
+    private static final String KEY = "login/0/ffff0a000001";
+
+    // Start of a window, so the sliding weight of the previous window is exact
+    private final AtomicLong now = new AtomicLong(28_333_333L * 60_000);
+    private InMemoryRateLimitCounterStore store;
+    private SimpleMeterRegistry meterRegistry;
+    private DistributedRateLimiter nodeA;
+    private DistributedRateLimiter nodeB;
+
+    @BeforeEach
+    void setUp() {
+        store = new InMemoryRateLimitCounterStore();
+        meterRegistry = new SimpleMeterRegistry();
+        nodeA = new DistributedRateLimiter(store, "login", 10, WINDOW, 1_000, meterRegistry, now::get);
+        nodeB = new DistributedRateLimiter(store, "login", 10, WINDOW, 1_000, new SimpleMeterRegistry(), now::get);
+    }
+
+    @Test
+    @DisplayName("A single node never exceeds the limit between syncs")
+    void tryAcquire_localLimit() {
+        assertEquals(10, acquire(nodeA, "10.0.0.1", 15));
+    }
+
+    @Test
+    @DisplayName("Nodes share one limit once their counts are synced")
+    void tryAcquire_sharedAcrossNodes() {
+        assertEquals(6, acquire(nodeA, "10.0.0.1", 6));
+        nodeA.sync();
+        // nodeB learns the cluster count for a client at its first sync after seeing it
+        assertEquals(1, acquire(nodeB, "10.0.0.1", 1));
+        nodeB.sync();
+
+        assertEquals(3, acquire(nodeB, "10.0.0.1", 10));
+        nodeB.sync();
+        nodeA.sync();
+
+        assertEquals(0, acquire(nodeA, "10.0.0.1", 1));
+        assertEquals(10, acquire(nodeA, "10.0.0.2", 10));
+    }
+
+    @Test
+    @DisplayName("The previous window's count slides out over the current window")
+    void tryAcquire_slidingWindow() {
+        acquire(nodeA, "10.0.0.1", 10);
+        nodeA.sync();
+
+        now.addAndGet(WINDOW.toMillis() + WINDOW.toMillis() / 2);
+        assertEquals(5, acquire(nodeA, "10.0.0.1", 10));
+    }
+
+    @Test
+    @DisplayName("Keeps unsynced counts when the store fails and pushes them on the next sync")
+    void sync_retriesAfterFailure() {
+        FailingStore failing = new FailingStore(store);
+        DistributedRateLimiter limiter = new DistributedRateLimiter(failing, "login", 10, WINDOW, 1_000, meterRegistry, now::get);
+
+        acquire(limiter, "10.0.0.1", 4);
+        failing.failing = true;
+        limiter.sync();
+        assertEquals(6, acquire(limiter, "10.0.0.1", 10));
+        assertEquals(1, meterRegistry.get("auth.ratelimit.cluster.sync.failures").counter().count());
+
+        failing.failing = false;
+        limiter.sync();
+        assertEquals(10, store.addAndGet(window(), Map.of(), List.of(KEY)).get(KEY).current());
+    }
+
+    @Test
+    @DisplayName("Forgets idle clients and purges old windows")
+    void sync_dropsIdleClients() {
+        acquire(nodeA, "10.0.0.1", 3);
+        nodeA.sync();
+        assertEquals(1, meterRegistry.get("auth.ratelimit.cluster.clients").gauge().value());
+
+        now.addAndGet(2 * WINDOW.toMillis());
+        nodeA.sync();
+        assertEquals(0, meterRegistry.get("auth.ratelimit.cluster.clients").gauge().value());
+        assertTrue(store.addAndGet(window() - 2, Map.of(), List.of(KEY)).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Reports the remaining requests and leaves other limiters' counters alone")
+    void acquire_remainingAndNamespaced() {
+        assertEquals(9, nodeA.acquire(ClientAddress.parse("10.0.0.1")));
+        assertEquals(8, nodeA.acquire(ClientAddress.parse("10.0.0.1")));
+        store.addAndGet(window(), Map.of("register/0/ffff0a000001", 1L), List.of());
+        nodeA.sync();
+
+        now.addAndGet(2 * WINDOW.toMillis());
+        nodeA.sync();
+        assertEquals(1, store.addAndGet(window() - 2, Map.of(), List.of("register/0/ffff0a000001"))
+                .get("register/0/ffff0a000001").current());
+    }
+
+    @Test
+    @DisplayName("Clients beyond the table size share one overflow limit instead of going unlimited")
+    void acquire_overflowFailsClosed() {
+        var limiter = new DistributedRateLimiter(store, "login", 10, WINDOW, 2, meterRegistry, now::get);
+        acquire(limiter, "10.0.0.1", 1);
+        acquire(limiter, "10.0.0.2", 1);
+
+        assertEquals(6, acquire(limiter, "10.0.0.3", 6));
+        assertEquals(4, acquire(limiter, "2001:db8::1", 6));
+        assertFalse(limiter.tryAcquire("2001:db8::2"));
+        // Tracked clients keep their own limit
+        assertEquals(9, acquire(limiter, "10.0.0.1", 10));
+        assertEquals(13, meterRegistry.get("auth.ratelimit.cluster.overflow").counter().count());
+    }
+
+    @Test
+    @DisplayName("Close waits for a running sync before pushing the remaining grants")
+    void close_waitsForRunningSync() throws Exception {
+        var entered = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var pushed = new AtomicLong();
+        RateLimitCounterStore blocking = new RateLimitCounterStore() {
+            @Override
+            public Map<String, WindowCounts> addAndGet(long window, Map<String, Long> deltas, Collection<String> keys) {
+                pushed.addAndGet(deltas.values().stream().mapToLong(Long::longValue).sum());
+                if (!deltas.isEmpty() && entered.getCount() > 0) {
+                    entered.countDown();
+                    // Like a JDBC call, not interruptible
+                    while (release.getCount() > 0) {
+                        Thread.onSpinWait();
+                    }
+                }
+                return Map.of();
+            }
+
+            @Override
+            public void purgeBefore(String keyPrefix, long window) {
+            }
+        };
+        var limiter = new DistributedRateLimiter(blocking, "close", 10, WINDOW, 1_000, Duration.ofMillis(10),
+                new SimpleMeterRegistry());
+        limiter.acquire(ClientAddress.parse("10.0.0.1"));
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        limiter.acquire(ClientAddress.parse("10.0.0.1"));
+
+        Thread closer = new Thread(limiter::close);
+        closer.start();
+        closer.join(200);
+        assertTrue(closer.isAlive());
+
+        release.countDown();
+        closer.join(5_000);
+        assertFalse(closer.isAlive());
+        assertEquals(2, pushed.get());
+    }
+
+    @Test
+    @DisplayName("Removes its meters on close so a replacement can register them")
+    void close_removesMeters() {
+        nodeA.close();
+
+        assertTrue(meterRegistry.find("auth.ratelimit.cluster.clients").meters().isEmpty());
+        new DistributedRateLimiter(store, "login", 5, WINDOW, 1_000, meterRegistry, now::get);
+        assertEquals(1, meterRegistry.find("auth.ratelimit.cluster.clients").tag("limiter", "login").meters().size());
+    }
+
+    private long window() {
+        return now.get() / WINDOW.toMillis();
+    }
+
+    private static int acquire(DistributedRateLimiter limiter, String address, int attempts) {
+        int allowed = 0;
+        for (int i = 0; i < attempts; i++) {
+            if (limiter.tryAcquire(address)) {
+                allowed++;
+            }
+        }
+        return allowed;
+    }
+
+    private static final class FailingStore implements RateLimitCounterStore {
+
+        private final RateLimitCounterStore delegate;
+        volatile boolean failing;
+
+        FailingStore(RateLimitCounterStore delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Map<String, WindowCounts> addAndGet(long window, Map<String, Long> deltas, Collection<String> keys) {
+            if (failing) {
+                throw new IllegalStateException("store unavailable");
+            }
+            return delegate.addAndGet(window, deltas, keys);
+        }
+
+        @Override
+        public void purgeBefore(String keyPrefix, long window) {
+            delegate.purgeBefore(keyPrefix, window);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.github.pw2712gz.authbackend.ratelimit;
+
+import com.github.pw2712gz.authbackend.ratelimit.RateLimitCounterStore.WindowCounts;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class JdbcRateLimitCounterStoreTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private JdbcRateLimitCounterStore store;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        store = new JdbcRateLimitCounterStore(jdbcTemplate);
+    }
+
+    @Test
+    @DisplayName("Upserts deltas in key order and maps both windows from one query")
+    @SuppressWarnings("unchecked")
+    void addAndGet_upsertsAndReads() throws Exception {
+        doAnswer(inv -> {
+            RowCallbackHandler handler = inv.getArgument(1);
+            handler.processRow(row("b", 41, 7));
+            handler.processRow(row("b", 42, 3));
+            handler.processRow(row("a", 42, 2));
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(Object[].class));
+
+        Map<String, WindowCounts> counts = store.addAndGet(42, Map.of("b", 1L, "a", 2L), List.of("a", "b", "c"));
+
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(contains("ON DUPLICATE KEY UPDATE"), rows.capture());
+        assertArrayEquals(new Object[]{"a", 42L, 2L}, rows.getValue().get(0));
+        assertArrayEquals(new Object[]{"b", 42L, 1L}, rows.getValue().get(1));
+
+        verify(jdbcTemplate).query(contains("limiter_key IN (?, ?, ?)"), any(RowCallbackHandler.class),
+                eq(41L), eq(42L), eq("a"), eq("b"), eq("c"));
+        assertEquals(Map.of("a", new WindowCounts(0, 2), "b", new WindowCounts(7, 3)), counts);
+    }
+
+    @Test
+    @DisplayName("Skips the upsert when there is nothing to push")
+    void addAndGet_noDeltas() {
+        store.addAndGet(42, Map.of(), List.of("a"));
+
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    @DisplayName("Purges by prefix with LIKE wildcards in the limiter name escaped")
+    void purgeBefore_escapesWildcards() {
+        store.purgeBefore("reset_password/", 41);
+
+        verify(jdbcTemplate).update(contains("ESCAPE '!'"), eq("reset!_password/%"), eq(41L));
+    }
+
+    private static ResultSet row(String key, long window, long count) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getString(1)).thenReturn(key);
+        when(rs.getLong(2)).thenReturn(window);
+        when(rs.getLong(3)).thenReturn(count);
+        return rs;
+    }
+}
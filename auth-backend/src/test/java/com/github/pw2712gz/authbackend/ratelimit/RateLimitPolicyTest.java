@@ -0,0 +1,46 @@
+package com.github.pw2712gz.authbackend.ratelimit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitPolicyTest {
+
+    @Test
+    @DisplayName("Parses limit/window lines with simple and ISO-8601 durations")
+    void parse_validFile() throws Exception {
+        List<RateLimitPolicy> policies = RateLimitPolicy.parse(new StringReader("""
+                # tighter login
+                /api/auth/login = 3/30s
+                /api/auth/refresh=60/PT1M
+                """));
+
+        assertEquals(2, policies.size());
+        assertTrue(policies.contains(new RateLimitPolicy("/api/auth/login", 3, Duration.ofSeconds(30))));
+        assertTrue(policies.contains(new RateLimitPolicy("/api/auth/refresh", 60, Duration.ofMinutes(1))));
+    }
+
+    @Test
+    @DisplayName("Rejects malformed lines")
+    void parse_invalidFile() {
+        assertThrows(IllegalArgumentException.class, () -> RateLimitPolicy.parse(new StringReader("/api/auth/login=5")));
+        assertThrows(IllegalArgumentException.class, () -> RateLimitPolicy.parse(new StringReader("/api/auth/login=0/1m")));
+        assertThrows(IllegalArgumentException.class, () -> RateLimitPolicy.parse(new StringReader("api/auth/login=5/1m")));
+        assertThrows(IllegalArgumentException.class, () -> RateLimitPolicy.parse(new StringReader("/api/auth/login=5/soon")));
+    }
+
+    @Test
+    @DisplayName("Defaults limit login harder than refresh")
+    void defaults_loginStricterThanRefresh() {
+        List<RateLimitPolicy> defaults = RateLimitPolicy.defaults();
+        int login = defaults.stream().filter(p -> p.name().equals("login")).findFirst().orElseThrow().limit();
+        int refresh = defaults.stream().filter(p -> p.name().equals("refresh")).findFirst().orElseThrow().limit();
+
+        assertTrue(login < refresh);
+    }
+}
@@ -0,0 +1,67 @@
+package com.github.pw2712gz.authbackend.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(1_700_000_000_000L);
+    private SimpleMeterRegistry meterRegistry;
+    private TokenBucketRateLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        limiter = new TokenBucketRateLimiter("login", 2, Duration.ofMinutes(1), 1_000, meterRegistry, now::get);
+    }
+
+    @Test
+    @DisplayName("Limits each client independently")
+    void tryAcquire_perClient() {
+        assertTrue(limiter.tryAcquire("10.0.0.1"));
+        assertTrue(limiter.tryAcquire("10.0.0.1"));
+        assertFalse(limiter.tryAcquire("10.0.0.1"));
+        assertFalse(limiter.tryAcquire("::ffff:10.0.0.1"));
+
+        assertTrue(limiter.tryAcquire("10.0.0.2"));
+        assertTrue(limiter.tryAcquire("2001:db8::1"));
+        assertEquals(3, meterRegistry.get("auth.ratelimit.occupancy").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Memory stays at capacity under a flood of distinct clients")
+    void tryAcquire_boundedUnderFlood() {
+        for (int i = 0; i < 50_000; i++) {
+            limiter.tryAcquire("10." + (i >> 16) + "." + ((i >> 8) & 0xFF) + "." + (i & 0xFF));
+        }
+
+        double capacity = meterRegistry.get("auth.ratelimit.capacity").gauge().value();
+        assertEquals(1_024, capacity);
+        assertEquals(capacity, meterRegistry.get("auth.ratelimit.occupancy").gauge().value());
+        assertEquals(50_000 - capacity, meterRegistry.get("auth.ratelimit.evictions").functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("Reports the tokens left and the wait for the next one")
+    void acquire_remaining() {
+        assertEquals(1, limiter.acquire(ClientAddress.parse("10.0.0.1")));
+        assertEquals(0, limiter.acquire(ClientAddress.parse("10.0.0.1")));
+        assertEquals(RateLimiter.REJECTED, limiter.acquire(ClientAddress.parse("10.0.0.1")));
+        assertEquals(Duration.ofSeconds(30), limiter.retryAfter());
+    }
+
+    @Test
+    @DisplayName("Removes its meters on close")
+    void close_removesMeters() {
+        limiter.close();
+
+        assertTrue(meterRegistry.getMeters().isEmpty());
+    }
+}
@@ -0,0 +1,106 @@
+package com.github.pw2712gz.authbackend.ratelimit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    private final TokenBucket bucket = new TokenBucket(10, Duration.ofMinutes(1), NOW);
+
+    @Test
+    @DisplayName("Allows a full burst and then rejects")
+    void acquire_burstThenReject() {
+        AtomicLong cell = new AtomicLong(bucket.initialState(NOW));
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(bucket.tryAcquire(cell, NOW));
+        }
+        assertFalse(bucket.tryAcquire(cell, NOW));
+        assertEquals(0, bucket.available(cell.get(), NOW));
+    }
+
+    @Test
+    @DisplayName("Refills in proportion to elapsed time, capped at capacity")
+    void acquire_refillsOverTime() {
+        AtomicLong cell = new AtomicLong(bucket.initialState(NOW));
+        for (int i = 0; i < 10; i++) {
+            bucket.tryAcquire(cell, NOW);
+        }
+
+        assertFalse(bucket.tryAcquire(cell, NOW + 5_999));
+        assertTrue(bucket.tryAcquire(cell, NOW + 6_000));
+        assertEquals(5, bucket.available(cell.get(), NOW + 36_000));
+        assertEquals(10, bucket.available(cell.get(), NOW + 600_000));
+        assertTrue(bucket.isFull(cell.get(), NOW + 66_000));
+        assertFalse(bucket.isFull(cell.get(), NOW + 60_000));
+    }
+
+    @Test
+    @DisplayName("Frequent calls do not lose refill to rounding")
+    void acquire_noRoundingLoss() {
+        AtomicLong cell = new AtomicLong(bucket.initialState(NOW));
+        for (int i = 0; i < 10; i++) {
+            bucket.tryAcquire(cell, NOW);
+        }
+
+        int granted = 0;
+        for (long t = NOW; t <= NOW + 60_000; t++) {
+            if (bucket.tryAcquire(cell, t)) {
+                granted++;
+            }
+        }
+        assertEquals(10, granted);
+    }
+
+    @Test
+    @DisplayName("Concurrent callers never get more tokens than the bucket holds")
+    void tryAcquire_concurrent() throws InterruptedException {
+        TokenBucket large = new TokenBucket(1_000, Duration.ofDays(1), NOW);
+        AtomicLong cell = new AtomicLong(large.initialState(NOW));
+        AtomicInteger granted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 500; i++) {
+                    if (large.tryAcquire(cell, NOW)) {
+                        granted.incrementAndGet();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(1_000, granted.get());
+    }
+
+    @Test
+    @DisplayName("Rejects capacities that do not fit the packed state")
+    void constructor_validatesCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, Duration.ofMinutes(1), NOW));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(1 << 23, Duration.ofMinutes(1), NOW));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(10, Duration.ZERO, NOW));
+    }
+}
@@ -0,0 +1,79 @@
+package com.github.pw2712gz.authbackend.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CachingJwtDecoderTest {
+
+    private static final Instant NOW = Instant.parse("2025-01-01T00:00:00Z");
+
+    private JwtDecoder delegate;
+    private SimpleMeterRegistry meterRegistry;
+    private CachingJwtDecoder decoder;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(JwtDecoder.class);
+        meterRegistry = new SimpleMeterRegistry();
+        decoder = new CachingJwtDecoder(delegate, meterRegistry, 100, Duration.ofMinutes(15),
+                Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    @Test
+    @DisplayName("Verifies a token once and serves repeats from the cache")
+    void decode_cachesVerifiedToken() {
+        Jwt jwt = jwt(NOW.plusSeconds(600));
+        when(delegate.decode("token")).thenReturn(jwt);
+
+        assertSame(jwt, decoder.decode("token"));
+        assertSame(jwt, decoder.decode("token"));
+
+        verify(delegate, times(1)).decode("token");
+        assertEquals(1, meterRegistry.get("auth.jwt.verify.duration").timer().count());
+        assertEquals(1, meterRegistry.get("cache.gets").tag("cache", "jwt.decoder").tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("Does not cache tokens that are already expired")
+    void decode_doesNotCacheExpiredToken() {
+        when(delegate.decode("expired")).thenReturn(jwt(NOW.minusSeconds(1)));
+
+        decoder.decode("expired");
+        decoder.decode("expired");
+
+        verify(delegate, times(2)).decode("expired");
+    }
+
+    @Test
+    @DisplayName("Rejected tokens are re-verified every time")
+    void decode_doesNotCacheFailures() {
+        when(delegate.decode("bad")).thenThrow(new BadJwtException("bad signature"));
+
+        assertThrows(BadJwtException.class, () -> decoder.decode("bad"));
+        assertThrows(BadJwtException.class, () -> decoder.decode("bad"));
+
+        verify(delegate, times(2)).decode("bad");
+    }
+
+    private static Jwt jwt(Instant expiresAt) {
+        return Jwt.withTokenValue("token")
+                .header("alg", "RS256")
+                .subject("user@example.com")
+                .issuedAt(expiresAt.minusSeconds(900))
+                .expiresAt(expiresAt)
+                .build();
+    }
+}
@@ -0,0 +1,52 @@
+package com.github.pw2712gz.authbackend.security;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClientIpResolverTest {
+
+    private final ClientIpResolver resolver = new ClientIpResolver("X-Forwarded-For", List.of("10.0.0.0/8", "fd00::/8", "192.0.2.7"));
+
+    @Test
+    @DisplayName("Takes the rightmost untrusted hop when the peer is a trusted proxy")
+    void resolve_behindTrustedProxies() {
+        assertEquals("203.0.113.9", resolver.resolve(request("10.1.1.1", "198.51.100.1, 203.0.113.9, 10.2.2.2")));
+        assertEquals("2001:db8::1", resolver.resolve(request("fd00::5", "2001:db8::1")));
+        assertEquals("203.0.113.9", resolver.resolve(request("192.0.2.7", "203.0.113.9")));
+    }
+
+    @Test
+    @DisplayName("Ignores the header from untrusted peers")
+    void resolve_untrustedPeer() {
+        assertEquals("198.51.100.1", resolver.resolve(request("198.51.100.1", "203.0.113.9")));
+        assertEquals("198.51.100.1", ClientIpResolver.direct().resolve(request("198.51.100.1", "203.0.113.9")));
+    }
+
+    @Test
+    @DisplayName("Falls back to the peer or the leftmost hop when no untrusted address is forwarded")
+    void resolve_onlyProxies() {
+        assertEquals("10.1.1.1", resolver.resolve(request("10.1.1.1", null)));
+        assertEquals("10.3.3.3", resolver.resolve(request("10.1.1.1", "10.3.3.3, 10.2.2.2")));
+    }
+
+    @Test
+    @DisplayName("Rejects malformed proxy ranges")
+    void invalidRanges() {
+        assertThrows(IllegalArgumentException.class, () -> new ClientIpResolver("X-Forwarded-For", List.of("proxy.internal")));
+        assertThrows(IllegalArgumentException.class, () -> new ClientIpResolver("X-Forwarded-For", List.of("10.0.0.0/33")));
+    }
+
+    private static MockHttpServletRequest request(String remoteAddress, String forwardedFor) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/auth/login");
+        request.setRemoteAddr(remoteAddress);
+        if (forwardedFor != null) {
+            request.addHeader("X-Forwarded-For", forwardedFor);
+        }
+        return request;
+    }
+}
@@ -0,0 +1,56 @@
+package com.github.pw2712gz.authbackend.security;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtKeyRingTest {
+
+    @Test
+    @DisplayName("Uses the RFC 7638 thumbprint as a stable kid")
+    void signingKeyId_isThumbprint() throws Exception {
+        KeyPair current = rsaKeyPair();
+
+        JwtKeyRing first = new JwtKeyRing(JwtSigningAlgorithm.RS256, current.getPublic(), current.getPrivate(), List.of());
+        JwtKeyRing second = new JwtKeyRing(JwtSigningAlgorithm.RS256, current.getPublic(), current.getPrivate(), List.of());
+
+        assertNotNull(first.signingKeyId());
+        assertEquals(first.signingKeyId(), second.signingKeyId());
+        assertTrue(first.signingKeys().getKeys().get(0).isPrivate());
+    }
+
+    @Test
+    @DisplayName("Publishes additional keys for verification only, without duplicates")
+    void publicKeys_includeAdditionalKeys() throws Exception {
+        KeyPair current = rsaKeyPair();
+        KeyPair previous = ecKeyPair();
+
+        JwtKeyRing keyRing = new JwtKeyRing(JwtSigningAlgorithm.RS256, current.getPublic(), current.getPrivate(),
+                List.of(previous.getPublic(), previous.getPublic(), current.getPublic()));
+
+        assertEquals(2, keyRing.publicKeys().getKeys().size());
+        assertEquals(1, keyRing.signingKeys().getKeys().size());
+        assertTrue(keyRing.publicKeys().getKeys().stream().noneMatch(key -> key.isPrivate()));
+        assertEquals(Set.of(JWSAlgorithm.RS256, JWSAlgorithm.ES256), keyRing.verificationAlgorithms());
+    }
+
+    private static KeyPair rsaKeyPair() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        return generator.generateKeyPair();
+    }
+
+    private static KeyPair ecKeyPair() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        return generator.generateKeyPair();
+    }
+}
@@ -1,20 +1,33 @@
 package com.github.pw2712gz.authbackend.security;
 
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.crypto.ECDSAVerifier;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jwt.SignedJWT;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.MockitoAnnotations;
+import com.github.pw2712gz.authbackend.dto.response.UserResponse;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.jwt.JwtEncoder;
 import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
 
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Instant;
 import java.util.Collections;
+import java.util.Optional;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 class JwtProviderTest {
@@ -94,4 +107,74 @@ class JwtProviderTest {
         );
         assertEquals("Username must not be null", ex.getMessage());
     }
+
+    @Test
+    @DisplayName("Embeds profile claims when the principal is an AuthenticatedUser")
+    void generateToken_embedsProfileClaims() {
+        Authentication auth = mock(Authentication.class);
+        when(auth.getPrincipal()).thenReturn(new AuthenticatedUser(42L, "Ada", "Lovelace", "ada@example.com", null, true));
+
+        Jwt mockJwt = mock(Jwt.class);
+        when(mockJwt.getTokenValue()).thenReturn("profile-token");
+        ArgumentCaptor<JwtEncoderParameters> captor = ArgumentCaptor.forClass(JwtEncoderParameters.class);
+        when(jwtEncoder.encode(captor.capture())).thenReturn(mockJwt);
+
+        jwtProvider.generateToken(auth);
+
+        var claims = captor.getValue().getClaims();
+        assertEquals("ada@example.com", claims.getSubject());
+        assertEquals(42L, (Long) claims.getClaim(JwtProvider.CLAIM_USER_ID));
+        assertEquals("Ada", claims.getClaim(JwtProvider.CLAIM_GIVEN_NAME));
+        assertEquals("Lovelace", claims.getClaim(JwtProvider.CLAIM_FAMILY_NAME));
+    }
+
+    @Test
+    @DisplayName("Reads the profile from claims issued under the current version")
+    void readProfile_returnsProfileForCurrentVersion() {
+        Jwt jwt = jwtWithProfileVersion(1L);
+
+        Optional<UserResponse> profile = jwtProvider.readProfile(jwt);
+
+        assertTrue(profile.isPresent());
+        assertEquals(new UserResponse(42L, "Ada", "Lovelace", "ada@example.com"), profile.get());
+    }
+
+    @Test
+    @DisplayName("Ignores profile claims from an older version")
+    void readProfile_emptyForStaleVersion() {
+        JwtProvider bumped = new JwtProvider(jwtEncoder, 900_000L, 2L);
+
+        assertTrue(bumped.readProfile(jwtWithProfileVersion(1L)).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Signs with the configured algorithm")
+    void generateTokenWithUsername_usesConfiguredAlgorithm() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        KeyPair keyPair = generator.generateKeyPair();
+
+        var jwk = JwtSigningAlgorithm.ES256.toJwk(keyPair.getPublic(), keyPair.getPrivate());
+        var encoder = new NimbusJwtEncoder(new ImmutableJWKSet<>(new JWKSet(jwk)));
+        var provider = new JwtProvider(encoder, 900_000L, 1L, JwtSigningAlgorithm.ES256);
+
+        SignedJWT signed = SignedJWT.parse(provider.generateTokenWithUsername("ec@example.com"));
+
+        assertEquals(JWSAlgorithm.ES256, signed.getHeader().getAlgorithm());
+        assertTrue(signed.verify(new ECDSAVerifier((ECPublicKey) keyPair.getPublic())));
+        assertEquals("ec@example.com", signed.getJWTClaimsSet().getSubject());
+    }
+
+    private Jwt jwtWithProfileVersion(long version) {
+        return Jwt.withTokenValue("token")
+                .header("alg", "RS256")
+                .subject("ada@example.com")
+                .issuedAt(Instant.now())
+                .expiresAt(Instant.now().plusSeconds(60))
+                .claim(JwtProvider.CLAIM_USER_ID, 42L)
+                .claim(JwtProvider.CLAIM_GIVEN_NAME, "Ada")
+                .claim(JwtProvider.CLAIM_FAMILY_NAME, "Lovelace")
+                .claim(JwtProvider.CLAIM_PROFILE_VERSION, version)
+                .build();
+    }
 }
@@ -0,0 +1,97 @@
+package com.github.pw2712gz.authbackend.security;
+
+import com.github.pw2712gz.authbackend.exception.HashingCapacityExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHashingExecutorTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private PasswordHashingExecutor hashingExecutor;
+    private ExecutorService callers;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        hashingExecutor = new PasswordHashingExecutor(meterRegistry, 1, 1, 2);
+        callers = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+        hashingExecutor.shutdown();
+    }
+
+    @Test
+    @DisplayName("Runs the task on the hashing pool and returns its result")
+    void execute_returnsResult() {
+        String thread = hashingExecutor.execute(() -> Thread.currentThread().getName());
+
+        assertTrue(thread.startsWith("password-hashing-"));
+        assertEquals(1, meterRegistry.get("auth.password.hashing.wait").timer().count());
+    }
+
+    @Test
+    @DisplayName("Rejects with Retry-After once worker and queue are both occupied")
+    void execute_rejectsWhenQueueFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        callers.submit(() -> hashingExecutor.execute(() -> {
+            started.countDown();
+            await(release);
+            return true;
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        callers.submit(() -> hashingExecutor.execute(() -> true));
+        waitForQueueDepth(1);
+
+        HashingCapacityExceededException ex = assertThrows(
+                HashingCapacityExceededException.class,
+                () -> hashingExecutor.execute(() -> true)
+        );
+
+        assertEquals(2, ex.getRetryAfterSeconds());
+        assertEquals(1.0, meterRegistry.get("auth.password.hashing.rejected").counter().count());
+        release.countDown();
+    }
+
+    @Test
+    @DisplayName("Propagates runtime exceptions thrown by the task")
+    void execute_propagatesRuntimeException() {
+        IllegalArgumentException ex = assertThrows(
+                IllegalArgumentException.class,
+                () -> hashingExecutor.execute(() -> {
+                    throw new IllegalArgumentException("bad hash");
+                })
+        );
+        assertEquals("bad hash", ex.getMessage());
+    }
+
+    private void waitForQueueDepth(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (meterRegistry.get("auth.password.hashing.queue.depth").gauge().value() < expected
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
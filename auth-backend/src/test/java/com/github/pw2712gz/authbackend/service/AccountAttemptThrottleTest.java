@@ -0,0 +1,101 @@
+package com.github.pw2712gz.authbackend.service;
+
+import com.github.pw2712gz.authbackend.exception.AccountThrottledException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccountAttemptThrottleTest {
+
+    private AccountAttemptThrottle throttle;
+
+    @BeforeEach
+    void setUp() {
+        throttle = new AccountAttemptThrottle(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(throttle, "enabled", true);
+        ReflectionTestUtils.setField(throttle, "sketchWidth", 1_024);
+        ReflectionTestUtils.setField(throttle, "sketchDepth", 4);
+        ReflectionTestUtils.setField(throttle, "loginFreeAttempts", 3);
+        ReflectionTestUtils.setField(throttle, "resetFreeAttempts", 2);
+        ReflectionTestUtils.setField(throttle, "decayMillis", 60_000L);
+        throttle.init();
+    }
+
+    @Test
+    @DisplayName("Refuses logins after the free failures without counting the refusals, for any casing of the email")
+    void checkLogin_refusalsAreNotCounted() {
+        for (int i = 0; i < 3; i++) {
+            assertDoesNotThrow(() -> throttle.checkLogin("victim@example.com"));
+            throttle.recordLoginFailure(" Victim@Example.com");
+        }
+
+        for (int i = 0; i < 10; i++) {
+            long retryAfter = assertThrows(AccountThrottledException.class,
+                    () -> throttle.checkLogin("VICTIM@example.com")).getRetryAfterSeconds();
+            assertTrue(retryAfter > 55 && retryAfter <= 60, "retry after " + retryAfter);
+        }
+        assertDoesNotThrow(() -> throttle.checkLogin("other@example.com"));
+
+        // One halving brings 3 failures under the budget, however many refusals came in between
+        throttle.decay();
+        assertDoesNotThrow(() -> throttle.checkLogin("victim@example.com"));
+    }
+
+    @Test
+    @DisplayName("Retry-After covers every halving needed and the throttle lifts once they have run")
+    void checkLogin_retryAfterFollowsDecay() {
+        for (int i = 0; i < 20; i++) {
+            throttle.recordLoginFailure("victim@example.com");
+        }
+        // 20 -> 10 -> 5 -> 2: three halvings, the first at the next decay
+        long retryAfter = assertThrows(AccountThrottledException.class,
+                () -> throttle.checkLogin("victim@example.com")).getRetryAfterSeconds();
+        assertTrue(retryAfter > 175 && retryAfter <= 180, "retry after " + retryAfter);
+
+        throttle.decay();
+        throttle.decay();
+        assertThrows(AccountThrottledException.class, () -> throttle.checkLogin("victim@example.com"));
+        throttle.decay();
+
+        assertDoesNotThrow(() -> throttle.checkLogin("victim@example.com"));
+    }
+
+    @Test
+    @DisplayName("A successful login clears the account's failures")
+    void recordLoginSuccess_resets() {
+        for (int i = 0; i < 2; i++) {
+            throttle.recordLoginFailure("victim@example.com");
+        }
+
+        throttle.recordLoginSuccess("Victim@example.com");
+        for (int i = 0; i < 2; i++) {
+            throttle.recordLoginFailure("victim@example.com");
+        }
+
+        assertDoesNotThrow(() -> throttle.checkLogin("victim@example.com"));
+    }
+
+    @Test
+    @DisplayName("Suppresses reset emails beyond the free requests")
+    void throttlePasswordReset() {
+        assertFalse(throttle.throttlePasswordReset("victim@example.com"));
+        assertFalse(throttle.throttlePasswordReset("victim@example.com"));
+        assertTrue(throttle.throttlePasswordReset("victim@example.com"));
+    }
+
+    @Test
+    @DisplayName("Never throttles when disabled")
+    void disabled() {
+        ReflectionTestUtils.setField(throttle, "enabled", false);
+        for (int i = 0; i < 10; i++) {
+            throttle.recordLoginFailure("victim@example.com");
+        }
+
+        assertDoesNotThrow(() -> throttle.checkLogin("victim@example.com"));
+        assertFalse(throttle.throttlePasswordReset("victim@example.com"));
+    }
+}
@@ -4,9 +4,15 @@ import com.github.pw2712gz.authbackend.dto.request.LoginRequest;
 import com.github.pw2712gz.authbackend.dto.request.RefreshTokenRequest;
 import com.github.pw2712gz.authbackend.dto.request.RegisterRequest;
 import com.github.pw2712gz.authbackend.dto.response.AuthenticationResponse;
+import com.github.pw2712gz.authbackend.dto.response.UserResponse;
 import com.github.pw2712gz.authbackend.entity.User;
+import com.github.pw2712gz.authbackend.exception.AccountThrottledException;
 import com.github.pw2712gz.authbackend.repository.UserRepository;
+import com.github.pw2712gz.authbackend.security.AuthenticatedUser;
 import com.github.pw2712gz.authbackend.security.JwtProvider;
+import com.github.pw2712gz.authbackend.service.RefreshTokenService.RotatedToken;
+import com.github.pw2712gz.authbackend.service.SignedRefreshTokenService.VerifiedToken;
+import com.github.pw2712gz.authbackend.service.UserCache.CachedUser;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -14,12 +20,21 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -37,9 +52,21 @@ class AuthServiceTest {
     @Mock
     private RefreshTokenService refreshTokenService;
     @Mock
+    private SignedRefreshTokenService signedRefreshTokenService;
+    @Mock
+    private RefreshTokenUsageRecorder refreshTokenUsageRecorder;
+    @Mock
     private MailService mailService;
     @Mock
     private PasswordResetService passwordResetService;
+    @Mock
+    private UserCache userCache;
+    @Mock
+    private RegisteredEmailFilter registeredEmailFilter;
+    @Mock
+    private AccountAttemptThrottle accountAttemptThrottle;
+    @Mock
+    private TransactionTemplate transactionTemplate;
 
     @InjectMocks
     private AuthService authService;
@@ -49,6 +76,11 @@ class AuthServiceTest {
     @BeforeEach
     void setup() {
         mocks = MockitoAnnotations.openMocks(this);
+        when(registeredEmailFilter.mightExist(any())).thenReturn(true);
+        doAnswer(inv -> {
+            inv.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
     }
 
     @AfterEach
@@ -66,9 +98,44 @@ class AuthServiceTest {
         when(userRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
 
         assertDoesNotThrow(() -> authService.register(request));
+        verify(userCache).invalidate("john@example.com");
         verify(mailService).sendWelcomeEmail("john@example.com", "John");
     }
 
+    @Test
+    @DisplayName("Should reject registration for a cached user without querying the DB")
+    void register_cachedUserRejectedWithoutQuery() {
+        RegisterRequest request = new RegisterRequest("Jane", "Smith", "jane@example.com", "password");
+        when(userCache.isCached("jane@example.com")).thenReturn(true);
+
+        assertThrows(IllegalStateException.class, () -> authService.register(request));
+        verify(userRepository, never()).existsByEmail(any());
+    }
+
+    @Test
+    @DisplayName("Should skip the existence query when the Bloom filter rules the email out")
+    void register_bloomNegativeSkipsExistenceQuery() {
+        RegisterRequest request = new RegisterRequest("New", "User", "new@example.com", "password");
+        when(registeredEmailFilter.mightExist("new@example.com")).thenReturn(false);
+        when(passwordEncoder.encode("password")).thenReturn("hashed");
+
+        assertDoesNotThrow(() -> authService.register(request));
+        verify(userRepository, never()).existsByEmail(any());
+        verify(registeredEmailFilter).add("new@example.com");
+    }
+
+    @Test
+    @DisplayName("Should map a unique-key violation on save to a duplicate-email error")
+    void register_concurrentDuplicate() {
+        RegisterRequest request = new RegisterRequest("Jane", "Smith", "jane@example.com", "password");
+        when(passwordEncoder.encode("password")).thenReturn("hashed");
+        when(userRepository.save(any())).thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+        IllegalStateException ex = assertThrows(IllegalStateException.class, () -> authService.register(request));
+        assertEquals("Email is already registered", ex.getMessage());
+        verify(registeredEmailFilter, never()).add(any());
+    }
+
     @Test
     @DisplayName("Should throw when email is already registered")
     void register_emailExists() {
@@ -85,12 +152,12 @@ class AuthServiceTest {
     void login_success() {
         LoginRequest request = new LoginRequest("test@example.com", "password");
         Authentication auth = mock(Authentication.class);
-        User user = User.builder().email("test@example.com").build();
+        AuthenticatedUser principal = new AuthenticatedUser(7L, "Test", "User", "test@example.com", null, true);
 
         when(authenticationManager.authenticate(any())).thenReturn(auth);
+        when(auth.getPrincipal()).thenReturn(principal);
         when(jwtProvider.generateToken(auth)).thenReturn("jwt-token");
-        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(user));
-        when(refreshTokenService.generateTokenForUser(user)).thenReturn("refresh-token");
+        when(refreshTokenService.generateTokenForUser(7L)).thenReturn("refresh-token");
         when(jwtProvider.getJwtExpirationInMillis()).thenReturn(900_000L);
 
         AuthenticationResponse response = authService.login(request);
@@ -99,6 +166,30 @@ class AuthServiceTest {
         assertEquals("refresh-token", response.refreshToken());
         assertEquals("test@example.com", response.email());
         assertNotNull(response.expiresAt());
+        verify(userRepository, never()).findByEmail(any());
+        verify(accountAttemptThrottle).recordLoginSuccess("test@example.com");
+    }
+
+    @Test
+    @DisplayName("Should refuse a throttled account before verifying the password")
+    void login_throttled() {
+        doThrow(new AccountThrottledException(4)).when(accountAttemptThrottle).checkLogin("victim@example.com");
+
+        assertThrows(AccountThrottledException.class,
+                () -> authService.login(new LoginRequest("victim@example.com", "guess")));
+
+        verifyNoInteractions(authenticationManager);
+    }
+
+    @Test
+    @DisplayName("Should count bad credentials against the account")
+    void login_badCredentialsRecorded() {
+        when(authenticationManager.authenticate(any())).thenThrow(new BadCredentialsException("Bad credentials"));
+
+        assertThrows(BadCredentialsException.class,
+                () -> authService.login(new LoginRequest("victim@example.com", "guess")));
+
+        verify(accountAttemptThrottle).recordLoginFailure("victim@example.com");
     }
 
     @Test
@@ -117,6 +208,58 @@ class AuthServiceTest {
         assertNotNull(response.expiresAt());
     }
 
+    @Test
+    @DisplayName("Should record the refresh token's use with the client address")
+    void refresh_recordsUsage() {
+        RefreshTokenRequest request = new RefreshTokenRequest("refresh-token", "user@example.com");
+        when(jwtProvider.getJwtExpirationInMillis()).thenReturn(900_000L);
+
+        authService.refresh(request, "203.0.113.7");
+
+        verify(refreshTokenService).validate("refresh-token");
+        verify(refreshTokenUsageRecorder).record("refresh-token", "203.0.113.7");
+    }
+
+    @Test
+    @DisplayName("Should rotate the refresh token and issue the JWT to its owner")
+    void refresh_withRotation() {
+        ReflectionTestUtils.setField(authService, "refreshRotation", true);
+        RefreshTokenRequest request = new RefreshTokenRequest("old-refresh", "someone-else@example.com");
+
+        when(refreshTokenService.rotate("old-refresh", "203.0.113.7"))
+                .thenReturn(new RotatedToken("new-refresh", 7L, "owner@example.com", "Own", "Er"));
+        when(jwtProvider.generateTokenWithUsername("owner@example.com", 7L, "Own", "Er")).thenReturn("new-jwt");
+        when(jwtProvider.getJwtExpirationInMillis()).thenReturn(900_000L);
+
+        AuthenticationResponse response = authService.refresh(request, "203.0.113.7");
+
+        assertEquals("new-jwt", response.authenticationToken());
+        assertEquals("new-refresh", response.refreshToken());
+        assertEquals("owner@example.com", response.email());
+        verify(refreshTokenService, never()).validate(any());
+        // The use travels with the replacement's INSERT instead of a deferred UPDATE of the consumed row
+        verify(refreshTokenUsageRecorder, never()).record(any(), any());
+    }
+
+    @Test
+    @DisplayName("Should refresh from a signed token without touching the refresh token table")
+    void refresh_withSignedToken() {
+        ReflectionTestUtils.setField(authService, "signedRefresh", true);
+        RefreshTokenRequest request = new RefreshTokenRequest("signed-refresh", "someone-else@example.com");
+
+        when(signedRefreshTokenService.verify("signed-refresh"))
+                .thenReturn(new VerifiedToken(99L, 7L, "owner@example.com", "Own", "Er"));
+        when(jwtProvider.generateTokenWithUsername("owner@example.com", 7L, "Own", "Er")).thenReturn("jwt");
+        when(jwtProvider.getJwtExpirationInMillis()).thenReturn(900000L);
+
+        AuthenticationResponse response = authService.refresh(request);
+
+        assertEquals("jwt", response.authenticationToken());
+        assertEquals("signed-refresh", response.refreshToken());
+        assertEquals("owner@example.com", response.email());
+        verifyNoInteractions(refreshTokenService);
+    }
+
     @Test
     @DisplayName("Should delete refresh token on logout")
     void logout_success() {
@@ -127,10 +270,41 @@ class AuthServiceTest {
         verify(refreshTokenService).delete("token123");
     }
 
+    @Test
+    @DisplayName("Should revoke the token family on logout with signed refresh tokens")
+    void logout_withSignedToken() {
+        ReflectionTestUtils.setField(authService, "signedRefresh", true);
+
+        authService.logout(new RefreshTokenRequest("signed-refresh", "logout@example.com"));
+
+        verify(signedRefreshTokenService).revoke("signed-refresh");
+        verifyNoInteractions(refreshTokenService);
+    }
+
+    @Test
+    @DisplayName("Should not touch the DB for reset requests the Bloom filter rules out")
+    void sendResetPasswordEmail_bloomNegative() {
+        when(registeredEmailFilter.mightExist("nobody@example.com")).thenReturn(false);
+
+        authService.sendResetPasswordEmail("nobody@example.com");
+
+        verifyNoInteractions(userCache, userRepository, passwordResetService, mailService);
+    }
+
+    @Test
+    @DisplayName("Should not send reset email when the account is throttled")
+    void sendResetPasswordEmail_throttled() {
+        when(accountAttemptThrottle.throttlePasswordReset("reset@example.com")).thenReturn(true);
+
+        authService.sendResetPasswordEmail("reset@example.com");
+
+        verifyNoInteractions(registeredEmailFilter, userCache, passwordResetService, mailService);
+    }
+
     @Test
     @DisplayName("Should not send reset email if user not found")
     void sendResetPasswordEmail_userNotFound() {
-        when(userRepository.findByEmail("missing@example.com")).thenReturn(Optional.empty());
+        when(userCache.findByEmail("missing@example.com")).thenReturn(Optional.empty());
 
         authService.sendResetPasswordEmail("missing@example.com");
 
@@ -141,9 +315,11 @@ class AuthServiceTest {
     @Test
     @DisplayName("Should send reset email if user exists")
     void sendResetPasswordEmail_success() {
-        User user = User.builder().email("reset@example.com").firstName("Reset").build();
-        when(userRepository.findByEmail("reset@example.com")).thenReturn(Optional.of(user));
-        when(passwordResetService.createTokenForUser(user)).thenReturn("token123");
+        CachedUser cached = new CachedUser(9L, "Reset", "User", "reset@example.com");
+        User reference = User.builder().id(9L).build();
+        when(userCache.findByEmail("reset@example.com")).thenReturn(Optional.of(cached));
+        when(userRepository.getReferenceById(9L)).thenReturn(reference);
+        when(passwordResetService.createTokenForUser(reference)).thenReturn("token123");
 
         authService.sendResetPasswordEmail("reset@example.com");
 
@@ -174,16 +350,29 @@ class AuthServiceTest {
     }
 
     @Test
-    @DisplayName("Should still register user even if welcome email fails")
-    void register_emailSendFails() {
+    @DisplayName("Should save the user and queue the welcome email in one transaction")
+    void register_emailQueuedInTransaction() {
         RegisterRequest request = new RegisterRequest("Fail", "Mailer", "fail@example.com", "pass");
         when(userRepository.existsByEmail("fail@example.com")).thenReturn(false);
         when(passwordEncoder.encode("pass")).thenReturn("hashed");
         when(userRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
-        doThrow(new RuntimeException("SMTP error")).when(mailService).sendWelcomeEmail(any(), any());
+        doThrow(new RuntimeException("outbox unavailable")).when(mailService).sendWelcomeEmail(any(), any());
 
-        assertDoesNotThrow(() -> authService.register(request));
-        verify(mailService).sendWelcomeEmail("fail@example.com", "Fail");
+        assertThrows(RuntimeException.class, () -> authService.register(request));
+        verify(transactionTemplate).executeWithoutResult(any());
+        verify(userCache, never()).invalidate(any());
+        verify(registeredEmailFilter, never()).add(any());
+    }
+
+    @Test
+    @DisplayName("Should hide failures to queue a reset email")
+    void sendResetPasswordEmail_queueFails() {
+        CachedUser cached = new CachedUser(9L, "Reset", "User", "reset@example.com");
+        when(userCache.findByEmail("reset@example.com")).thenReturn(Optional.of(cached));
+        when(passwordResetService.createTokenForUser(any())).thenReturn("token123");
+        doThrow(new RuntimeException("outbox unavailable")).when(mailService).sendResetPasswordEmail(any(), any(), any());
+
+        assertDoesNotThrow(() -> authService.sendResetPasswordEmail("reset@example.com"));
     }
 
     @Test
@@ -199,4 +388,32 @@ class AuthServiceTest {
         IllegalStateException ex = assertThrows(IllegalStateException.class, () -> authService.getCurrentUser());
         assertEquals("User not found: ghost@example.com", ex.getMessage());
     }
+
+    @Test
+    @DisplayName("Should build /me profile from token claims without touching the DB")
+    void getCurrentUserProfile_fromTokenClaims() {
+        ReflectionTestUtils.setField(authService, "meFromToken", true);
+        Jwt jwt = Jwt.withTokenValue("token").header("alg", "RS256").subject("me@example.com").build();
+        UserResponse profile = new UserResponse(5L, "Me", "Myself", "me@example.com");
+
+        SecurityContextHolder.getContext().setAuthentication(new JwtAuthenticationToken(jwt, List.of()));
+        when(jwtProvider.readProfile(jwt)).thenReturn(Optional.of(profile));
+
+        assertEquals(profile, authService.getCurrentUserProfile());
+        verifyNoInteractions(userRepository, userCache);
+    }
+
+    @Test
+    @DisplayName("Should fall back to the DB when the token has no current profile claims")
+    void getCurrentUserProfile_fallsBackToDatabase() {
+        ReflectionTestUtils.setField(authService, "meFromToken", true);
+        Jwt jwt = Jwt.withTokenValue("token").header("alg", "RS256").subject("me@example.com").build();
+        CachedUser user = new CachedUser(5L, "Me", "Myself", "me@example.com");
+
+        SecurityContextHolder.getContext().setAuthentication(new JwtAuthenticationToken(jwt, List.of()));
+        when(jwtProvider.readProfile(jwt)).thenReturn(Optional.empty());
+        when(userCache.findByEmail("me@example.com")).thenReturn(Optional.of(user));
+
+        assertEquals(new UserResponse(5L, "Me", "Myself", "me@example.com"), authService.getCurrentUserProfile());
+    }
 }
@@ -0,0 +1,152 @@
+package com.github.pw2712gz.authbackend.service;
+
+import com.github.pw2712gz.authbackend.entity.MailOutboxMessage;
+import com.github.pw2712gz.authbackend.entity.MailOutboxMessage.Status;
+import com.github.pw2712gz.authbackend.exception.MailDeliveryException;
+import com.github.pw2712gz.authbackend.repository.MailOutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class MailOutboxDispatcherTest {
+
+    private MailOutboxRepository outboxRepository;
+    private MailService mailService;
+    private SimpleMeterRegistry meterRegistry;
+    private MailOutboxDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        outboxRepository = mock(MailOutboxRepository.class);
+        mailService = mock(MailService.class);
+        meterRegistry = new SimpleMeterRegistry();
+        dispatcher = new MailOutboxDispatcher(outboxRepository, mailService, meterRegistry);
+
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 20);
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", 3);
+        ReflectionTestUtils.setField(dispatcher, "initialBackoffMillis", 1_000L);
+        ReflectionTestUtils.setField(dispatcher, "maxBackoffMillis", 60_000L);
+        ReflectionTestUtils.setField(dispatcher, "leaseMillis", 60_000L);
+        when(outboxRepository.claim(any(), any(), any(), any())).thenReturn(1);
+    }
+
+    @Test
+    @DisplayName("Sends claimed messages and marks them sent")
+    void dispatch_sendsDueMessages() {
+        MailOutboxMessage message = message(0);
+        when(outboxRepository.findDue(eq(Status.PENDING), any(), any())).thenReturn(List.of(message));
+
+        dispatcher.dispatch();
+
+        verify(mailService).send(message);
+        assertEquals(Status.SENT, message.getStatus());
+        assertEquals(1, message.getAttempts());
+        assertNotNull(message.getSentAt());
+        verify(outboxRepository).save(message);
+        assertEquals(1, meterRegistry.get("mail.outbox.sent").counter().count());
+    }
+
+    @Test
+    @DisplayName("Skips messages another instance claimed first")
+    void dispatch_skipsClaimedElsewhere() {
+        MailOutboxMessage message = message(0);
+        when(outboxRepository.findDue(eq(Status.PENDING), any(), any())).thenReturn(List.of(message));
+        when(outboxRepository.claim(any(), any(), any(), any())).thenReturn(0);
+
+        dispatcher.dispatch();
+
+        verifyNoInteractions(mailService);
+        verify(outboxRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Each message's lease starts when it is claimed, not when the batch started")
+    void dispatch_leasesFromClaimTime() {
+        MailOutboxMessage first = message(0);
+        MailOutboxMessage second = message(0);
+        second.setId(2L);
+        when(outboxRepository.findDue(eq(Status.PENDING), any(), any())).thenReturn(List.of(first, second));
+        doAnswer(inv -> {
+            Thread.sleep(50);
+            return null;
+        }).when(mailService).send(first);
+
+        dispatcher.dispatch();
+
+        ArgumentCaptor<Instant> leases = ArgumentCaptor.forClass(Instant.class);
+        verify(outboxRepository, times(2)).claim(any(), any(), any(), leases.capture());
+        assertTrue(Duration.between(leases.getAllValues().get(0), leases.getAllValues().get(1)).toMillis() >= 50);
+    }
+
+    @Test
+    @DisplayName("Retries transient failures with growing backoff")
+    void deliver_retriesTransientFailure() {
+        MailOutboxMessage message = message(1);
+        doThrow(new MailDeliveryException("Failed to send email, code: 503", 503)).when(mailService).send(message);
+
+        Instant before = Instant.now();
+        dispatcher.deliver(message);
+
+        assertEquals(Status.PENDING, message.getStatus());
+        assertEquals(2, message.getAttempts());
+        // Second attempt failed: 2 s backoff, jittered over its upper half
+        assertFalse(message.getNextAttemptAt().isBefore(before.plusSeconds(1)));
+        assertFalse(message.getNextAttemptAt().isAfter(Instant.now().plusSeconds(2)));
+        assertTrue(message.getLastError().contains("503"));
+        assertEquals(1, meterRegistry.get("mail.outbox.retried").counter().count());
+    }
+
+    @Test
+    @DisplayName("Gives up on permanent errors and after the last attempt")
+    void deliver_givesUp() {
+        MailOutboxMessage rejected = message(0);
+        doThrow(new MailDeliveryException("Failed to send email, code: 422", 422)).when(mailService).send(rejected);
+        MailOutboxMessage exhausted = message(2);
+        doThrow(new MailDeliveryException("Failed to send email", new IOException("timeout"))).when(mailService).send(exhausted);
+
+        dispatcher.deliver(rejected);
+        dispatcher.deliver(exhausted);
+
+        assertEquals(Status.FAILED, rejected.getStatus());
+        assertEquals(Status.FAILED, exhausted.getStatus());
+        assertEquals(2, meterRegistry.get("mail.outbox.failed").counter().count());
+    }
+
+    @Test
+    @DisplayName("Backoff doubles per attempt up to the cap")
+    void backoff_cappedExponential() {
+        for (int attempt = 1; attempt <= 40; attempt++) {
+            long expected = Math.min(1_000L << Math.min(attempt - 1, 30), 60_000L);
+            Duration delay = dispatcher.backoff(attempt);
+            assertTrue(delay.toMillis() >= expected / 2 && delay.toMillis() <= expected, "attempt " + attempt);
+        }
+    }
+
+    private static MailOutboxMessage message(int attempts) {
+        return MailOutboxMessage.builder()
+                .id(7L)
+                .idempotencyKey("key-7")
+                .recipient("to@example.com")
+                .subject("Subject")
+                .template("email/welcome.html")
+                .model("{\"name\":\"Ayub\"}")
+                .status(Status.PENDING)
+                .attempts(attempts)
+                .nextAttemptAt(Instant.now())
+                .createdAt(Instant.now())
+                .build();
+    }
+}
@@ -1,8 +1,12 @@
 package com.github.pw2712gz.authbackend.service;
 
+import com.github.pw2712gz.authbackend.entity.MailOutboxMessage;
+import com.github.pw2712gz.authbackend.exception.MailDeliveryException;
+import com.github.pw2712gz.authbackend.repository.MailOutboxRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.thymeleaf.TemplateEngine;
 import org.thymeleaf.context.Context;
 
@@ -13,6 +17,8 @@ import java.net.http.HttpResponse;
 import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
@@ -21,19 +27,22 @@ class MailServiceTest {
 
     private TemplateEngine templateEngine;
     private HttpClient mockHttpClient;
+    private MailOutboxRepository outboxRepository;
     private MailService mailService;
 
     @BeforeEach
     void setUp() throws Exception {
         templateEngine = mock(TemplateEngine.class);
         mockHttpClient = mock(HttpClient.class);
+        outboxRepository = mock(MailOutboxRepository.class);
 
-        mailService = new MailService(templateEngine);
+        mailService = new MailService(templateEngine, outboxRepository);
 
         // Inject private fields using reflection
         setPrivateField(mailService, "httpClient", mockHttpClient);
         setPrivateField(mailService, "apiKey", "test-api-key");
         setPrivateField(mailService, "from", "Auth App <auth@auth.ayubyusuf.dev>");
+        setPrivateField(mailService, "sendTimeoutMillis", 10_000L);
     }
 
     private void setPrivateField(Object target, String fieldName, Object value) throws Exception {
@@ -45,13 +54,13 @@ class MailServiceTest {
     @Test
     @DisplayName("Should throw IllegalArgumentException for missing parameters")
     void shouldThrowIllegalArgumentExceptionIfMissingParams() {
-        assertThatThrownBy(() -> mailService.sendHtml(null, "Subject", "template", Map.of()))
+        assertThatThrownBy(() -> mailService.sendHtml(null, "Subject", "template", Map.of(), null))
                 .isInstanceOf(IllegalArgumentException.class);
-        assertThatThrownBy(() -> mailService.sendHtml("to@example.com", null, "template", Map.of()))
+        assertThatThrownBy(() -> mailService.sendHtml("to@example.com", null, "template", Map.of(), null))
                 .isInstanceOf(IllegalArgumentException.class);
-        assertThatThrownBy(() -> mailService.sendHtml("to@example.com", "Subject", null, Map.of()))
+        assertThatThrownBy(() -> mailService.sendHtml("to@example.com", "Subject", null, Map.of(), null))
                 .isInstanceOf(IllegalArgumentException.class);
-        assertThatThrownBy(() -> mailService.sendHtml("to@example.com", "Subject", "template", null))
+        assertThatThrownBy(() -> mailService.sendHtml("to@example.com", "Subject", "template", null, null))
                 .isInstanceOf(IllegalArgumentException.class);
     }
 
@@ -69,10 +78,12 @@ class MailServiceTest {
                 any(HttpResponse.BodyHandler.class)
         )).thenReturn(mockResponse);
 
-        mailService.sendHtml("to@example.com", "Subject", "email/welcome.html", Map.of("name", "Ayub"));
+        mailService.sendHtml("to@example.com", "Subject", "email/welcome.html", Map.of("name", "Ayub"), "key-1");
 
         verify(templateEngine).process(eq("email/welcome.html"), any(Context.class));
-        verify(mockHttpClient).send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class));
+        ArgumentCaptor<HttpRequest> request = ArgumentCaptor.forClass(HttpRequest.class);
+        verify(mockHttpClient).send(request.capture(), any(HttpResponse.BodyHandler.class));
+        assertEquals("key-1", request.getValue().headers().firstValue("Idempotency-Key").orElseThrow());
     }
 
     @Test
@@ -94,8 +105,23 @@ class MailServiceTest {
                 "to@example.com",
                 "Subject",
                 "email/template.html",
-                Map.of("name", "Ayub"))
-        ).isInstanceOf(RuntimeException.class)
+                Map.of("name", "Ayub"),
+                "key-1")
+        ).isInstanceOf(MailDeliveryException.class)
                 .hasMessageContaining("Failed to send email");
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Queues emails in the outbox instead of sending them")
+    void sendWelcomeEmail_queuesMessage() throws Exception {
+        mailService.sendWelcomeEmail("to@example.com", "Ayub");
+
+        ArgumentCaptor<MailOutboxMessage> message = ArgumentCaptor.forClass(MailOutboxMessage.class);
+        verify(outboxRepository).save(message.capture());
+        assertEquals("email/welcome.html", message.getValue().getTemplate());
+        assertEquals("{\"name\":\"Ayub\"}", message.getValue().getModel());
+        assertEquals(MailOutboxMessage.Status.PENDING, message.getValue().getStatus());
+        assertNotNull(message.getValue().getIdempotencyKey());
+        verifyNoInteractions(mockHttpClient, templateEngine);
+    }
+}
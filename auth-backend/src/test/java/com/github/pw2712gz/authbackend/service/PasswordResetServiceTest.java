@@ -4,6 +4,8 @@ import com.github.pw2712gz.authbackend.entity.PasswordResetToken;
 import com.github.pw2712gz.authbackend.entity.User;
 import com.github.pw2712gz.authbackend.repository.PasswordResetTokenRepository;
 import com.github.pw2712gz.authbackend.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -12,7 +14,9 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.time.Instant;
 import java.util.List;
@@ -32,6 +36,10 @@ class PasswordResetServiceTest {
     private PasswordEncoder passwordEncoder;
     @Mock
     private MailService mailService;
+    @Mock
+    private UserCache userCache;
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
 
     @InjectMocks
     private PasswordResetService passwordResetService;
@@ -130,32 +138,39 @@ class PasswordResetServiceTest {
         assertTrue(result);
         assertTrue(token.isUsed());
         verify(userRepository).save(user);
+        verify(userCache).invalidate("reset@example.com");
         verify(tokenRepository).save(token);
         verify(mailService).sendPasswordChangedEmail("reset@example.com", "Reset");
     }
 
     @Test
-    @DisplayName("cleanupExpiredTokens should delete all expired tokens")
-    void cleanupExpiredTokens_shouldDeleteExpiredTokens() {
-        PasswordResetToken expired1 = PasswordResetToken.builder().id(1L).build();
-        PasswordResetToken expired2 = PasswordResetToken.builder().id(2L).build();
-
-        when(tokenRepository.findAllByExpiresAtBefore(any())).thenReturn(List.of(expired1, expired2));
+    @DisplayName("cleanupExpiredTokens should delete purgeable tokens by id in batches")
+    void cleanupExpiredTokens_shouldDeleteInBatches() {
+        ReflectionTestUtils.setField(passwordResetService, "cleanupBatchSize", 2);
+        when(tokenRepository.findPurgeableIds(any(), any()))
+                .thenReturn(List.of(1L, 2L))
+                .thenReturn(List.of(3L));
+        when(tokenRepository.deleteAllByIdIn(List.of(1L, 2L))).thenReturn(2);
+        when(tokenRepository.deleteAllByIdIn(List.of(3L))).thenReturn(1);
 
         passwordResetService.cleanupExpiredTokens();
 
-        verify(tokenRepository).deleteAll(List.of(expired1, expired2));
+        verify(tokenRepository, times(2)).findPurgeableIds(any(), any());
+        verify(tokenRepository, never()).findAll();
+        assertEquals(3, meterRegistry.get("password.reset.cleanup.deleted").counter().count());
+        assertEquals(1, meterRegistry.get("password.reset.cleanup.duration").timer().count());
     }
 
     @Test
     @DisplayName("cleanupExpiredTokens should do nothing when no expired tokens exist")
     void cleanupExpiredTokens_shouldDoNothingIfNone() {
-        when(tokenRepository.findAllByExpiresAtBefore(any())).thenReturn(List.of());
+        ReflectionTestUtils.setField(passwordResetService, "cleanupBatchSize", 2);
+        when(tokenRepository.findPurgeableIds(any(), any())).thenReturn(List.of());
 
         passwordResetService.cleanupExpiredTokens();
 
-        verify(tokenRepository).findAllByExpiresAtBefore(any());
-        verifyNoMoreInteractions(tokenRepository); // ✅ prevents false assumptions
+        verify(tokenRepository).findPurgeableIds(any(), any());
+        verifyNoMoreInteractions(tokenRepository);
     }
 
 }
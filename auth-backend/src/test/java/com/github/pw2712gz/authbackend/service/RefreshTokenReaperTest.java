@@ -0,0 +1,141 @@
+package com.github.pw2712gz.authbackend.service;
+
+import com.github.pw2712gz.authbackend.repository.RefreshTokenRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class RefreshTokenReaperTest {
+
+    private static final Instant NOW = Instant.parse("2025-01-01T00:00:00Z");
+
+    private RefreshTokenRepository refreshTokenRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private MutableClock clock;
+    private RefreshTokenReaper reaper;
+
+    @BeforeEach
+    void setUp() {
+        refreshTokenRepository = mock(RefreshTokenRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        clock = new MutableClock(NOW);
+        reaper = new RefreshTokenReaper(refreshTokenRepository, meterRegistry, clock);
+
+        ReflectionTestUtils.setField(reaper, "enabled", true);
+        ReflectionTestUtils.setField(reaper, "batchSize", 2);
+        ReflectionTestUtils.setField(reaper, "latencyThresholdMillis", 200L);
+        ReflectionTestUtils.setField(reaper, "backoffMillis", 30_000L);
+        ReflectionTestUtils.setField(reaper, "idleMillis", 60_000L);
+    }
+
+    @Test
+    @DisplayName("Deletes one full batch per tick and reports lag while behind")
+    void reap_deletesBatchAndReportsLag() {
+        when(refreshTokenRepository.findExpiredIds(eq(NOW), any())).thenReturn(List.of(1L, 2L));
+        when(refreshTokenRepository.deleteAllByIdIn(List.of(1L, 2L))).thenReturn(2);
+        when(refreshTokenRepository.findOldestExpiresAt()).thenReturn(Optional.of(NOW.minusSeconds(90)));
+
+        reaper.reap();
+        reaper.reap();
+
+        verify(refreshTokenRepository, times(2)).deleteAllByIdIn(List.of(1L, 2L));
+        assertEquals(4, meterRegistry.get("auth.refresh.reaper.deleted").counter().count());
+        assertEquals(2, meterRegistry.get("auth.refresh.reaper.batches").counter().count());
+        assertEquals(90, meterRegistry.get("auth.refresh.reaper.lag.seconds").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Idles after a partial batch instead of polling the table on every tick")
+    void reap_idlesWhenCaughtUp() {
+        when(refreshTokenRepository.findExpiredIds(any(), any())).thenReturn(List.of(1L));
+        when(refreshTokenRepository.deleteAllByIdIn(anyList())).thenReturn(1);
+
+        reaper.reap();
+        clock.advance(1_000);
+        reaper.reap();
+
+        verify(refreshTokenRepository, times(1)).findExpiredIds(any(), any());
+        verify(refreshTokenRepository, never()).findOldestExpiresAt();
+        assertEquals(0, meterRegistry.get("auth.refresh.reaper.lag.seconds").gauge().value());
+
+        clock.advance(60_000);
+        reaper.reap();
+
+        verify(refreshTokenRepository, times(2)).findExpiredIds(any(), any());
+    }
+
+    @Test
+    @DisplayName("Backs off when a batch exceeds the latency threshold")
+    void reap_backsOffWhenSlow() {
+        when(refreshTokenRepository.findExpiredIds(any(), any())).thenReturn(List.of(1L, 2L));
+        when(refreshTokenRepository.deleteAllByIdIn(anyList())).thenAnswer(inv -> {
+            clock.advance(500);
+            return 2;
+        });
+        when(refreshTokenRepository.findOldestExpiresAt()).thenReturn(Optional.of(NOW));
+
+        reaper.reap();
+        clock.advance(1_000);
+        reaper.reap();
+
+        verify(refreshTokenRepository, times(1)).deleteAllByIdIn(anyList());
+        assertEquals(1, meterRegistry.get("auth.refresh.reaper.backoffs").counter().count());
+
+        clock.advance(30_000);
+        reaper.reap();
+
+        verify(refreshTokenRepository, times(2)).deleteAllByIdIn(anyList());
+    }
+
+    @Test
+    @DisplayName("Does nothing when disabled")
+    void reap_disabled() {
+        ReflectionTestUtils.setField(reaper, "enabled", false);
+
+        reaper.reap();
+
+        verifyNoInteractions(refreshTokenRepository);
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(long millis) {
+            now = now.plusMillis(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
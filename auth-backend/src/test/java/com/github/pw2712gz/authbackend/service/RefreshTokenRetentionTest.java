@@ -0,0 +1,60 @@
+package com.github.pw2712gz.authbackend.service;
+
+import com.github.pw2712gz.authbackend.entity.User;
+import com.github.pw2712gz.authbackend.repository.RefreshTokenRepository;
+import com.github.pw2712gz.authbackend.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "auth.refresh.rotation.enabled=true",
+        "auth.refresh.rotation.reuse-grace.seconds=0",
+        "auth.refresh.rotation.reuse-detection.seconds=0",
+        "auth.sessions.max-per-user=3"
+})
+class RefreshTokenRetentionTest {
+
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    private User user;
+
+    @BeforeEach
+    void setup() {
+        refreshTokenRepository.deleteAll();
+        userRepository.deleteAll();
+        user = userRepository.save(User.builder()
+                .firstName("Re")
+                .lastName("Tention")
+                .email("retention@test.com")
+                .password("unused")
+                .enabled(true)
+                .createdAt(Instant.now())
+                .build());
+    }
+
+    @Test
+    void rotatedTokens_shouldNotAccumulate() throws Exception {
+        for (int session = 0; session < 5; session++) {
+            String token = refreshTokenService.generateTokenForUser(user);
+            for (int i = 0; i < 10; i++) {
+                Thread.sleep(1);
+                token = refreshTokenService.rotate(token).token();
+            }
+        }
+
+        // Three live sessions plus at most the token consumed by the last rotation
+        assertThat(refreshTokenRepository.count()).isLessThanOrEqualTo(4);
+        assertThat(refreshTokenService.listSessions(user.getId())).hasSize(3);
+    }
+}
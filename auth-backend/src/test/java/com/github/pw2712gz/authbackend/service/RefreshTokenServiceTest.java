@@ -3,6 +3,10 @@ package com.github.pw2712gz.authbackend.service;
 import com.github.pw2712gz.authbackend.entity.RefreshToken;
 import com.github.pw2712gz.authbackend.entity.User;
 import com.github.pw2712gz.authbackend.repository.RefreshTokenRepository;
+import com.github.pw2712gz.authbackend.repository.RefreshTokenRepository.RotationView;
+import com.github.pw2712gz.authbackend.repository.UserRepository;
+import com.github.pw2712gz.authbackend.service.RefreshTokenService.RotatedToken;
+import com.github.pw2712gz.authbackend.util.TokenHashUtils;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -10,8 +14,10 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -22,6 +28,8 @@ class RefreshTokenServiceTest {
 
     @Mock
     private RefreshTokenRepository refreshTokenRepository;
+    @Mock
+    private UserRepository userRepository;
 
     @InjectMocks
     private RefreshTokenService refreshTokenService;
@@ -55,23 +63,49 @@ class RefreshTokenServiceTest {
         String token = refreshTokenService.generateTokenForUser(mockUser);
 
         assertNotNull(token);
+        assertEquals(43, token.length());
         verify(refreshTokenRepository).save(argThat(savedToken ->
                 savedToken.getUser().equals(mockUser) &&
-                        savedToken.getToken() != null &&
+                        Arrays.equals(savedToken.getTokenHash(), TokenHashUtils.sha256(token)) &&
                         savedToken.getCreatedAt() != null &&
                         savedToken.getExpiresAt().isAfter(savedToken.getCreatedAt())
         ));
     }
 
+    @Test
+    @DisplayName("generateTokenForUser by id should use a reference proxy instead of loading the user")
+    void generateTokenForUserId_shouldUseReference() {
+        when(userRepository.getReferenceById(1L)).thenReturn(mockUser);
+
+        String token = refreshTokenService.generateTokenForUser(1L);
+
+        assertNotNull(token);
+        verify(userRepository).getReferenceById(1L);
+        verify(userRepository, never()).findById(any());
+        verify(refreshTokenRepository).save(argThat(savedToken -> savedToken.getUser() == mockUser));
+    }
+
+    @Test
+    @DisplayName("generateTokenForUser should evict sessions beyond the per-user cap in one statement")
+    void generateTokenForUser_shouldEvictOldestSessions() {
+        ReflectionTestUtils.setField(refreshTokenService, "maxSessionsPerUser", 3);
+        when(refreshTokenRepository.deleteOldestSessions(1L, 3)).thenReturn(1);
+
+        refreshTokenService.generateTokenForUser(mockUser);
+
+        verify(refreshTokenRepository).deleteOldestSessions(1L, 3);
+        verify(refreshTokenRepository).deleteDeadFamilies(1L);
+    }
+
     @Test
     @DisplayName("validate should succeed for valid non-expired token")
     void validate_shouldSucceedIfTokenIsValidAndNotExpired() {
         String tokenValue = UUID.randomUUID().toString();
         RefreshToken token = new RefreshToken();
-        token.setToken(tokenValue);
+        token.setTokenHash(TokenHashUtils.sha256(tokenValue));
         token.setExpiresAt(Instant.now().plusSeconds(60));
 
-        when(refreshTokenRepository.findByToken(tokenValue)).thenReturn(Optional.of(token));
+        when(refreshTokenRepository.findByTokenHash(TokenHashUtils.sha256(tokenValue))).thenReturn(Optional.of(token));
 
         assertDoesNotThrow(() -> refreshTokenService.validate(tokenValue));
     }
@@ -79,7 +113,7 @@ class RefreshTokenServiceTest {
     @Test
     @DisplayName("validate should throw if token does not exist")
     void validate_shouldThrowIfTokenDoesNotExist() {
-        when(refreshTokenRepository.findByToken("bad-token")).thenReturn(Optional.empty());
+        when(refreshTokenRepository.findByTokenHash(any())).thenReturn(Optional.empty());
 
         Exception ex = assertThrows(IllegalArgumentException.class,
                 () -> refreshTokenService.validate("bad-token"));
@@ -92,10 +126,10 @@ class RefreshTokenServiceTest {
     void validate_shouldThrowIfTokenIsExpired() {
         String tokenValue = UUID.randomUUID().toString();
         RefreshToken expiredToken = new RefreshToken();
-        expiredToken.setToken(tokenValue);
+        expiredToken.setTokenHash(TokenHashUtils.sha256(tokenValue));
         expiredToken.setExpiresAt(Instant.now().minusSeconds(60));
 
-        when(refreshTokenRepository.findByToken(tokenValue)).thenReturn(Optional.of(expiredToken));
+        when(refreshTokenRepository.findByTokenHash(TokenHashUtils.sha256(tokenValue))).thenReturn(Optional.of(expiredToken));
 
         Exception ex = assertThrows(IllegalStateException.class,
                 () -> refreshTokenService.validate(tokenValue));
@@ -105,29 +139,127 @@ class RefreshTokenServiceTest {
     }
 
     @Test
-    @DisplayName("delete should remove token by value")
-    void delete_shouldDeleteTokenByValue() {
-        refreshTokenService.delete("some-token");
-        verify(refreshTokenRepository).deleteByToken("some-token");
+    @DisplayName("validate should reject a token that was already rotated")
+    void validate_shouldThrowIfTokenWasConsumed() {
+        RefreshToken token = new RefreshToken();
+        token.setExpiresAt(Instant.now().plusSeconds(60));
+        token.setConsumedAt(Instant.now().minusSeconds(5));
+        when(refreshTokenRepository.findByTokenHash(any())).thenReturn(Optional.of(token));
+
+        assertThrows(IllegalArgumentException.class, () -> refreshTokenService.validate("rotated"));
+    }
+
+    @Test
+    @DisplayName("rotate should consume the token and issue a replacement in the same family")
+    void rotate_shouldIssueReplacementInSameFamily() {
+        RotationView view = rotationView("family-1", null, Instant.now().plusSeconds(60));
+        when(refreshTokenRepository.consume(eq(TokenHashUtils.sha256("current")), any())).thenReturn(1);
+        when(refreshTokenRepository.findRotationViewByTokenHash(TokenHashUtils.sha256("current"))).thenReturn(Optional.of(view));
+        when(userRepository.getReferenceById(1L)).thenReturn(mockUser);
+
+        RotatedToken rotated = refreshTokenService.rotate("current");
+
+        assertNotEquals("current", rotated.token());
+        assertEquals("test@example.com", rotated.email());
+        verify(refreshTokenRepository).save(argThat(saved ->
+                "family-1".equals(saved.getFamilyId())
+                        && Arrays.equals(saved.getTokenHash(), TokenHashUtils.sha256(rotated.token()))));
+        verify(refreshTokenRepository, never()).revokeFamily(any(), any());
     }
 
     @Test
-    @DisplayName("cleanupExpiredTokens should delete expired tokens and log if count > 0")
-    void cleanupExpiredTokens_shouldLogWhenTokensDeleted() {
-        when(refreshTokenRepository.deleteAllByExpiresAtBefore(any())).thenReturn(2);
+    @DisplayName("rotate should store the use and client address on the replacement it inserts")
+    void rotate_shouldRecordUsageOnReplacement() {
+        ReflectionTestUtils.setField(refreshTokenService, "recordUsage", true);
+        RotationView view = rotationView("family-1", null, Instant.now().plusSeconds(60));
+        when(refreshTokenRepository.consume(any(), any())).thenReturn(1);
+        when(refreshTokenRepository.findRotationViewByTokenHash(any())).thenReturn(Optional.of(view));
+        when(userRepository.getReferenceById(1L)).thenReturn(mockUser);
 
-        refreshTokenService.cleanupExpiredTokens();
+        refreshTokenService.rotate("current", "203.0.113.7");
 
-        verify(refreshTokenRepository).deleteAllByExpiresAtBefore(any());
+        verify(refreshTokenRepository).save(argThat(saved ->
+                "203.0.113.7".equals(saved.getLastUsedIp()) && saved.getLastUsedAt() != null));
     }
 
     @Test
-    @DisplayName("cleanupExpiredTokens should still run if no tokens were deleted")
-    void cleanupExpiredTokens_shouldNotLogWhenNoTokensDeleted() {
-        when(refreshTokenRepository.deleteAllByExpiresAtBefore(any())).thenReturn(0);
+    @DisplayName("rotate should delete the user's tokens consumed before the reuse-detection window")
+    void rotate_shouldPurgeOldConsumedTokens() {
+        ReflectionTestUtils.setField(refreshTokenService, "reuseDetectionSeconds", 3600L);
+        RotationView view = rotationView("family-1", null, Instant.now().plusSeconds(60));
+        when(refreshTokenRepository.consume(any(), any())).thenReturn(1);
+        when(refreshTokenRepository.findRotationViewByTokenHash(any())).thenReturn(Optional.of(view));
+        when(userRepository.getReferenceById(1L)).thenReturn(mockUser);
+
+        Instant before = Instant.now();
+        refreshTokenService.rotate("current");
+
+        verify(refreshTokenRepository).deleteConsumedBefore(eq(1L), argThat(cutoff ->
+                !cutoff.isAfter(Instant.now().minusSeconds(3600)) && !cutoff.isBefore(before.minusSeconds(3600))));
+    }
 
-        refreshTokenService.cleanupExpiredTokens();
+    @Test
+    @DisplayName("rotate should revoke the whole family when a consumed token is replayed")
+    void rotate_shouldRevokeFamilyOnReplay() {
+        RotationView view = rotationView("family-1", Instant.now().minusSeconds(60), Instant.now().plusSeconds(60));
+        when(refreshTokenRepository.consume(any(), any())).thenReturn(0);
+        when(refreshTokenRepository.findRotationViewByTokenHash(any())).thenReturn(Optional.of(view));
+
+        assertThrows(IllegalArgumentException.class, () -> refreshTokenService.rotate("replayed"));
+
+        verify(refreshTokenRepository).revokeFamily(eq("family-1"), any());
+        verify(refreshTokenRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("rotate should reject a concurrent refresh inside the grace window without revoking")
+    void rotate_shouldNotRevokeWithinGraceWindow() {
+        ReflectionTestUtils.setField(refreshTokenService, "reuseGraceSeconds", 10L);
+        RotationView view = rotationView("family-1", Instant.now().minusSeconds(1), Instant.now().plusSeconds(60));
+        when(refreshTokenRepository.consume(any(), any())).thenReturn(0);
+        when(refreshTokenRepository.findRotationViewByTokenHash(any())).thenReturn(Optional.of(view));
+
+        assertThrows(IllegalArgumentException.class, () -> refreshTokenService.rotate("raced"));
+
+        verify(refreshTokenRepository, never()).revokeFamily(any(), any());
+    }
+
+    @Test
+    @DisplayName("rotate should report expiry for an expired, unconsumed token")
+    void rotate_shouldThrowIfExpired() {
+        RotationView view = rotationView("family-1", null, Instant.now().minusSeconds(1));
+        when(refreshTokenRepository.consume(any(), any())).thenReturn(0);
+        when(refreshTokenRepository.findRotationViewByTokenHash(any())).thenReturn(Optional.of(view));
+
+        Exception ex = assertThrows(IllegalStateException.class, () -> refreshTokenService.rotate("expired"));
+        assertEquals("Refresh token expired", ex.getMessage());
+    }
+
+    @Test
+    @DisplayName("rotate should reject unknown tokens")
+    void rotate_shouldThrowIfUnknown() {
+        when(refreshTokenRepository.findRotationViewByTokenHash(any())).thenReturn(Optional.empty());
+
+        Exception ex = assertThrows(IllegalArgumentException.class, () -> refreshTokenService.rotate("unknown"));
+        assertEquals("Invalid refresh token", ex.getMessage());
+    }
+
+    @Test
+    @DisplayName("delete should remove token by the hash of its value")
+    void delete_shouldDeleteTokenByValue() {
+        refreshTokenService.delete("some-token");
+        verify(refreshTokenRepository).deleteByTokenHash(TokenHashUtils.sha256("some-token"));
+    }
 
-        verify(refreshTokenRepository).deleteAllByExpiresAtBefore(any());
+    private RotationView rotationView(String familyId, Instant consumedAt, Instant expiresAt) {
+        RotationView view = mock(RotationView.class);
+        when(view.getFamilyId()).thenReturn(familyId);
+        when(view.getConsumedAt()).thenReturn(consumedAt);
+        when(view.getExpiresAt()).thenReturn(expiresAt);
+        when(view.getUserId()).thenReturn(1L);
+        when(view.getEmail()).thenReturn("test@example.com");
+        when(view.getFirstName()).thenReturn("Test");
+        when(view.getLastName()).thenReturn("User");
+        return view;
     }
 }
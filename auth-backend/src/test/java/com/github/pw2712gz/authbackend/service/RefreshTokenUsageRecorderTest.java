@@ -0,0 +1,79 @@
+package com.github.pw2712gz.authbackend.service;
+
+import com.github.pw2712gz.authbackend.util.TokenHashUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class RefreshTokenUsageRecorderTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private SimpleMeterRegistry meterRegistry;
+    private RefreshTokenUsageRecorder recorder;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        meterRegistry = new SimpleMeterRegistry();
+        recorder = new RefreshTokenUsageRecorder(jdbcTemplate, meterRegistry);
+
+        ReflectionTestUtils.setField(recorder, "enabled", true);
+        ReflectionTestUtils.setField(recorder, "maxPending", 2);
+    }
+
+    @Test
+    @DisplayName("Coalesces repeated uses of a token into one row with the latest client address")
+    @SuppressWarnings("unchecked")
+    void flush_writesLatestUsePerToken() {
+        recorder.record("token-a", "10.0.0.1");
+        recorder.record("token-a", "10.0.0.2");
+        recorder.record("token-b", "10.0.0.3");
+
+        recorder.flush();
+
+        ArgumentCaptor<List<Object[]>> captor = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), captor.capture());
+        List<Object[]> rows = captor.getValue();
+        assertEquals(2, rows.size());
+
+        Object[] rowA = rows.stream()
+                .filter(row -> Arrays.equals((byte[]) row[2], TokenHashUtils.sha256("token-a")))
+                .findFirst()
+                .orElseThrow();
+        assertEquals("10.0.0.2", rowA[1]);
+        assertEquals(2, meterRegistry.get("auth.refresh.usage.written").counter().count());
+    }
+
+    @Test
+    @DisplayName("Drops uses of new tokens once the pending map is full")
+    void record_dropsBeyondCap() {
+        recorder.record("token-a", "10.0.0.1");
+        recorder.record("token-b", "10.0.0.1");
+        recorder.record("token-c", "10.0.0.1");
+        recorder.record("token-a", "10.0.0.9");
+
+        assertEquals(1, meterRegistry.get("auth.refresh.usage.dropped").counter().count());
+        assertEquals(2, meterRegistry.get("auth.refresh.usage.pending").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Skips the database when nothing is pending")
+    void flush_nothingPending() {
+        recorder.flush();
+        recorder.flushOnShutdown();
+
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+}
@@ -0,0 +1,93 @@
+package com.github.pw2712gz.authbackend.service;
+
+import com.github.pw2712gz.authbackend.repository.UserRepository;
+import com.github.pw2712gz.authbackend.repository.UserRepository.EmailView;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class RegisteredEmailFilterTest {
+
+    private final List<EmailView> rows = new ArrayList<>();
+    private UserRepository userRepository;
+    private RegisteredEmailFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        when(userRepository.findEmailsAfter(anyLong(), any(Limit.class))).thenAnswer(inv -> {
+            long afterId = inv.getArgument(0);
+            return rows.stream().filter(row -> row.getId() > afterId).toList();
+        });
+
+        filter = new RegisteredEmailFilter(userRepository, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(filter, "enabled", true);
+        ReflectionTestUtils.setField(filter, "expectedInsertions", 1_000L);
+        ReflectionTestUtils.setField(filter, "falsePositiveRate", 0.001);
+        ReflectionTestUtils.setField(filter, "syncMillis", 60_000L);
+
+        row(1, "first@example.com");
+        filter.rebuild();
+    }
+
+    @Test
+    @DisplayName("Emails registered on another instance are seen after the next sync")
+    void sync_addsEmailsRegisteredElsewhere() {
+        row(2, "elsewhere@example.com");
+        assertFalse(filter.mightExist("elsewhere@example.com"));
+
+        filter.sync();
+
+        assertTrue(filter.mightExist("Elsewhere@Example.com"));
+        assertTrue(filter.mightExist("first@example.com"));
+    }
+
+    @Test
+    @DisplayName("A row that commits after a higher id was synced is still picked up")
+    void sync_rescansThePreviousPoll() {
+        row(3, "third@example.com");
+        filter.sync();
+
+        // id 2 was allocated before 3 but committed later
+        row(2, "late@example.com");
+        filter.sync();
+
+        assertTrue(filter.mightExist("late@example.com"));
+    }
+
+    @Test
+    @DisplayName("Negatives are not trusted once syncing falls behind")
+    void mightExist_fallsBackWhenSyncIsStale() {
+        assertFalse(filter.mightExist("ghost@example.com"));
+
+        ReflectionTestUtils.setField(filter, "syncedAt", System.currentTimeMillis() - 120_001L);
+
+        assertTrue(filter.mightExist("ghost@example.com"));
+    }
+
+    private void row(long id, String email) {
+        rows.add(new EmailView() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getEmail() {
+                return email;
+            }
+        });
+        rows.sort((a, b) -> Long.compare(a.getId(), b.getId()));
+    }
+}
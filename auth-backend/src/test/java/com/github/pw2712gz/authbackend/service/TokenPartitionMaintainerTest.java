@@ -0,0 +1,120 @@
+package com.github.pw2712gz.authbackend.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TokenPartitionMaintainerTest {
+
+    // TO_DAYS('2025-01-10') in MySQL
+    private static final long TODAY = 739_626;
+
+    private JdbcTemplate jdbcTemplate;
+    private TokenPartitionMaintainer maintainer;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        maintainer = new TokenPartitionMaintainer(jdbcTemplate,
+                Clock.fixed(Instant.parse("2025-01-10T12:00:00Z"), ZoneOffset.UTC));
+
+        ReflectionTestUtils.setField(maintainer, "enabled", true);
+        ReflectionTestUtils.setField(maintainer, "daysAhead", 2);
+        ReflectionTestUtils.setField(maintainer, "retentionDays", 1);
+    }
+
+    @Test
+    @DisplayName("Splits pmax into daily partitions through the longest token lifetime plus the look-ahead")
+    void maintain_createsFuturePartitions() {
+        givenPartitions("refresh_tokens", List.of(row("pmax", "MAXVALUE")));
+        givenPartitions("password_reset_tokens", List.of());
+
+        maintainer.maintain();
+
+        List<String> statements = executedStatements();
+        assertEquals(1, statements.size());
+        String sql = statements.get(0);
+        assertTrue(sql.startsWith("ALTER TABLE refresh_tokens REORGANIZE PARTITION pmax INTO ("));
+        assertTrue(sql.contains("PARTITION p20250110 VALUES LESS THAN (" + (TODAY + 1) + ")"));
+        assertTrue(sql.contains("PARTITION p20250211 VALUES LESS THAN (" + (TODAY + 33) + ")"));
+        assertFalse(sql.contains("p20250212"));
+        assertTrue(sql.endsWith("PARTITION pmax VALUES LESS THAN MAXVALUE)"));
+    }
+
+    @Test
+    @DisplayName("Drops partitions whose rows all expired before the retention window")
+    void maintain_dropsExpiredPartitions() {
+        givenPartitions("refresh_tokens", List.of());
+        givenPartitions("password_reset_tokens", List.of(
+                row("p20250107", String.valueOf(TODAY - 2)),
+                row("p20250108", String.valueOf(TODAY - 1)),
+                row("p20250109", String.valueOf(TODAY)),
+                row("p20250110", String.valueOf(TODAY + 1)),
+                row("p20250111", String.valueOf(TODAY + 2)),
+                row("p20250112", String.valueOf(TODAY + 3)),
+                row("p20250113", String.valueOf(TODAY + 4)),
+                row("pmax", "MAXVALUE")));
+
+        maintainer.maintain();
+
+        assertEquals(List.of("ALTER TABLE password_reset_tokens DROP PARTITION p20250107, p20250108"), executedStatements());
+    }
+
+    @Test
+    @DisplayName("Leaves tables alone when partitioning is disabled")
+    void maintain_disabled() {
+        ReflectionTestUtils.setField(maintainer, "enabled", false);
+
+        maintainer.maintain();
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void givenPartitions(String table, List<PartitionRow> rows) {
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq(table))).thenAnswer(inv -> {
+            RowMapper<Object> mapper = inv.getArgument(1);
+            List<Object> mapped = new ArrayList<>();
+            for (PartitionRow row : rows) {
+                mapped.add(mapper.mapRow(resultSet(row), mapped.size()));
+            }
+            return mapped;
+        });
+    }
+
+    private List<String> executedStatements() {
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate, atLeast(0)).execute(captor.capture());
+        return captor.getAllValues();
+    }
+
+    private static PartitionRow row(String name, String description) {
+        return new PartitionRow(name, description);
+    }
+
+    private static ResultSet resultSet(PartitionRow row) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getString(1)).thenReturn(row.name());
+        when(rs.getString(2)).thenReturn(row.description());
+        return rs;
+    }
+
+    private record PartitionRow(String name, String description) {
+    }
+}
@@ -0,0 +1,98 @@
+package com.github.pw2712gz.authbackend.service;
+
+import com.github.pw2712gz.authbackend.entity.User;
+import com.github.pw2712gz.authbackend.repository.UserRepository;
+import com.github.pw2712gz.authbackend.service.UserCache.CachedUser;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UserCacheTest {
+
+    private UserRepository userRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private UserCache userCache;
+
+    private final User user = User.builder()
+            .id(1L)
+            .firstName("Cache")
+            .lastName("User")
+            .email("cache@example.com")
+            .password("hash")
+            .enabled(true)
+            .build();
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        userCache = new UserCache(userRepository, meterRegistry, 100, 300);
+    }
+
+    @Test
+    @DisplayName("Repeated lookups with differently-cased emails hit the DB once")
+    void findByEmail_cachesByNormalizedEmail() {
+        when(userRepository.findByEmail(anyString())).thenReturn(Optional.of(user));
+
+        Optional<CachedUser> first = userCache.findByEmail("cache@example.com");
+        Optional<CachedUser> second = userCache.findByEmail(" Cache@Example.com ");
+
+        assertTrue(first.isPresent());
+        assertEquals(first, second);
+        verify(userRepository, times(1)).findByEmail(anyString());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "users").tag("result", "hit").functionCounter().count());
+        assertTrue(userCache.isCached("CACHE@example.com"));
+    }
+
+    @Test
+    @DisplayName("Unknown emails are not cached")
+    void findByEmail_doesNotCacheMisses() {
+        when(userRepository.findByEmail("ghost@example.com")).thenReturn(Optional.empty());
+
+        assertTrue(userCache.findByEmail("ghost@example.com").isEmpty());
+        assertTrue(userCache.findByEmail("ghost@example.com").isEmpty());
+
+        verify(userRepository, times(2)).findByEmail("ghost@example.com");
+        assertFalse(userCache.isCached("ghost@example.com"));
+    }
+
+    @Test
+    @DisplayName("invalidate forces the next lookup back to the DB")
+    void invalidate_evictsEntry() {
+        when(userRepository.findByEmail("cache@example.com")).thenReturn(Optional.of(user));
+        userCache.findByEmail("cache@example.com");
+
+        userCache.invalidate("cache@example.com");
+        userCache.findByEmail("cache@example.com");
+
+        verify(userRepository, times(2)).findByEmail("cache@example.com");
+    }
+
+    @Test
+    @DisplayName("A load that races with an invalidation does not re-cache stale data")
+    void findByEmail_skipsPutAfterConcurrentInvalidation() {
+        when(userRepository.findByEmail("cache@example.com")).thenAnswer(inv -> {
+            userCache.invalidate("cache@example.com");
+            return Optional.of(user);
+        });
+
+        assertTrue(userCache.findByEmail("cache@example.com").isPresent());
+        assertFalse(userCache.isCached("cache@example.com"));
+    }
+
+    @Test
+    @DisplayName("Cached entries carry the profile only, not credentials")
+    void findByEmail_cachesProfileOnly() {
+        when(userRepository.findByEmail("cache@example.com")).thenReturn(Optional.of(user));
+
+        CachedUser cached = userCache.findByEmail("cache@example.com").orElseThrow();
+
+        assertEquals(new CachedUser(1L, "Cache", "User", "cache@example.com"), cached);
+    }
+}
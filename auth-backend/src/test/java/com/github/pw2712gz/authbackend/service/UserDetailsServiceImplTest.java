@@ -0,0 +1,79 @@
+package com.github.pw2712gz.authbackend.service;
+
+import com.github.pw2712gz.authbackend.entity.User;
+import com.github.pw2712gz.authbackend.repository.UserRepository;
+import com.github.pw2712gz.authbackend.security.AuthenticatedUser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UserDetailsServiceImplTest {
+
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private PasswordUpgradeService passwordUpgradeService;
+
+    @InjectMocks
+    private UserDetailsServiceImpl userDetailsService;
+
+    private AutoCloseable mocks;
+
+    @BeforeEach
+    void setUp() {
+        mocks = MockitoAnnotations.openMocks(this);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        mocks.close();
+    }
+
+    @Test
+    @DisplayName("loadUserByUsername should map the stored user, read from the DB, to UserDetails")
+    void loadUserByUsername_shouldReturnUserDetails() {
+        User user = User.builder().id(1L).firstName("Load").lastName("User")
+                .email("load@example.com").password("{bcrypt}hash").enabled(true).build();
+        when(userRepository.findByEmail("load@example.com")).thenReturn(Optional.of(user));
+
+        UserDetails details = userDetailsService.loadUserByUsername("load@example.com");
+
+        assertInstanceOf(AuthenticatedUser.class, details);
+        assertEquals("load@example.com", details.getUsername());
+        assertEquals("{bcrypt}hash", details.getPassword());
+        assertTrue(details.isEnabled());
+    }
+
+    @Test
+    @DisplayName("loadUserByUsername should throw when the user does not exist")
+    void loadUserByUsername_shouldThrowIfMissing() {
+        when(userRepository.findByEmail("ghost@example.com")).thenReturn(Optional.empty());
+
+        assertThrows(UsernameNotFoundException.class,
+                () -> userDetailsService.loadUserByUsername("ghost@example.com"));
+    }
+
+    @Test
+    @DisplayName("updatePassword should hand the upgraded hash to the async writer")
+    void updatePassword_shouldScheduleUpgrade() {
+        AuthenticatedUser current = new AuthenticatedUser(3L, "Up", "Grade", "upgrade@example.com", "$2b$10$legacy", true);
+
+        UserDetails updated = userDetailsService.updatePassword(current, "{bcrypt}$2b$12$upgraded");
+
+        assertInstanceOf(AuthenticatedUser.class, updated);
+        assertEquals("{bcrypt}$2b$12$upgraded", updated.getPassword());
+        verify(passwordUpgradeService).upgrade("upgrade@example.com", "$2b$10$legacy", "{bcrypt}$2b$12$upgraded");
+        verifyNoInteractions(userRepository);
+    }
+}
@@ -0,0 +1,58 @@
+package com.github.pw2712gz.authbackend.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterTest {
+
+    @Test
+    @DisplayName("mightContain should never return false for an added value")
+    void mightContain_noFalseNegatives() {
+        BloomFilter filter = BloomFilter.create(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("user" + i + "@example.com");
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("user" + i + "@example.com"));
+        }
+    }
+
+    @Test
+    @DisplayName("False-positive rate should stay close to the configured target")
+    void mightContain_falsePositiveRateWithinBounds() {
+        BloomFilter filter = BloomFilter.create(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("user" + i + "@example.com");
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (filter.mightContain("other" + i + "@example.com")) {
+                falsePositives++;
+            }
+        }
+
+        assertTrue(falsePositives < 200, "Too many false positives: " + falsePositives);
+        assertTrue(filter.expectedFalsePositiveRate() < 0.02);
+    }
+
+    @Test
+    @DisplayName("create should size the filter from insertions and target rate")
+    void create_shouldSizeFilter() {
+        BloomFilter filter = BloomFilter.create(100_000, 0.01);
+
+        assertTrue(filter.bitSize() >= 958_000);
+        assertEquals(7, filter.hashCount());
+        assertEquals(0.0, filter.expectedFalsePositiveRate());
+    }
+
+    @Test
+    @DisplayName("create should reject invalid parameters")
+    void create_shouldRejectInvalidParameters() {
+        assertThrows(IllegalArgumentException.class, () -> BloomFilter.create(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> BloomFilter.create(100, 1.0));
+    }
+}
@@ -0,0 +1,68 @@
+package com.github.pw2712gz.authbackend.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CountMinSketchTest {
+
+    @Test
+    @DisplayName("Estimates never under-count and stay close for heavy keys among many light ones")
+    void estimate_neverUnderCounts() {
+        CountMinSketch sketch = new CountMinSketch(4_096, 4);
+        for (int i = 0; i < 20_000; i++) {
+            sketch.increment("user" + i + "@example.com");
+        }
+        for (int i = 0; i < 100; i++) {
+            sketch.increment("victim@example.com");
+        }
+
+        int estimate = sketch.estimate("victim@example.com");
+        assertTrue(estimate >= 100);
+        assertTrue(estimate <= 110, "estimate " + estimate);
+        for (int i = 0; i < 20_000; i += 997) {
+            assertTrue(sketch.estimate("user" + i + "@example.com") >= 1);
+        }
+    }
+
+    @Test
+    @DisplayName("Decay halves counts until they reach zero")
+    void decay_halvesCounts() {
+        CountMinSketch sketch = new CountMinSketch(64, 2);
+        for (int i = 0; i < 8; i++) {
+            sketch.increment("a@example.com");
+        }
+
+        sketch.decay();
+        assertEquals(4, sketch.estimate("a@example.com"));
+        sketch.decay();
+        sketch.decay();
+        sketch.decay();
+        assertEquals(0, sketch.estimate("a@example.com"));
+        assertEquals(1, sketch.increment("a@example.com"));
+    }
+
+    @Test
+    @DisplayName("Reset forgets a key without touching others")
+    void reset_clearsKey() {
+        CountMinSketch sketch = new CountMinSketch(1_024, 4);
+        for (int i = 0; i < 5; i++) {
+            sketch.increment("a@example.com");
+            sketch.increment("b@example.com");
+        }
+
+        sketch.reset("a@example.com");
+
+        assertEquals(0, sketch.estimate("a@example.com"));
+        assertEquals(5, sketch.estimate("b@example.com"));
+        assertEquals(1, sketch.increment("a@example.com"));
+    }
+
+    @Test
+    @DisplayName("Memory is fixed by width and depth")
+    void sizeInBytes_fixed() {
+        assertEquals(4 * 1_024 * Integer.BYTES, new CountMinSketch(1_024, 4).sizeInBytes());
+        assertThrows(IllegalArgumentException.class, () -> new CountMinSketch(0, 4));
+    }
+}
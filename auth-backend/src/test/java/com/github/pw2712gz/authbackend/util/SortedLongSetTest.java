@@ -0,0 +1,50 @@
+package com.github.pw2712gz.authbackend.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SortedLongSetTest {
+
+    @Test
+    @DisplayName("of should sort and drop duplicates")
+    void of_sortsAndDedupes() {
+        SortedLongSet set = SortedLongSet.of(5, 1, 5, Long.MAX_VALUE, 1, 3);
+
+        assertEquals(4, set.size());
+        assertTrue(set.contains(1));
+        assertTrue(set.contains(3));
+        assertTrue(set.contains(5));
+        assertTrue(set.contains(Long.MAX_VALUE));
+        assertFalse(set.contains(2));
+    }
+
+    @Test
+    @DisplayName("with should merge into a new set and leave the original unchanged")
+    void with_mergesWithoutMutating() {
+        SortedLongSet original = SortedLongSet.of(2, 4, 6);
+
+        SortedLongSet merged = original.with(6, 1, 7, 4);
+
+        assertEquals(5, merged.size());
+        for (long value : new long[]{1, 2, 4, 6, 7}) {
+            assertTrue(merged.contains(value));
+        }
+        assertEquals(3, original.size());
+        assertFalse(original.contains(1));
+    }
+
+    @Test
+    @DisplayName("Empty set should contain nothing and grow through with")
+    void empty_growsThroughWith() {
+        assertFalse(SortedLongSet.empty().contains(0));
+        assertSame(SortedLongSet.empty(), SortedLongSet.empty().with());
+
+        SortedLongSet set = SortedLongSet.empty().with(42);
+
+        assertEquals(1, set.size());
+        assertTrue(set.contains(42));
+        assertEquals(Long.BYTES, set.sizeInBytes());
+    }
+}
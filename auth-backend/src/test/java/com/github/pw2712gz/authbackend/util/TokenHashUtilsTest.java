@@ -0,0 +1,31 @@
+package com.github.pw2712gz.authbackend.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenHashUtilsTest {
+
+    @Test
+    @DisplayName("generateToken should return distinct URL-safe 256-bit tokens")
+    void generateToken_shouldBeRandomAndUrlSafe() {
+        String first = TokenHashUtils.generateToken();
+        String second = TokenHashUtils.generateToken();
+
+        assertEquals(43, first.length());
+        assertTrue(first.matches("[A-Za-z0-9_-]+"));
+        assertNotEquals(first, second);
+    }
+
+    @Test
+    @DisplayName("sha256 should match MySQL UNHEX(SHA2(token, 256)) used by the migration")
+    void sha256_shouldMatchKnownDigest() {
+        byte[] hash = TokenHashUtils.sha256("abc");
+
+        assertEquals(TokenHashUtils.HASH_BYTES, hash.length);
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", HexFormat.of().formatHex(hash));
+    }
+}
@@ -0,0 +1,89 @@
+package com.github.pw2712gz.authbenchmarks;
+
+import com.github.pw2712gz.authbackend.security.JwtProvider;
+import com.github.pw2712gz.authbackend.security.JwtSigningAlgorithm;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares access-token signing and verification cost per {@link JwtSigningAlgorithm}.
+ * Token size is printed once per trial since it is fixed for a given algorithm.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtSigningBenchmark {
+
+    @Param({"RS256", "ES256"})
+    private JwtSigningAlgorithm algorithm;
+
+    private JwtProvider jwtProvider;
+    private JwtDecoder jwtDecoder;
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        KeyPair keyPair = generateKeyPair(algorithm);
+
+        var signingKeys = new JWKSet(algorithm.toJwk(keyPair.getPublic(), keyPair.getPrivate()));
+        jwtProvider = new JwtProvider(new NimbusJwtEncoder(new ImmutableJWKSet<>(signingKeys)), 900_000L, 1L, algorithm);
+
+        var verificationKeys = new ImmutableJWKSet<SecurityContext>(new JWKSet(algorithm.toJwk(keyPair.getPublic(), null)));
+        var processor = new DefaultJWTProcessor<SecurityContext>();
+        processor.setJWSKeySelector(new JWSVerificationKeySelector<>(algorithm.jwsAlgorithm(), verificationKeys));
+        processor.setJWTClaimsSetVerifier((claims, context) -> {
+        });
+        jwtDecoder = new NimbusJwtDecoder(processor);
+
+        token = sign();
+        System.out.printf("%n%s token size: %d bytes%n", algorithm, token.length());
+    }
+
+    @Benchmark
+    public String sign() {
+        return jwtProvider.generateTokenWithUsername("bench@example.com", 42L, "Bench", "User");
+    }
+
+    @Benchmark
+    public Jwt verify() {
+        return jwtDecoder.decode(token);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String signContended() {
+        return sign();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Jwt verifyContended() {
+        return verify();
+    }
+
+    private static KeyPair generateKeyPair(JwtSigningAlgorithm algorithm) throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance(algorithm.keyAlgorithm());
+        if (algorithm == JwtSigningAlgorithm.ES256) {
+            generator.initialize(new ECGenParameterSpec("secp256r1"));
+        } else {
+            generator.initialize(2048);
+        }
+        return generator.generateKeyPair();
+    }
+}
@@ -0,0 +1,56 @@
+package com.github.pw2712gz.authbenchmarks;
+
+import com.github.pw2712gz.authbackend.service.MailService;
+import org.openjdk.jmh.annotations.*;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thymeleaf rendering of the email templates via {@link MailService#render}, with the template cache on
+ * as in production. Sending is not measured; it is dominated by the Resend API round trip.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MailTemplateBenchmark {
+
+    @Param({"email/welcome.html", "email/reset-password.html"})
+    private String template;
+
+    private MailService mailService;
+    private Map<String, Object> model;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        var resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCharacterEncoding("UTF-8");
+        resolver.setCacheable(true);
+
+        var engine = new SpringTemplateEngine();
+        engine.setTemplateResolver(resolver);
+
+        // Rendering only; the outbox is never touched
+        mailService = new MailService(engine, null);
+        model = Map.of("name", "Bench User", "link", "https://auth.example.com/reset-password?token=abc123");
+    }
+
+    @Benchmark
+    public String render() {
+        return mailService.render(template, model);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String renderContended() {
+        return render();
+    }
+}
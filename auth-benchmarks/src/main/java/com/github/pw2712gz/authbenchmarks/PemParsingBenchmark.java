@@ -0,0 +1,60 @@
+package com.github.pw2712gz.authbenchmarks;
+
+import com.github.pw2712gz.authbackend.util.PemUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link PemUtils} key parsing, which runs at startup and for every configured rotation key.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PemParsingBenchmark {
+
+    @Param({"RSA", "EC"})
+    private String keyAlgorithm;
+
+    private String publicPem;
+    private String privatePem;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance(keyAlgorithm);
+        if ("EC".equals(keyAlgorithm)) {
+            generator.initialize(new ECGenParameterSpec("secp256r1"));
+        } else {
+            generator.initialize(2048);
+        }
+        KeyPair keyPair = generator.generateKeyPair();
+
+        publicPem = pem("PUBLIC KEY", keyPair.getPublic().getEncoded());
+        privatePem = pem("PRIVATE KEY", keyPair.getPrivate().getEncoded());
+    }
+
+    @Benchmark
+    public PublicKey parsePublicKey() throws Exception {
+        return PemUtils.parsePublicKey(publicPem, keyAlgorithm);
+    }
+
+    @Benchmark
+    public PrivateKey parsePrivateKey() throws Exception {
+        return PemUtils.parsePrivateKey(privatePem, keyAlgorithm);
+    }
+
+    private static String pem(String type, byte[] der) {
+        return "-----BEGIN " + type + "-----\n"
+                + Base64.getMimeEncoder(64, "\n".getBytes()).encodeToString(der)
+                + "\n-----END " + type + "-----\n";
+    }
+}
@@ -0,0 +1,145 @@
+package com.github.pw2712gz.authbenchmarks;
+
+import com.github.pw2712gz.authbackend.config.RateLimitingFilter;
+import com.github.pw2712gz.authbackend.ratelimit.AddressAggregation;
+import com.github.pw2712gz.authbackend.ratelimit.RateLimitPolicy;
+import com.github.pw2712gz.authbackend.ratelimit.TokenBucketRateLimiter;
+import com.github.pw2712gz.authbackend.security.ClientIpResolver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-request overhead of {@link RateLimitingFilter} against the fixed-window {@link LegacyRateLimitingFilter}.
+ * "shared" sends every thread through one client IP (hot key, mostly rejected);
+ * "distinct" gives each thread its own IP so only the map and cleanup are shared;
+ * "rotating" cycles every request through a pool of {@value #ROTATING_POOL} IPs, so most requests are allowed
+ * and the legacy filter scans the whole pool on every allowed request while the bounded store keeps evicting.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RateLimitingFilterBenchmark {
+
+    private static final int ROTATING_POOL = 100_000;
+    // Below the pool size, so "rotating" also exercises eviction
+    private static final int MAX_CLIENTS = 65_536;
+
+    private static final FilterChain NO_OP_CHAIN = (request, response) -> {
+    };
+
+    @State(Scope.Benchmark)
+    public static class FilterState {
+
+        @Param({"tokenBucket", "legacy"})
+        String impl;
+
+        @Param({"shared", "distinct", "rotating"})
+        String clients;
+
+        Filter filter;
+        String[] pool;
+        final AtomicInteger nextClient = new AtomicInteger();
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            filter = "legacy".equals(impl) ? new LegacyRateLimitingFilter() : tokenBucketFilter();
+            pool = new String[ROTATING_POOL];
+            for (int i = 0; i < pool.length; i++) {
+                pool[i] = "172." + (16 + i / 65_536) + "." + (i / 256 % 256) + "." + (i % 256);
+            }
+        }
+
+        /**
+         * Built as SecurityConfig builds it without cluster limiting or trusted proxies.
+         */
+        private static Filter tokenBucketFilter() {
+            SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+            return new RateLimitingFilter(
+                    policy -> new TokenBucketRateLimiter(policy.name(), policy.limit(), policy.window(), MAX_CLIENTS, meterRegistry),
+                    RateLimitPolicy.defaults(), ClientIpResolver.direct(), AddressAggregation.DEFAULT);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            filter.destroy();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ClientState {
+
+        MockHttpServletRequest request;
+        boolean rotating;
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp(FilterState state) {
+            request = new MockHttpServletRequest("POST", "/api/auth/login");
+            int client = "shared".equals(state.clients) ? 0 : state.nextClient.incrementAndGet();
+            request.setRemoteAddr("10.0." + (client / 256) + "." + (client % 256));
+            rotating = "rotating".equals(state.clients);
+            next = client * 7_919;
+        }
+    }
+
+    @Benchmark
+    public MockHttpServletResponse doFilter(FilterState state, ClientState client) throws Exception {
+        if (client.rotating) {
+            client.request.setRemoteAddr(state.pool[Math.floorMod(client.next++, ROTATING_POOL)]);
+        }
+        MockHttpServletResponse response = new BulkWriteResponse();
+        state.filter.doFilter(client.request, response, NO_OP_CHAIN);
+        return response;
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public MockHttpServletResponse doFilterContended(FilterState state, ClientState client) throws Exception {
+        return doFilter(state, client);
+    }
+
+    /**
+     * The mock's output stream copies byte by byte, which would dominate the rejection path; servlet containers
+     * copy arrays in bulk.
+     */
+    static final class BulkWriteResponse extends MockHttpServletResponse {
+
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return new ServletOutputStream() {
+                @Override
+                public void write(int b) {
+                    body.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    body.write(b, off, len);
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setWriteListener(WriteListener writeListener) {
+                }
+            };
+        }
+    }
+}